@@ -20,12 +20,38 @@ CREATE TABLE IF NOT EXISTS videos (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     duration INTEGER,
-    resolution VARCHAR(20)
+    resolution VARCHAR(20),
+    content_sha256 CHAR(64),
+    duration_ms BIGINT,
+    video_codec VARCHAR(32),
+    audio_codec VARCHAR(32),
+    frame_rate DOUBLE PRECISION,
+    bitrate BIGINT,
+    encoding_complexity DOUBLE PRECISION,
+    encoding_crf INTEGER,
+    encoding_ladder TEXT,
+    processed_at TIMESTAMP
     );
 
+-- Columns added after the first release (existing databases)
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS content_sha256 CHAR(64);
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS duration_ms BIGINT;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS video_codec VARCHAR(32);
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS audio_codec VARCHAR(32);
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS frame_rate DOUBLE PRECISION;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS bitrate BIGINT;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS encoding_complexity DOUBLE PRECISION;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS encoding_crf INTEGER;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS encoding_ladder TEXT;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS processed_at TIMESTAMP;
+
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_videos_status ON videos(status);
-CREATE INDEX IF NOT EXISTS idx_videos_created_at ON videos(created_at DESC);
+-- Keyset listing: ORDER BY created_at DESC, id DESC [WHERE status = ?]
+CREATE INDEX IF NOT EXISTS idx_videos_created_at_id ON videos(created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_videos_status_created_at_id ON videos(status, created_at DESC, id DESC);
+-- Yerini idx_videos_created_at_id aldı
+DROP INDEX IF EXISTS idx_videos_created_at;
 CREATE INDEX IF NOT EXISTS idx_videos_filename ON videos(filename);
 
 -- Create trigger to automatically update updated_at
@@ -43,6 +69,78 @@ CREATE TRIGGER set_timestamp
     FOR EACH ROW
     EXECUTE PROCEDURE trigger_set_timestamp();
 
+-- Processing job queue shared by all app nodes
+CREATE TABLE IF NOT EXISTS processing_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    video_id BIGINT NOT NULL REFERENCES videos(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    priority INTEGER NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    owner VARCHAR(255),
+    lease_expires_at TIMESTAMP,
+    heartbeat_at TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE INDEX IF NOT EXISTS idx_processing_jobs_claim ON processing_jobs(status, priority, created_at);
+CREATE INDEX IF NOT EXISTS idx_processing_jobs_owner ON processing_jobs(owner) WHERE status = 'RUNNING';
+-- Bir video için aynı anda tek aktif iş
+CREATE UNIQUE INDEX IF NOT EXISTS idx_processing_jobs_active_video
+    ON processing_jobs(video_id) WHERE status IN ('PENDING', 'RUNNING');
+
+CREATE TRIGGER set_timestamp
+    BEFORE UPDATE ON processing_jobs
+    FOR EACH ROW
+    EXECUTE PROCEDURE trigger_set_timestamp();
+
+-- Resumable uploads: chunks may arrive in any order and in parallel
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    video_id BIGINT NOT NULL REFERENCES videos(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'OPEN',
+    total_size BIGINT NOT NULL,
+    chunk_size INTEGER NOT NULL,
+    chunk_count INTEGER NOT NULL,
+    received_count INTEGER NOT NULL DEFAULT 0,
+    -- bit i (set_bit sırası) = chunk i yazıldı
+    received_chunks BYTEA NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_video ON upload_sessions(video_id);
+
+CREATE TRIGGER set_timestamp
+    BEFORE UPDATE ON upload_sessions
+    FOR EACH ROW
+    EXECUTE PROCEDURE trigger_set_timestamp();
+
+-- Processed output per source content; identical uploads share one output
+CREATE TABLE IF NOT EXISTS processed_outputs (
+    id BIGSERIAL PRIMARY KEY,
+    content_sha256 CHAR(64) NOT NULL,
+    cmaf_path TEXT NOT NULL UNIQUE,
+    hls_manifest_path TEXT,
+    dash_manifest_path TEXT,
+    -- bu çıktıyı kullanan video sayısı; sıfıra inince dosyalar silinir
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    duration INTEGER,
+    duration_ms BIGINT,
+    resolution VARCHAR(20),
+    video_codec VARCHAR(32),
+    audio_codec VARCHAR(32),
+    frame_rate DOUBLE PRECISION,
+    bitrate BIGINT,
+    encoding_complexity DOUBLE PRECISION,
+    encoding_crf INTEGER,
+    encoding_ladder TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE INDEX IF NOT EXISTS idx_processed_outputs_sha256 ON processed_outputs(content_sha256);
+
 -- Insert some sample data (optional)
 -- INSERT INTO videos (title, filename, original_filename, file_size, mime_type, status) 
 -- VALUES ('Sample Video', 'sample-uuid.mp4', 'sample.mp4', 1024000, 'video/mp4', 'READY');
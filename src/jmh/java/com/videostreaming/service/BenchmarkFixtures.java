@@ -0,0 +1,55 @@
+package com.videostreaming.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic processed videos for the benchmarks: a four-rung ladder plus
+ * audio, 2 s segments, sizes and timings shaped like real encodes.
+ */
+final class BenchmarkFixtures {
+
+    static final int VIDEO_TIMESCALE = 15360;
+    static final int AUDIO_TIMESCALE = 48000;
+    static final double SEGMENT_SECONDS = 2.0;
+
+    private static final int[][] LADDER = {
+            {1920, 1080, 5_000_000}, {1280, 720, 2_800_000}, {854, 480, 1_400_000}, {640, 360, 800_000}};
+
+    private BenchmarkFixtures() {
+    }
+
+    static FragmentIndex index(int segments, boolean singleFile) {
+        List<FragmentIndex.Track> tracks = new ArrayList<>();
+        for (int[] rung : LADDER) {
+            tracks.add(track(rung[1] + "p", false, "avc1.640028", rung[0], rung[1], rung[2],
+                    VIDEO_TIMESCALE, segments, singleFile));
+        }
+        tracks.add(track("audio", true, "mp4a.40.2", 0, 0, 128_000, AUDIO_TIMESCALE, segments, singleFile));
+        long durationMs = (long) (segments * SEGMENT_SECONDS * 1000);
+        return new FragmentIndex(durationMs, 30.0, "30/1", AUDIO_TIMESCALE, tracks);
+    }
+
+    static FragmentIndex.Track track(String name, boolean audio, String codecs, int width, int height,
+                                     long bitrate, int timescale, int segments, boolean singleFile) {
+        int initSize = audio ? 700 : 900;
+        int indexSize = singleFile ? 40 + 12 * segments : 0; // Fmp4Boxes.buildSidx boyutu
+        long[] offsets = new long[segments];
+        int[] sizes = new int[segments];
+        long[] keyframeTimes = new long[segments];
+        int[] durations = new int[segments];
+        int duration = (int) (SEGMENT_SECONDS * timescale);
+        long offset = initSize + indexSize;
+        for (int i = 0; i < segments; i++) {
+            // ±%25 oynayan segment boyutları (deterministik)
+            double variation = 0.75 + ((i * 7919L) % 50) / 100.0;
+            sizes[i] = (int) (bitrate / 8 * SEGMENT_SECONDS * variation);
+            offsets[i] = offset;
+            keyframeTimes[i] = (long) i * duration;
+            durations[i] = i == segments - 1 ? duration / 2 : duration;
+            offset += sizes[i];
+        }
+        return new FragmentIndex.Track(name, audio, codecs, width, height, bitrate, bitrate * 5 / 4, timescale,
+                singleFile ? "media.mp4" : null, initSize, indexSize, offsets, sizes, keyframeTimes, durations);
+    }
+}
@@ -0,0 +1,62 @@
+package com.videostreaming.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manifest rendering from the fragment index (cache-miss cost of a manifest
+ * request): HLS media and master playlists and the DASH MPD, per-segment and
+ * single-file layouts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManifestRendererBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int segments;
+
+    @Param({"false", "true"})
+    boolean singleFile;
+
+    private ManifestRenderer renderer;
+    private FragmentIndex index;
+    private FragmentIndex.Track videoTrack;
+
+    @Setup
+    public void setUp() {
+        renderer = new ManifestRenderer(new SimpleMeterRegistry(), new FilesystemSegmentStore(), 10);
+        index = BenchmarkFixtures.index(segments, singleFile);
+        videoTrack = index.getVideoTracks().get(0);
+    }
+
+    @Benchmark
+    public String hlsMediaPlaylist() {
+        return renderer.renderHlsMedia(videoTrack);
+    }
+
+    @Benchmark
+    public String hlsMasterPlaylist() {
+        return renderer.renderHlsMaster(index);
+    }
+
+    @Benchmark
+    public String dashManifest() {
+        return renderer.renderDash(index);
+    }
+}
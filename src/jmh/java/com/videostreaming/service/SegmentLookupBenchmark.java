@@ -0,0 +1,81 @@
+package com.videostreaming.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Resolving a segment request to a file, as the segment endpoints do:
+ * a {@link SegmentFileCache} hit, and a miss that goes to the segment store
+ * and stats the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentLookupBenchmark {
+
+    private static final int SEGMENTS = 1000;
+
+    private final FilesystemSegmentStore store = new FilesystemSegmentStore();
+    private Path dir;
+    private SegmentFileCache warmCache;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("segment-lookup-bench");
+        Files.createDirectories(dir.resolve("720p"));
+        for (int i = 0; i < SEGMENTS; i++) {
+            Files.write(dir.resolve("720p").resolve(segmentName(i)), new byte[16]);
+        }
+        warmCache = new SegmentFileCache(store, SEGMENTS * 2);
+        for (int i = 0; i < SEGMENTS; i++) {
+            warmCache.resolve(1L, dir.toString(), "720p/" + segmentName(i)).block();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public SegmentFileCache.SegmentFile cacheHit() {
+        next = (next + 1) % SEGMENTS;
+        return warmCache.resolve(1L, dir.toString(), "720p/" + segmentName(next)).block();
+    }
+
+    @Benchmark
+    public SegmentFileCache.SegmentFile cacheMiss() {
+        next = (next + 1) % SEGMENTS;
+        // Önbelleğe giren her girdi hemen atılır: her çağrı depoya gider
+        return new SegmentFileCache(store, 0).resolve(1L, dir.toString(), "720p/" + segmentName(next)).block();
+    }
+
+    private static String segmentName(int i) {
+        return String.format("segment_%03d.m4s", i);
+    }
+}
@@ -0,0 +1,76 @@
+package com.videostreaming.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The multipart upload write path ({@link VideoService#writeFile}): hashing
+ * each DataBuffer and writing it to an AsynchronousFileChannel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadWriteBenchmark {
+
+    @Param({"64"})
+    int megabytes;
+
+    // Netty'nin multipart parçalarına yakın buffer boyutları
+    @Param({"8192", "65536"})
+    int bufferSize;
+
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private byte[] chunk;
+    private Path dir;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        chunk = new byte[bufferSize];
+        new Random(42).nextBytes(chunk);
+        dir = Files.createTempDirectory("upload-write-bench");
+        target = dir.resolve("upload.bin");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public VideoService.StoredFile writeAndHash() {
+        long buffers = (long) megabytes * 1024 * 1024 / bufferSize;
+        Flux<DataBuffer> content = Flux.range(0, (int) buffers)
+                .map(i -> bufferFactory.wrap(chunk.clone()));
+        return VideoService.writeFile(content, target, null).block();
+    }
+}
@@ -0,0 +1,106 @@
+package com.videostreaming.loadtest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Just enough HLS parsing to behave like a player against this service:
+ * variants and the audio rendition of a master playlist, and the init
+ * section and segments (optionally byte ranges) of a media playlist.
+ */
+final class HlsPlaylist {
+
+    private static final Pattern BANDWIDTH = Pattern.compile("[:,]BANDWIDTH=(\\d+)");
+    private static final Pattern URI_ATTRIBUTE = Pattern.compile("URI=\"([^\"]+)\"");
+    private static final Pattern BYTERANGE_ATTRIBUTE = Pattern.compile("BYTERANGE=\"(\\d+)@(\\d+)\"");
+
+    /** A byte range {@code [offset, offset + length)}; null range = whole resource. */
+    record Resource(URI uri, Long offset, Long length) {
+
+        String rangeHeader() {
+            return offset == null ? null : "bytes=" + offset + "-" + (offset + length - 1);
+        }
+    }
+
+    record Segment(Resource resource, double durationSeconds) {
+    }
+
+    record Variant(URI uri, long bandwidth, boolean audioOnly) {
+    }
+
+    record Master(List<Variant> variants, URI audio) {
+    }
+
+    record Media(Resource init, List<Segment> segments) {
+    }
+
+    private HlsPlaylist() {
+    }
+
+    static Master parseMaster(URI base, String body) {
+        List<Variant> variants = new ArrayList<>();
+        URI audio = null;
+        Long pendingBandwidth = null;
+        boolean pendingAudioOnly = false;
+        for (String line : body.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("#EXT-X-MEDIA:") && line.contains("TYPE=AUDIO")) {
+                Matcher uri = URI_ATTRIBUTE.matcher(line);
+                if (uri.find() && audio == null) {
+                    audio = base.resolve(uri.group(1));
+                }
+            } else if (line.startsWith("#EXT-X-STREAM-INF:")) {
+                Matcher bandwidth = BANDWIDTH.matcher(line);
+                pendingBandwidth = bandwidth.find() ? Long.parseLong(bandwidth.group(1)) : 0L;
+                pendingAudioOnly = !line.contains("RESOLUTION=");
+            } else if (!line.isEmpty() && !line.startsWith("#") && pendingBandwidth != null) {
+                variants.add(new Variant(base.resolve(line), pendingBandwidth, pendingAudioOnly));
+                pendingBandwidth = null;
+            }
+        }
+        return new Master(variants, audio);
+    }
+
+    static Media parseMedia(URI base, String body) {
+        Resource init = null;
+        List<Segment> segments = new ArrayList<>();
+        double pendingDuration = -1;
+        long[] pendingRange = null;
+        long nextOffset = 0;
+        for (String line : body.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("#EXT-X-MAP:")) {
+                Matcher uri = URI_ATTRIBUTE.matcher(line);
+                Matcher range = BYTERANGE_ATTRIBUTE.matcher(line);
+                if (uri.find()) {
+                    init = range.find()
+                            ? new Resource(base.resolve(uri.group(1)), Long.parseLong(range.group(2)),
+                            Long.parseLong(range.group(1)))
+                            : new Resource(base.resolve(uri.group(1)), null, null);
+                }
+            } else if (line.startsWith("#EXTINF:")) {
+                String value = line.substring("#EXTINF:".length());
+                int comma = value.indexOf(',');
+                pendingDuration = Double.parseDouble(comma >= 0 ? value.substring(0, comma) : value);
+            } else if (line.startsWith("#EXT-X-BYTERANGE:")) {
+                String[] range = line.substring("#EXT-X-BYTERANGE:".length()).split("@");
+                long length = Long.parseLong(range[0]);
+                // Offset verilmezse önceki aralığın sonundan devam eder
+                long offset = range.length > 1 ? Long.parseLong(range[1]) : nextOffset;
+                pendingRange = new long[]{offset, length};
+                nextOffset = offset + length;
+            } else if (!line.isEmpty() && !line.startsWith("#") && pendingDuration >= 0) {
+                Resource resource = pendingRange != null
+                        ? new Resource(base.resolve(line), pendingRange[0], pendingRange[1])
+                        : new Resource(base.resolve(line), null, null);
+                segments.add(new Segment(resource, pendingDuration));
+                pendingDuration = -1;
+                pendingRange = null;
+            }
+        }
+        return new Media(init, segments);
+    }
+}
@@ -0,0 +1,122 @@
+package com.videostreaming.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latencies (time to last byte) and counters, per interval and for
+ * the whole run. Latencies are kept in HDR histograms, so percentiles are
+ * exact to three significant digits without storing samples.
+ */
+final class LoadStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    enum Kind { PLAYLIST, INIT, SEGMENT }
+
+    private final Map<Kind, Recorder> intervalLatency = new ConcurrentHashMap<>();
+    private final Map<Kind, Histogram> totalLatency = new ConcurrentHashMap<>();
+    private final Map<Kind, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder intervalBytes = new LongAdder();
+    private final LongAdder intervalRequests = new LongAdder();
+    private final LongAdder rebuffers = new LongAdder();
+    // Hata: HTTP durum kodu veya istisna sınıfı -> sayı
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder intervalErrors = new LongAdder();
+    final AtomicInteger activeViewers = new AtomicInteger();
+
+    private final long startedAt = System.nanoTime();
+    private long intervalStartedAt = startedAt;
+
+    LoadStats() {
+        for (Kind kind : Kind.values()) {
+            intervalLatency.put(kind, new Recorder(3));
+            totalLatency.put(kind, new Histogram(MAX_LATENCY_MICROS, 3));
+            requests.put(kind, new LongAdder());
+        }
+    }
+
+    void recordRequest(Kind kind, long latencyNanos, long responseBytes) {
+        long micros = Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        intervalLatency.get(kind).recordValue(micros);
+        requests.get(kind).increment();
+        intervalRequests.increment();
+        bytes.add(responseBytes);
+        intervalBytes.add(responseBytes);
+    }
+
+    void recordError(String reason) {
+        errors.computeIfAbsent(reason, key -> new LongAdder()).increment();
+        intervalErrors.increment();
+    }
+
+    // Segment oynatma anına yetişmedi: oynatıcı takıldı
+    void recordRebuffer() {
+        rebuffers.increment();
+    }
+
+    /** Prints one progress line covering the time since the previous call. */
+    synchronized void reportInterval(PrintStream out) {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - intervalStartedAt) / 1e9);
+        intervalStartedAt = now;
+
+        Histogram segments = null;
+        for (Kind kind : Kind.values()) {
+            Histogram interval = intervalLatency.get(kind).getIntervalHistogram();
+            totalLatency.get(kind).add(interval);
+            if (kind == Kind.SEGMENT) {
+                segments = interval;
+            }
+        }
+        out.printf("[%6.0fs] viewers %5d | %8.1f req/s | %8.1f Mbit/s | segment p50 %7.1f ms p99 %7.1f ms | errors %d%n",
+                (now - startedAt) / 1e9, activeViewers.get(),
+                intervalRequests.sumThenReset() / seconds,
+                intervalBytes.sumThenReset() * 8 / seconds / 1e6,
+                millis(segments, 50), millis(segments, 99),
+                intervalErrors.sumThenReset());
+    }
+
+    synchronized void reportSummary(PrintStream out) {
+        reportInterval(out);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        long total = requests.values().stream().mapToLong(LongAdder::sum).sum();
+        long errorCount = errors.values().stream().mapToLong(LongAdder::sum).sum();
+
+        out.println();
+        out.println("=== Summary ===");
+        out.printf("duration        %.0f s%n", seconds);
+        out.printf("requests        %d (%.1f req/s)%n", total, total / seconds);
+        out.printf("throughput      %.1f Mbit/s (%.1f MB total)%n", bytes.sum() * 8 / seconds / 1e6, bytes.sum() / 1e6);
+        out.printf("errors          %d (%.3f%%)%n", errorCount, total + errorCount > 0
+                ? 100.0 * errorCount / (total + errorCount) : 0.0);
+        new TreeMap<>(errors).forEach((reason, count) -> out.printf("  %-28s %d%n", reason, count.sum()));
+        out.printf("rebuffers       %d%n", rebuffers.sum());
+        out.println();
+        out.printf("%-10s %10s %10s %10s %10s %10s%n", "latency", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Kind kind : Kind.values()) {
+            Histogram histogram = totalLatency.get(kind);
+            out.printf("%-10s %10d %10.1f %10.1f %10.1f %10.1f%n", kind.name().toLowerCase(),
+                    histogram.getTotalCount(), millis(histogram, 50), millis(histogram, 90),
+                    millis(histogram, 99), histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    long errorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram == null || histogram.getTotalCount() == 0
+                ? 0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.videostreaming.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Load test driver: many simulated HLS players against one node.
+ *
+ * <pre>
+ * ./gradlew loadTest -Ploadtest.fixture=sample.mp4 -Ploadtest.viewers=500 -Ploadtest.duration=10m
+ * ./gradlew loadTest -Ploadtest.videoId=42 -Ploadtest.variant=top
+ * </pre>
+ *
+ * With a fixture the video is uploaded first and the driver waits (on the
+ * processing event stream) until it is READY. Players are then started
+ * evenly over the ramp-up and watch until the end of the run. A progress
+ * line is printed every interval and a latency summary at the end; the
+ * exit code is non-zero if any request failed.
+ */
+public final class LoadTest {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<JsonNode>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+
+        // Her izleyicinin aynı anda en fazla iki isteği olur (video + ses)
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(config.viewers() * 2)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = WebClient.builder()
+                .baseUrl(config.baseUrl())
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+
+        try {
+            long videoId = config.videoId() != null ? config.videoId() : uploadFixture(client, config);
+            URI master = URI.create(config.baseUrl() + "/api/videos/" + videoId + "/hls/playlist.m3u8");
+            System.out.printf("Playing %s with %d viewers (ramp-up %s, duration %s, variant %s)%n",
+                    master, config.viewers(), config.rampUp(), config.duration(), config.variant());
+
+            LoadStats stats = new LoadStats();
+            int exitCode = run(client, config, stats, master);
+            System.exit(exitCode);
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    private static int run(WebClient client, LoadTestConfig config, LoadStats stats, URI master) {
+        long endNanos = System.nanoTime() + config.rampUp().plus(config.duration()).toNanos();
+        long rampStepNanos = config.rampUp().toNanos() / Math.max(1, config.viewers());
+
+        Disposable reporter = Flux.interval(config.reportInterval())
+                .subscribe(tick -> stats.reportInterval(System.out));
+        try {
+            Flux.range(0, config.viewers())
+                    .flatMap(viewer -> Mono.delay(Duration.ofNanos(rampStepNanos * viewer))
+                                    .then(new Player(client, stats, config, master, endNanos).watch()),
+                            config.viewers())
+                    .blockLast();
+        } finally {
+            reporter.dispose();
+        }
+        stats.reportSummary(System.out);
+        return stats.errorCount() > 0 ? 1 : 0;
+    }
+
+    private static long uploadFixture(WebClient client, LoadTestConfig config) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("title", "loadtest " + config.fixture().getFileName());
+        body.part("file", new FileSystemResource(config.fixture()));
+
+        System.out.printf("Uploading %s%n", config.fixture());
+        JsonNode video = client.post()
+                .uri("/api/videos/upload")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .block();
+        if (video == null || !video.hasNonNull("id")) {
+            throw new IllegalStateException("Upload returned no video");
+        }
+        long videoId = video.get("id").asLong();
+
+        System.out.printf("Waiting for video %d to be processed%n", videoId);
+        String status = client.get()
+                .uri("/api/videos/{id}/events", videoId)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE)
+                .mapNotNull(ServerSentEvent::data)
+                .map(event -> event.path("status").asText())
+                .filter(value -> "READY".equals(value) || "ERROR".equals(value))
+                .next()
+                .timeout(config.readyTimeout())
+                .block();
+        if (!"READY".equals(status)) {
+            throw new IllegalStateException("Video " + videoId + " ended in status " + status);
+        }
+        return videoId;
+    }
+}
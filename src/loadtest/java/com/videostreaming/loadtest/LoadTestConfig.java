@@ -0,0 +1,48 @@
+package com.videostreaming.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties (the
+ * Gradle {@code loadTest} task passes {@code -Ploadtest.*} through).
+ *
+ * @param baseUrl        node under test
+ * @param videoId        play an existing READY video instead of uploading
+ * @param fixture        video file to upload when no {@code videoId} is given
+ * @param viewers        concurrent players
+ * @param rampUp         time over which players are started
+ * @param duration       how long players keep watching after the ramp-up
+ * @param variant        rendition choice: {@code random}, {@code top} or {@code lowest}
+ * @param bufferSegments segments a player keeps buffered ahead of playback
+ * @param reportInterval interval between progress lines
+ * @param readyTimeout   how long to wait for the uploaded fixture to be processed
+ */
+record LoadTestConfig(String baseUrl, Long videoId, Path fixture, int viewers, Duration rampUp,
+                      Duration duration, String variant, int bufferSegments, Duration reportInterval,
+                      Duration readyTimeout) {
+
+    static LoadTestConfig fromSystemProperties() {
+        String videoId = property("videoId", "");
+        String fixture = property("fixture", "");
+        if (videoId.isBlank() && fixture.isBlank()) {
+            throw new IllegalArgumentException("Set loadtest.videoId or loadtest.fixture");
+        }
+        return new LoadTestConfig(
+                property("baseUrl", "http://localhost:8080"),
+                videoId.isBlank() ? null : Long.valueOf(videoId),
+                fixture.isBlank() ? null : Paths.get(fixture),
+                Integer.parseInt(property("viewers", "100")),
+                Duration.parse("PT" + property("rampUp", "30s")),
+                Duration.parse("PT" + property("duration", "5m")),
+                property("variant", "random"),
+                Integer.parseInt(property("bufferSegments", "3")),
+                Duration.parse("PT" + property("reportInterval", "10s")),
+                Duration.parse("PT" + property("readyTimeout", "30m")));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue).trim();
+    }
+}
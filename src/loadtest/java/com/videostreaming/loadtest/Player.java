@@ -0,0 +1,202 @@
+package com.videostreaming.loadtest;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * One simulated viewer. Like hls.js / AVPlayer on a VOD stream it loads the
+ * master playlist, picks a variant, loads its media playlist (and the audio
+ * rendition's), then downloads segments one after another, never more than
+ * {@code bufferSegments} ahead of the playhead. Playback starts after the
+ * first segment; a segment that arrives after the playhead reached it is a
+ * rebuffer. At the end of the video the player starts over, until the test
+ * ends.
+ */
+final class Player {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final WebClient client;
+    private final LoadStats stats;
+    private final LoadTestConfig config;
+    private final URI masterUri;
+    private final long endNanos;
+
+    Player(WebClient client, LoadStats stats, LoadTestConfig config, URI masterUri, long endNanos) {
+        this.client = client;
+        this.stats = stats;
+        this.config = config;
+        this.masterUri = masterUri;
+        this.endNanos = endNanos;
+    }
+
+    Mono<Void> watch() {
+        return Mono.defer(() -> {
+                    stats.activeViewers.incrementAndGet();
+                    return fetchText(masterUri)
+                            .map(body -> HlsPlaylist.parseMaster(masterUri, body))
+                            .flatMap(this::playMaster);
+                })
+                .doFinally(signal -> stats.activeViewers.decrementAndGet())
+                // Playlist alınamadıysa biraz bekleyip baştan dene
+                .onErrorResume(e -> Mono.delay(RETRY_DELAY).then(Mono.defer(this::watchAgain)));
+    }
+
+    private Mono<Void> watchAgain() {
+        return System.nanoTime() < endNanos ? watch() : Mono.empty();
+    }
+
+    private Mono<Void> playMaster(HlsPlaylist.Master master) {
+        HlsPlaylist.Variant variant = chooseVariant(master.variants());
+        Mono<Void> video = playMedia(variant.uri());
+        if (variant.audioOnly() || master.audio() == null) {
+            return video;
+        }
+        return Mono.when(video, playMedia(master.audio()));
+    }
+
+    private HlsPlaylist.Variant chooseVariant(List<HlsPlaylist.Variant> variants) {
+        List<HlsPlaylist.Variant> video = variants.stream().filter(variant -> !variant.audioOnly()).toList();
+        List<HlsPlaylist.Variant> candidates = video.isEmpty() ? variants : video;
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("Master playlist has no variants");
+        }
+        return switch (config.variant()) {
+            case "top" -> candidates.stream().max((a, b) -> Long.compare(a.bandwidth(), b.bandwidth())).get();
+            case "lowest" -> candidates.stream().min((a, b) -> Long.compare(a.bandwidth(), b.bandwidth())).get();
+            default -> candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        };
+    }
+
+    private Mono<Void> playMedia(URI mediaUri) {
+        return fetchText(mediaUri)
+                .map(body -> HlsPlaylist.parseMedia(mediaUri, body))
+                .flatMap(media -> {
+                    if (media.segments().isEmpty()) {
+                        return Mono.error(new IllegalStateException("Empty media playlist " + mediaUri));
+                    }
+                    Mono<Long> init = media.init() != null
+                            ? fetch(LoadStats.Kind.INIT, media.init())
+                            : Mono.just(0L);
+                    Playback playback = new Playback(media.segments());
+                    return init.then(Mono.defer(playback::next)
+                            .repeat(() -> System.nanoTime() < endNanos)
+                            .then());
+                });
+    }
+
+    // Bir medya playlist'inin oynatma durumu; segmentler sırayla indirildiği için eşzamanlı erişim yok
+    private final class Playback {
+
+        private final List<HlsPlaylist.Segment> segments;
+        private final AtomicInteger index = new AtomicInteger();
+        private long playStartNanos = -1;
+        private double bufferedSeconds; // indirilen toplam medya süresi
+
+        Playback(List<HlsPlaylist.Segment> segments) {
+            this.segments = segments;
+        }
+
+        Mono<Void> next() {
+            HlsPlaylist.Segment segment = segments.get(index.getAndIncrement() % segments.size());
+            Duration wait = Duration.ZERO;
+            if (playStartNanos >= 0) {
+                double ahead = bufferedSeconds - played(System.nanoTime());
+                double target = config.bufferSegments() * segment.durationSeconds();
+                if (ahead > target) {
+                    wait = Duration.ofMillis((long) ((ahead - target) * 1000));
+                }
+            }
+            return Mono.delay(wait)
+                    .then(fetch(LoadStats.Kind.SEGMENT, segment.resource()))
+                    .doOnNext(bytes -> downloaded(segment))
+                    // Hatalı segment atlanır (oynatıcı bir sonrakini dener)
+                    .onErrorResume(e -> Mono.delay(RETRY_DELAY).then(Mono.empty()))
+                    .then();
+        }
+
+        private void downloaded(HlsPlaylist.Segment segment) {
+            long now = System.nanoTime();
+            if (playStartNanos < 0) {
+                playStartNanos = now;
+            } else if (played(now) > bufferedSeconds) {
+                // Tampon boşalmıştı: oynatma, tamponun bittiği yerden şimdi devam eder
+                stats.recordRebuffer();
+                playStartNanos = now - (long) (bufferedSeconds * 1e9);
+            }
+            bufferedSeconds += segment.durationSeconds();
+        }
+
+        private double played(long now) {
+            return (now - playStartNanos) / 1e9;
+        }
+    }
+
+    private Mono<String> fetchText(URI uri) {
+        return exchange(LoadStats.Kind.PLAYLIST, new HlsPlaylist.Resource(uri, null, null),
+                response -> response.bodyToMono(String.class).defaultIfEmpty(""),
+                body -> body.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    // Gövde parça parça sayılıp bırakılır; segmentler bellekte tutulmaz
+    private Mono<Long> fetch(LoadStats.Kind kind, HlsPlaylist.Resource resource) {
+        return exchange(kind, resource,
+                response -> response.bodyToFlux(DataBuffer.class)
+                        .reduce(0L, (total, buffer) -> {
+                            long size = total + buffer.readableByteCount();
+                            DataBufferUtils.release(buffer);
+                            return size;
+                        }),
+                size -> size);
+    }
+
+    // Gecikme, isteğin gönderilmesinden son baytın gelmesine kadar ölçülür
+    private <T> Mono<T> exchange(LoadStats.Kind kind, HlsPlaylist.Resource resource,
+                                 Function<ClientResponse, Mono<T>> body, ToLongFunction<T> size) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return client.get()
+                    .uri(resource.uri())
+                    .headers(headers -> {
+                        if (resource.rangeHeader() != null) {
+                            headers.set(HttpHeaders.RANGE, resource.rangeHeader());
+                        }
+                    })
+                    .exchangeToMono(response -> {
+                        if (!response.statusCode().is2xxSuccessful()) {
+                            int status = response.statusCode().value();
+                            return response.releaseBody()
+                                    .then(Mono.error(new HttpStatusException(status, resource.uri())));
+                        }
+                        return body.apply(response);
+                    })
+                    .doOnNext(result -> stats.recordRequest(kind, System.nanoTime() - started, size.applyAsLong(result)))
+                    .doOnError(e -> stats.recordError(e instanceof HttpStatusException http
+                            ? "HTTP " + http.status
+                            : e.getClass().getSimpleName()));
+        });
+    }
+
+    private static final class HttpStatusException extends RuntimeException {
+
+        private final int status;
+
+        HttpStatusException(int status, URI uri) {
+            super("HTTP " + status + " for " + uri, null, false, false);
+            this.status = status;
+        }
+    }
+}
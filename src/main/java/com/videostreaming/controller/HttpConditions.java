@@ -0,0 +1,74 @@
+package com.videostreaming.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Validators and request preconditions for the processed file endpoints:
+ * strong ETags, If-None-Match / If-Modified-Since, If-Range and single byte
+ * ranges. Validators are derived from data that is the same on every node
+ * (output path, file size, processing time from the database), never from
+ * the times of a local copy, so caches and resumed downloads validate
+ * against any node.
+ */
+final class HttpConditions {
+
+    private HttpConditions() {
+    }
+
+    // Çıktı dosyaları bir kez yazılır ve değişmez: yol + boyut + işleme zamanı içeriği tanımlar.
+    // String.hashCode JLS'de tanımlı, her JVM'de aynı
+    static String etag(String cmafPath, String relativePath, long length, long lastModified) {
+        return "\"" + Long.toHexString(lastModified / 1000) + "-"
+                + Integer.toHexString((cmafPath + "/" + relativePath).hashCode()) + "-"
+                + Long.toHexString(length) + "\"";
+    }
+
+    // If-None-Match varsa If-Modified-Since'e bakılmaz (RFC 9110 13.2.2)
+    static boolean isNotModified(HttpHeaders headers, String etag, long lastModified) {
+        try {
+            List<String> ifNoneMatch = headers.getIfNoneMatch();
+            if (!ifNoneMatch.isEmpty()) {
+                // Zayıf karşılaştırma: W/ öneki yok sayılır
+                return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*")
+                        || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag));
+            }
+            long ifModifiedSince = headers.getIfModifiedSince();
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false; // bozuk başlık: koşulsuz yanıt
+        }
+    }
+
+    // If-Range: güçlü ETag karşılaştırması veya birebir Last-Modified tarihi
+    static boolean ifRangeMatches(HttpHeaders headers, String etag, long lastModified) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond()
+                    == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Yalnızca tek aralık desteklenir; bozuk veya çok aralıklı başlık yok sayılır (tam dosya)
+    static HttpRange singleRange(HttpHeaders headers) {
+        try {
+            List<HttpRange> ranges = headers.getRange();
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
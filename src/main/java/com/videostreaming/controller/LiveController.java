@@ -0,0 +1,182 @@
+package com.videostreaming.controller;
+
+import com.videostreaming.service.LiveStream;
+import com.videostreaming.service.LiveStreamService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Live streams: LL-HLS media playlist with parts and blocking reload, and a
+ * dynamic DASH manifest whose in-progress segments are sent with chunked
+ * transfer encoding as their parts are produced.
+ */
+@RestController
+@RequestMapping("/api/live")
+@CrossOrigin(origins = "*", allowedHeaders = "*", exposedHeaders = HttpHeaders.LOCATION,
+        methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.DELETE, RequestMethod.OPTIONS})
+public class LiveController {
+
+    private static final MediaType HLS_PLAYLIST = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType DASH_MANIFEST = MediaType.parseMediaType("application/dash+xml");
+    private static final MediaType SEGMENT = MediaType.parseMediaType("video/iso.segment");
+
+    private final LiveStreamService liveStreamService;
+
+    public LiveController(LiveStreamService liveStreamService) {
+        this.liveStreamService = liveStreamService;
+    }
+
+    // source: depolama dizinindeki bir dosya veya rtmp/srt/udp/rtp adresi
+    @PostMapping
+    public Mono<ResponseEntity<LiveStream.Status>> startStream(
+            @RequestParam String name,
+            @RequestParam String source,
+            @RequestParam(defaultValue = "false") boolean loop) {
+
+        return Mono.fromCallable(() -> liveStreamService.start(name, source, loop))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(stream -> ResponseEntity.created(URI.create("/api/live/" + name + "/playlist.m3u8"))
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .body(stream.status()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(
+                                e instanceof IllegalStateException ? HttpStatus.CONFLICT
+                                        : e instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                                        : HttpStatus.INTERNAL_SERVER_ERROR)
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .build()));
+    }
+
+    @GetMapping
+    public Flux<LiveStream.Status> getStreams() {
+        return Flux.fromIterable(liveStreamService.list()).map(LiveStream::status);
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<Void> stopStream(@PathVariable String name) {
+        return (liveStreamService.stop(name) ? ResponseEntity.ok() : ResponseEntity.notFound())
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .build();
+    }
+
+    // DASH UTCTiming (urn:mpeg:dash:utc:http-iso:2014) için sunucu saati
+    @GetMapping("/time")
+    public ResponseEntity<String> getServerTime() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(Instant.now().toString());
+    }
+
+    // _HLS_msn/_HLS_part verilirse istenen part hazır olana kadar yanıt bekletilir (blocking reload)
+    @GetMapping("/{name}/playlist.m3u8")
+    public Mono<ResponseEntity<String>> getHlsPlaylist(
+            @PathVariable String name,
+            @RequestParam(value = "_HLS_msn", required = false) Long msn,
+            @RequestParam(value = "_HLS_part", required = false) Integer part) {
+
+        if (msn == null && part != null) {
+            return Mono.just(status(HttpStatus.BAD_REQUEST));
+        }
+        return liveStreamService.get(name)
+                .flatMap(stream -> (msn != null ? stream.awaitPart(msn, part, blockingTimeout()) : Mono.<Void>empty())
+                        .then(Mono.fromSupplier(() -> ResponseEntity.ok()
+                                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                                .header(HttpHeaders.CACHE_CONTROL, msn != null ? "max-age=60" : "no-cache")
+                                .contentType(HLS_PLAYLIST)
+                                .body(stream.renderHlsPlaylist()))))
+                .onErrorResume(e -> Mono.just(blockingError(e)))
+                .defaultIfEmpty(status(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/{name}/manifest.mpd")
+    public Mono<ResponseEntity<String>> getDashManifest(@PathVariable String name) {
+        return liveStreamService.get(name)
+                .map(stream -> ResponseEntity.ok()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                        .contentType(DASH_MANIFEST)
+                        .body(stream.renderDashManifest()))
+                .defaultIfEmpty(status(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/{name}/init.mp4")
+    public Mono<ResponseEntity<byte[]>> getInitSegment(@PathVariable String name) {
+        return liveStreamService.get(name)
+                .flatMap(stream -> Mono.justOrEmpty(stream.getInit()))
+                .map(init -> ResponseEntity.ok()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
+                        .contentType(MediaType.parseMediaType("video/mp4"))
+                        .body(init))
+                .defaultIfEmpty(status(HttpStatus.NOT_FOUND));
+    }
+
+    // Preload hint ile önceden istenen part, üretilene kadar bekletilir
+    @GetMapping("/{name}/part_{msn:\\d+}.{part:\\d+}.m4s")
+    public Mono<ResponseEntity<byte[]>> getPart(
+            @PathVariable String name,
+            @PathVariable long msn,
+            @PathVariable int part) {
+
+        return liveStreamService.get(name)
+                .flatMap(stream -> stream.getPart(msn, part, blockingTimeout()))
+                .map(data -> ResponseEntity.ok()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+                        .contentType(SEGMENT)
+                        .body(data))
+                .onErrorResume(e -> Mono.just(blockingError(e)))
+                .defaultIfEmpty(status(HttpStatus.NOT_FOUND));
+    }
+
+    // Tamamlanmamış segment partlar geldikçe chunked olarak yazılır (LL-DASH)
+    @GetMapping("/{name}/segment_{msn:\\d+}.m4s")
+    public Mono<Void> getSegment(
+            @PathVariable String name,
+            @PathVariable long msn,
+            ServerHttpResponse response) {
+
+        response.getHeaders().set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        return liveStreamService.get(name)
+                .map(stream -> stream.streamSegment(msn))
+                .defaultIfEmpty(Flux.empty())
+                .flatMap(parts -> parts.switchOnFirst((first, all) -> {
+                    if (!first.hasValue()) {
+                        response.setStatusCode(HttpStatus.NOT_FOUND);
+                        return response.setComplete();
+                    }
+                    response.getHeaders().setContentType(SEGMENT);
+                    response.getHeaders().setCacheControl("max-age=60");
+                    return response.writeWith(all.map(bytes -> response.bufferFactory().wrap(bytes)));
+                }).then());
+    }
+
+    private Duration blockingTimeout() {
+        return Duration.ofSeconds(liveStreamService.getSegmentSeconds() * 3L);
+    }
+
+    private <T> ResponseEntity<T> blockingError(Throwable e) {
+        return status(e instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                : e instanceof TimeoutException ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private <T> ResponseEntity<T> status(HttpStatus status) {
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .build();
+    }
+}
@@ -1,31 +1,80 @@
 package com.videostreaming.controller;
 
 
+import com.videostreaming.model.UploadSession;
 import com.videostreaming.model.Video;
+import com.videostreaming.model.VideoPage;
+import com.videostreaming.service.HotSegmentCache;
+import com.videostreaming.service.ManifestRenderer;
+import com.videostreaming.service.ProcessingEventHub;
+import com.videostreaming.service.SegmentFileCache;
+import com.videostreaming.service.SegmentPrefetcher;
+import com.videostreaming.service.ThumbnailSprites;
+import com.videostreaming.service.TranscodingQueueFullException;
+import com.videostreaming.service.VideoLocationCache;
 import com.videostreaming.service.VideoService;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/videos")
-@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.DELETE, RequestMethod.OPTIONS})
+@CrossOrigin(origins = "*", allowedHeaders = "*",
+        exposedHeaders = {HttpHeaders.LOCATION, HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES, HttpHeaders.ETAG,
+                VideoController.UPLOAD_OFFSET, VideoController.UPLOAD_LENGTH},
+        methods = {RequestMethod.GET, RequestMethod.HEAD, RequestMethod.POST, RequestMethod.PATCH,
+                RequestMethod.DELETE, RequestMethod.OPTIONS})
 public class VideoController {
 
+    static final String UPLOAD_OFFSET = "Upload-Offset";
+    static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+    // Segment ve init dosyaları yeniden yazılmaz; manifest'ler ETag ile yeniden doğrulanır
+    private static final String MEDIA_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String MANIFEST_CACHE_CONTROL = "public, max-age=3600";
+
     private final VideoService videoService;
+    private final SegmentFileCache segmentFileCache;
+    private final HotSegmentCache hotSegmentCache;
+    private final VideoLocationCache videoLocationCache;
+    private final ManifestRenderer manifestRenderer;
+    private final SegmentPrefetcher segmentPrefetcher;
+    private final ProcessingEventHub eventHub;
+    private final Duration eventHeartbeat;
 
-    public VideoController(VideoService videoService) {
+    public VideoController(VideoService videoService, SegmentFileCache segmentFileCache,
+                           HotSegmentCache hotSegmentCache, VideoLocationCache videoLocationCache,
+                           ManifestRenderer manifestRenderer, SegmentPrefetcher segmentPrefetcher,
+                           ProcessingEventHub eventHub,
+                           @Value("${video.events.heartbeat:15s}") Duration eventHeartbeat) {
         this.videoService = videoService;
+        this.segmentFileCache = segmentFileCache;
+        this.hotSegmentCache = hotSegmentCache;
+        this.videoLocationCache = videoLocationCache;
+        this.manifestRenderer = manifestRenderer;
+        this.segmentPrefetcher = segmentPrefetcher;
+        this.eventHub = eventHub;
+        this.eventHeartbeat = eventHeartbeat;
     }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -37,14 +86,79 @@ public class VideoController {
                 .map(video -> ResponseEntity.ok()
                         .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
                         .body(video))
+                .onErrorResume(TranscodingQueueFullException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                                .<Video>build()))
                 .onErrorReturn(ResponseEntity.badRequest()
                         .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
                         .build());
     }
 
+    // Resumable upload: POST ile oturum aç, parçaları PATCH + Upload-Offset ile gönder,
+    // HEAD ile kaldığın yeri sorgula
+    @PostMapping("/uploads")
+    public Mono<ResponseEntity<UploadSession>> createUploadSession(
+            @RequestParam String title,
+            @RequestParam String filename,
+            @RequestParam long size) {
+
+        return videoService.createUploadSession(title, filename, size)
+                .map(session -> ResponseEntity.created(URI.create("/api/videos/uploads/" + session.getId()))
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .header(UPLOAD_OFFSET, "0")
+                        .header(UPLOAD_LENGTH, String.valueOf(session.getTotalSize()))
+                        .body(session))
+                .onErrorResume(e -> Mono.just(uploadError(e)));
+    }
+
+    @GetMapping("/uploads/{sessionId}")
+    public Mono<ResponseEntity<UploadSession>> getUploadSession(@PathVariable Long sessionId) {
+        return videoService.getUploadSession(sessionId)
+                .map(session -> uploadResponse(session).body(session))
+                .defaultIfEmpty(ResponseEntity.notFound()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .build());
+    }
+
+    @RequestMapping(value = "/uploads/{sessionId}", method = RequestMethod.HEAD)
+    public Mono<ResponseEntity<Void>> getUploadOffset(@PathVariable Long sessionId) {
+        return videoService.getUploadSession(sessionId)
+                .map(session -> uploadResponse(session).<Void>build())
+                .defaultIfEmpty(ResponseEntity.notFound()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .build());
+    }
+
+    @PatchMapping("/uploads/{sessionId}")
+    public Mono<ResponseEntity<UploadSession>> uploadChunk(
+            @PathVariable Long sessionId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            @RequestBody Flux<DataBuffer> content) {
+
+        return videoService.writeUploadChunk(sessionId, offset, content)
+                .map(session -> uploadResponse(session).body(session))
+                .defaultIfEmpty(ResponseEntity.notFound()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .build())
+                .onErrorResume(e -> Mono.just(uploadError(e)));
+    }
+
+    // En yeniden eskiye sayfalı liste; sonraki sayfa için nextCursor -> cursor
     @GetMapping
-    public Flux<Video> getAllVideos() {
-        return videoService.getAllVideos();
+    public Mono<ResponseEntity<VideoPage>> listVideos(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        return videoService.listVideos(status, cursor, limit)
+                .map(page -> ResponseEntity.ok()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .body(page))
+                .onErrorReturn(IllegalArgumentException.class, ResponseEntity.badRequest()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .build());
     }
 
     @GetMapping("/{id}")
@@ -58,6 +172,45 @@ public class VideoController {
                         .build());
     }
 
+    /**
+     * Server-sent events for one video: its current status first, then every
+     * status change and PROCESSING progress update. The stream ends after
+     * READY or ERROR. Comment lines are sent as heartbeats so idle
+     * connections survive proxies.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<ServerSentEvent<ProcessingEventHub.Event>>>> getProcessingEvents(
+            @PathVariable Long id) {
+
+        return videoLocationCache.get(id)
+                .map(location -> ResponseEntity.ok()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                        .body(processingEvents(id)))
+                .defaultIfEmpty(ResponseEntity.notFound()
+                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                        .build());
+    }
+
+    private Flux<ServerSentEvent<ProcessingEventHub.Event>> processingEvents(Long id) {
+        // merge önce canlı akışa abone olur, sonra güncel durumu okur: arada olan geçiş kaçmaz.
+        // Canlı bir olay okumadan önce gelirse (daha yeni) okunan durum gönderilmez
+        AtomicBoolean liveSeen = new AtomicBoolean();
+        Flux<ProcessingEventHub.Event> live = eventHub.events(id).doOnNext(event -> liveSeen.set(true));
+        Mono<ProcessingEventHub.Event> current = videoService.getVideoById(id)
+                .map(video -> ProcessingEventHub.Event.ofStatus(video.getId(), video.getStatus()))
+                .filter(event -> !liveSeen.get());
+
+        Flux<ServerSentEvent<ProcessingEventHub.Event>> events = Flux.merge(live, current)
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.progress() != null ? "progress" : "status")
+                        .build());
+        Flux<ServerSentEvent<ProcessingEventHub.Event>> heartbeats = Flux.interval(eventHeartbeat)
+                .map(tick -> ServerSentEvent.<ProcessingEventHub.Event>builder().comment("keepalive").build());
+        return Flux.merge(events, heartbeats)
+                .takeUntil(event -> event.data() != null && event.data().isTerminal());
+    }
+
     @DeleteMapping("/{id}")
     public Mono<ResponseEntity<Void>> deleteVideo(@PathVariable Long id) {
         return videoService.deleteVideo(id)
@@ -71,150 +224,85 @@ public class VideoController {
 
     // HLS Playlist
     @GetMapping("/{id}/hls/playlist.m3u8")
-    public Mono<ResponseEntity<?>> getHlsPlaylist(@PathVariable Long id) {
-        return videoService.getVideoById(id)
-                .map(video -> {
-                    if (video.getHlsManifestPath() != null) {
-                        Path playlistPath = Paths.get(video.getHlsManifestPath());
-                        if (Files.exists(playlistPath)) {
-                            Resource resource = new FileSystemResource(playlistPath);
-                            return ResponseEntity.ok()
-                                    .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
-                                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
-                                    .body(resource);
-                        }
-                    }
-                    return ResponseEntity.<Resource>notFound()
-                            .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                            .build();
-                })
-                .defaultIfEmpty(ResponseEntity.<Resource>notFound()
-                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                        .build());
+    public Mono<Void> getHlsPlaylist(@PathVariable Long id, ServerHttpRequest request,
+                                     ServerHttpResponse response) {
+        return serveProcessedFile(id, "playlist.m3u8", request, response);
     }
 
     // DASH Manifest
     @GetMapping("/{id}/dash/manifest.mpd")
-    public Mono<ResponseEntity<?>> getDashManifest(@PathVariable Long id) {
-        return videoService.getVideoById(id)
-                .map(video -> {
-                    if (video.getDashManifestPath() != null) {
-                        Path manifestPath = Paths.get(video.getDashManifestPath());
-                        if (Files.exists(manifestPath)) {
-                            Resource resource = new FileSystemResource(manifestPath);
-                            return ResponseEntity.ok()
-                                    .contentType(MediaType.parseMediaType("application/dash+xml"))
-                                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
-                                    .body(resource);
-                        }
-                    }
-                    return ResponseEntity.<Resource>notFound()
-                            .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                            .build();
-                })
-                .defaultIfEmpty(ResponseEntity.<Resource>notFound()
-                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                        .build());
+    public Mono<Void> getDashManifest(@PathVariable Long id, ServerHttpRequest request,
+                                      ServerHttpResponse response) {
+        return serveProcessedFile(id, "manifest.mpd", request, response);
     }
 
     // HLS Files (init.mp4, segments)
     @GetMapping("/{id}/hls/{filename:.+}")
-    public Mono<ResponseEntity<?>> getHlsFile(
+    public Mono<Void> getHlsFile(
             @PathVariable Long id,
-            @PathVariable String filename) {
+            @PathVariable String filename,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
 
-        return videoService.getVideoById(id)
-                .map(video -> {
-                    if (video.getCmafPath() != null) {
-                        Path filePath = Paths.get(video.getCmafPath(), filename);
-                        if (Files.exists(filePath) && filePath.startsWith(Paths.get(video.getCmafPath()))) {
-                            Resource resource = new FileSystemResource(filePath);
-
-                            String contentType = determineContentType(filename);
-
-                            return ResponseEntity.ok()
-                                    .contentType(MediaType.parseMediaType(contentType))
-                                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
-                                    .body(resource);
-                        }
-                    }
-                    return ResponseEntity.<Resource>notFound()
-                            .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                            .build();
-                })
-                .defaultIfEmpty(ResponseEntity.<Resource>notFound()
-                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                        .build());
+        return serveProcessedFile(id, filename, request, response);
+    }
+
+    // HLS rendition files (media playlist, init.mp4, segments)
+    @GetMapping("/{id}/hls/{rendition}/{filename:.+}")
+    public Mono<Void> getHlsRenditionFile(
+            @PathVariable Long id,
+            @PathVariable String rendition,
+            @PathVariable String filename,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+
+        return serveProcessedFile(id, rendition + "/" + filename, request, response);
     }
 
     // DASH Files (init files, segments)
     @GetMapping("/{id}/dash/{filename:.+}")
-    public Mono<ResponseEntity<?>> getDashFile(
+    public Mono<Void> getDashFile(
             @PathVariable Long id,
-            @PathVariable String filename) {
+            @PathVariable String filename,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
 
-        // Manifest ayrı endpoint'te handle ediliyor
-        if ("manifest.mpd".equals(filename)) {
-            return getDashManifest(id);
-        }
+        return serveProcessedFile(id, filename, request, response);
+    }
 
-        return videoService.getVideoById(id)
-                .map(video -> {
-                    if (video.getCmafPath() != null) {
-                        Path filePath = Paths.get(video.getCmafPath(), filename);
-                        if (Files.exists(filePath) && filePath.startsWith(Paths.get(video.getCmafPath()))) {
-                            Resource resource = new FileSystemResource(filePath);
-
-                            String contentType = determineContentType(filename);
-
-                            return ResponseEntity.ok()
-                                    .contentType(MediaType.parseMediaType(contentType))
-                                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
-                                    .body(resource);
-                        }
-                    }
-                    return ResponseEntity.<Resource>notFound()
-                            .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                            .build();
-                })
-                .defaultIfEmpty(ResponseEntity.<Resource>notFound()
-                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                        .build());
+    // DASH rendition files (init files, segments)
+    @GetMapping("/{id}/dash/{rendition}/{filename:.+}")
+    public Mono<Void> getDashRenditionFile(
+            @PathVariable Long id,
+            @PathVariable String rendition,
+            @PathVariable String filename,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+
+        return serveProcessedFile(id, rendition + "/" + filename, request, response);
+    }
+
+    // Trickplay küçük resimleri: sprite sayfaları, WebVTT izi ve HLS image playlist'i.
+    // Sayfalar ve VTT değişmez, uzun süre önbelleğe alınır
+    @GetMapping("/{id}/thumbnails/{filename:.+}")
+    public Mono<Void> getThumbnailFile(
+            @PathVariable Long id,
+            @PathVariable String filename,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+
+        return serveProcessedFile(id, ThumbnailSprites.DIR + "/" + filename, request, response);
     }
 
     // Generic file serving (fallback)
     @GetMapping("/{id}/files/{filename:.+}")
-    public Mono<ResponseEntity<?>> getFile(
+    public Mono<Void> getFile(
             @PathVariable Long id,
-            @PathVariable String filename) {
+            @PathVariable String filename,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
 
-        return videoService.getVideoById(id)
-                .map(video -> {
-                    if (video.getCmafPath() != null) {
-                        Path filePath = Paths.get(video.getCmafPath(), filename);
-                        if (Files.exists(filePath) && filePath.startsWith(Paths.get(video.getCmafPath()))) {
-                            Resource resource = new FileSystemResource(filePath);
-
-                            String contentType = determineContentType(filename);
-
-                            return ResponseEntity.ok()
-                                    .contentType(MediaType.parseMediaType(contentType))
-                                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
-                                    .body(resource);
-                        }
-                    }
-                    return ResponseEntity.<Resource>notFound()
-                            .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                            .build();
-                })
-                .defaultIfEmpty(ResponseEntity.<Resource>notFound()
-                        .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                        .build());
+        return serveProcessedFile(id, filename, request, response);
     }
 
     // OPTIONS preflight için
@@ -222,11 +310,154 @@ public class VideoController {
     public ResponseEntity<Void> handleOptions() {
         return ResponseEntity.ok()
                 .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
-                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, POST, DELETE, OPTIONS")
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, POST, PATCH, DELETE, OPTIONS")
                 .header(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, "*")
                 .build();
     }
 
+    private ResponseEntity.BodyBuilder uploadResponse(UploadSession session) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .header(UPLOAD_OFFSET, String.valueOf(session.getUploadOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getTotalSize()));
+    }
+
+    private <T> ResponseEntity<T> uploadError(Throwable e) {
+        if (e instanceof TranscodingQueueFullException queueFull) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(queueFull.getRetryAfterSeconds()))
+                    .build();
+        }
+        HttpStatus status = e instanceof IllegalStateException ? HttpStatus.CONFLICT
+                : e instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*")
+                .build();
+    }
+
+    // Dosya çözümlemesi (stat) önbellekten ya da boundedElastic üzerinde yapılır.
+    // Sık istenen küçük dosyalar off-heap önbellekten, diğerleri sendfile ile
+    // (Netty FileRegion) kopyasız yazılır
+    private Mono<Void> serveProcessedFile(Long id, String relativePath, ServerHttpRequest request,
+                                          ServerHttpResponse response) {
+        response.getHeaders().set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+
+        return videoLocationCache.get(id)
+                .filter(location -> location.cmafPath() != null)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(found -> {
+                    if (found.isEmpty()) {
+                        response.setStatusCode(HttpStatus.NOT_FOUND);
+                        return response.setComplete();
+                    }
+                    VideoLocationCache.VideoLocation location = found.get();
+                    if (!ManifestRenderer.isManifest(relativePath)) {
+                        return serveFile(location, relativePath, request, response);
+                    }
+                    // Oynatıcı hemen ardından init ve ilk segmentleri isteyecek: arka planda ısıt
+                    segmentPrefetcher.prefetch(id, location.cmafPath(), relativePath);
+                    // Manifest'ler fragment index'ten üretilir; index'i olmayan eski videolar diskten
+                    return manifestRenderer.render(id, location.cmafPath(), relativePath)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(manifest -> manifest.isPresent()
+                                    ? writeManifest(request, response, relativePath, manifest.get(),
+                                            location.lastModified())
+                                    : serveFile(location, relativePath, request, response));
+                });
+    }
+
+    private Mono<Void> writeManifest(ServerHttpRequest request, ServerHttpResponse response, String relativePath,
+                                     ManifestRenderer.Manifest manifest, long lastModified) {
+        HttpHeaders headers = response.getHeaders();
+        headers.setCacheControl(MANIFEST_CACHE_CONTROL);
+        headers.setETag(manifest.etag());
+        headers.setLastModified(lastModified);
+        if (HttpConditions.isNotModified(request.getHeaders(), manifest.etag(), lastModified)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        headers.setContentType(MediaType.parseMediaType(determineContentType(relativePath)));
+        headers.setContentLength(manifest.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(manifest.body())));
+    }
+
+    // Tek dosya düzeninde (media.mp4) segmentler Range istekleriyle okunur
+    private Mono<Void> serveFile(VideoLocationCache.VideoLocation location, String relativePath,
+                                 ServerHttpRequest request, ServerHttpResponse response) {
+        Long id = location.id();
+        return segmentFileCache.resolve(id, location.cmafPath(), relativePath)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(file -> {
+                    if (file.isEmpty()) {
+                        response.setStatusCode(HttpStatus.NOT_FOUND);
+                        return response.setComplete();
+                    }
+                    long length = file.get().length();
+                    // Yerel kopyanın zamanı değil (nesne deposunda indirme anı), işleme zamanı
+                    long lastModified = location.lastModified();
+                    String etag = HttpConditions.etag(location.cmafPath(), relativePath, length, lastModified);
+
+                    HttpHeaders headers = response.getHeaders();
+                    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+                    headers.setCacheControl(ManifestRenderer.isManifest(relativePath)
+                            ? MANIFEST_CACHE_CONTROL : MEDIA_CACHE_CONTROL);
+                    headers.setETag(etag);
+                    headers.setLastModified(lastModified);
+                    if (HttpConditions.isNotModified(request.getHeaders(), etag, lastModified)) {
+                        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                        return response.setComplete();
+                    }
+
+                    long position = 0;
+                    long count = length;
+                    // If-Range eşleşmezse (dosya değişmiş) aralık yok sayılır, tam dosya gönderilir
+                    HttpRange range = HttpConditions.ifRangeMatches(request.getHeaders(), etag, lastModified)
+                            ? HttpConditions.singleRange(request.getHeaders()) : null;
+                    if (range != null) {
+                        try {
+                            position = range.getRangeStart(length);
+                            count = range.getRangeEnd(length) - position + 1;
+                        } catch (IllegalArgumentException e) {
+                            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                            response.setStatusCode(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                            return response.setComplete();
+                        }
+                        response.setStatusCode(HttpStatus.PARTIAL_CONTENT);
+                        headers.set(HttpHeaders.CONTENT_RANGE,
+                                "bytes " + position + "-" + (position + count - 1) + "/" + length);
+                    }
+
+                    headers.setContentType(MediaType.parseMediaType(determineContentType(relativePath)));
+                    headers.setContentLength(count);
+                    if (hotSegmentCache.isCandidate(relativePath, length)) {
+                        int from = (int) position;
+                        int to = (int) (position + count);
+                        return hotSegmentCache.get(id, relativePath, file.get())
+                                .flatMap(contents -> response.writeWith(Mono.just(
+                                        response.bufferFactory().wrap(contents.slice(from, to - from)))));
+                    }
+                    return writeFile(response, file.get(), position, count);
+                });
+    }
+
+    private Mono<Void> writeFile(ServerHttpResponse response, SegmentFileCache.SegmentFile file,
+                                 long position, long count) {
+        if (response instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+            return zeroCopy.writeWith(file.path(), position, count);
+        }
+        // Zero-copy desteklemeyen sunucular için asenkron okuma
+        Flux<DataBuffer> body = DataBufferUtils.readAsynchronousFileChannel(
+                () -> AsynchronousFileChannel.open(file.path(), StandardOpenOption.READ),
+                position, response.bufferFactory(), FILE_BUFFER_SIZE);
+        return response.writeWith(DataBufferUtils.takeUntilByteCount(body, count));
+    }
+
     private String determineContentType(String filename) {
         if (filename.endsWith(".m4s")) {
             return "video/iso.segment";
@@ -236,6 +467,10 @@ public class VideoController {
             return "application/vnd.apple.mpegurl";
         } else if (filename.endsWith(".mpd")) {
             return "application/dash+xml";
+        } else if (filename.endsWith(".jpg")) {
+            return "image/jpeg";
+        } else if (filename.endsWith(".vtt")) {
+            return "text/vtt; charset=utf-8";
         } else {
             return "application/octet-stream";
         }
@@ -0,0 +1,174 @@
+package com.videostreaming.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Processed CMAF output of one source file, shared by every video whose
+ * upload had the same content hash. {@code refCount} is the number of
+ * videos pointing at it; the files are deleted when it drops to zero.
+ */
+@Table("processed_outputs")
+public class ProcessedOutput {
+
+    @Id
+    private Long id;
+    private String contentSha256; // kaynak dosyanın hex SHA-256 özeti
+    private String cmafPath;
+    private String hlsManifestPath;
+    private String dashManifestPath;
+    private int refCount; // bu çıktıya bağlı video sayısı
+    private Integer duration;
+    private Long durationMs;
+    private String resolution;
+    private String videoCodec;
+    private String audioCodec;
+    private Double frameRate;
+    private Long bitrate;
+    private Double encodingComplexity;
+    private Integer encodingCrf;
+    private String encodingLadder;
+    private LocalDateTime createdAt;
+
+    public ProcessedOutput() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
+    public void setContentSha256(String contentSha256) {
+        this.contentSha256 = contentSha256;
+    }
+
+    public String getCmafPath() {
+        return cmafPath;
+    }
+
+    public void setCmafPath(String cmafPath) {
+        this.cmafPath = cmafPath;
+    }
+
+    public String getHlsManifestPath() {
+        return hlsManifestPath;
+    }
+
+    public void setHlsManifestPath(String hlsManifestPath) {
+        this.hlsManifestPath = hlsManifestPath;
+    }
+
+    public String getDashManifestPath() {
+        return dashManifestPath;
+    }
+
+    public void setDashManifestPath(String dashManifestPath) {
+        this.dashManifestPath = dashManifestPath;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
+    public String getAudioCodec() {
+        return audioCodec;
+    }
+
+    public void setAudioCodec(String audioCodec) {
+        this.audioCodec = audioCodec;
+    }
+
+    public Double getFrameRate() {
+        return frameRate;
+    }
+
+    public void setFrameRate(Double frameRate) {
+        this.frameRate = frameRate;
+    }
+
+    public Long getBitrate() {
+        return bitrate;
+    }
+
+    public void setBitrate(Long bitrate) {
+        this.bitrate = bitrate;
+    }
+
+    public Double getEncodingComplexity() {
+        return encodingComplexity;
+    }
+
+    public void setEncodingComplexity(Double encodingComplexity) {
+        this.encodingComplexity = encodingComplexity;
+    }
+
+    public Integer getEncodingCrf() {
+        return encodingCrf;
+    }
+
+    public void setEncodingCrf(Integer encodingCrf) {
+        this.encodingCrf = encodingCrf;
+    }
+
+    public String getEncodingLadder() {
+        return encodingLadder;
+    }
+
+    public void setEncodingLadder(String encodingLadder) {
+        this.encodingLadder = encodingLadder;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,150 @@
+package com.videostreaming.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Table("upload_sessions")
+public class UploadSession {
+
+    @Id
+    private Long id;
+
+    private Long videoId;
+    private String status; // OPEN, COMPLETE
+    private long totalSize;
+    private int chunkSize;
+    private int chunkCount;
+    private int receivedCount;
+    private byte[] receivedChunks; // bit i = chunk i yazıldı (PostgreSQL set_bit sırası)
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public UploadSession() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+        this.status = "OPEN";
+    }
+
+    public UploadSession(Long videoId, long totalSize, int chunkSize) {
+        this();
+        this.videoId = videoId;
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) Math.max(1, (totalSize + chunkSize - 1) / chunkSize);
+        this.receivedChunks = new byte[(chunkCount + 7) / 8];
+    }
+
+    public boolean isChunkReceived(int chunk) {
+        return (receivedChunks[chunk / 8] & (1 << (chunk % 8))) != 0;
+    }
+
+    // Baştan itibaren kesintisiz alınmış byte sayısı
+    public long getUploadOffset() {
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (!isChunkReceived(chunk)) {
+                return (long) chunk * chunkSize;
+            }
+        }
+        return totalSize;
+    }
+
+    public List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (!isChunkReceived(chunk)) {
+                missing.add(chunk);
+            }
+        }
+        return missing;
+    }
+
+    public long chunkLength(int chunk) {
+        return Math.min(chunkSize, totalSize - (long) chunk * chunkSize);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Long videoId) {
+        this.videoId = videoId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public int getReceivedCount() {
+        return receivedCount;
+    }
+
+    public void setReceivedCount(int receivedCount) {
+        this.receivedCount = receivedCount;
+    }
+
+    @JsonIgnore
+    public byte[] getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    public void setReceivedChunks(byte[] receivedChunks) {
+        this.receivedChunks = receivedChunks;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -18,11 +18,22 @@ public class Video {
     private String cmafPath;
     private String hlsManifestPath;
     private String dashManifestPath;
-    private String status; // UPLOADING, PROCESSING, READY, ERROR
+    private String status; // UPLOADING, QUEUED, PROCESSING, READY, ERROR
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Integer duration; // video duration in seconds
+    private Long durationMs;
     private String resolution;
+    private String videoCodec;
+    private String audioCodec;
+    private Double frameRate;
+    private Long bitrate; // container bitrate, bits per second
+    private String contentSha256; // hex SHA-256 of the original upload
+    // Per-title kodlama kararları (EncodingAnalyzer)
+    private Double encodingComplexity; // örnek kodlamaların bit/piksel/kare değeri; analiz yoksa null
+    private Integer encodingCrf;
+    private String encodingLadder; // üretilen basamaklar, kısa kenar:maxrate kbps
+    private LocalDateTime processedAt; // çıktının oluştuğu an; Last-Modified ve ETag bundan türetilir
 
     public Video() {
         this.createdAt = LocalDateTime.now();
@@ -143,4 +154,84 @@ public class Video {
     public void setResolution(String resolution) {
         this.resolution = resolution;
     }
-}
\ No newline at end of file
+
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
+    public void setContentSha256(String contentSha256) {
+        this.contentSha256 = contentSha256;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
+    public String getAudioCodec() {
+        return audioCodec;
+    }
+
+    public void setAudioCodec(String audioCodec) {
+        this.audioCodec = audioCodec;
+    }
+
+    public Double getFrameRate() {
+        return frameRate;
+    }
+
+    public void setFrameRate(Double frameRate) {
+        this.frameRate = frameRate;
+    }
+
+    public Long getBitrate() {
+        return bitrate;
+    }
+
+    public void setBitrate(Long bitrate) {
+        this.bitrate = bitrate;
+    }
+
+    public Double getEncodingComplexity() {
+        return encodingComplexity;
+    }
+
+    public void setEncodingComplexity(Double encodingComplexity) {
+        this.encodingComplexity = encodingComplexity;
+    }
+
+    public Integer getEncodingCrf() {
+        return encodingCrf;
+    }
+
+    public void setEncodingCrf(Integer encodingCrf) {
+        this.encodingCrf = encodingCrf;
+    }
+
+    public String getEncodingLadder() {
+        return encodingLadder;
+    }
+
+    public void setEncodingLadder(String encodingLadder) {
+        this.encodingLadder = encodingLadder;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
@@ -0,0 +1,26 @@
+package com.videostreaming.model;
+
+import java.util.List;
+
+/**
+ * One page of the video listing, newest first. {@code nextCursor} is passed
+ * back as {@code cursor} to get the following page; null on the last page.
+ */
+public class VideoPage {
+
+    private final List<VideoSummary> items;
+    private final String nextCursor;
+
+    public VideoPage(List<VideoSummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<VideoSummary> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,41 @@
+package com.videostreaming.repository;
+
+import com.videostreaming.model.ProcessedOutput;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ProcessedOutputRepository extends ReactiveCrudRepository<ProcessedOutput, Long> {
+
+    // İşlenen videonun çıktısını kaydet. İş yeniden denenip aynı dizine tekrar yazıldıysa
+    // kayıt zaten vardır
+    @Modifying
+    @Query("INSERT INTO processed_outputs (content_sha256, cmaf_path, hls_manifest_path, dash_manifest_path, "
+            + "ref_count, duration, duration_ms, resolution, video_codec, audio_codec, frame_rate, bitrate, "
+            + "encoding_complexity, encoding_crf, encoding_ladder) "
+            + "SELECT content_sha256, cmaf_path, hls_manifest_path, dash_manifest_path, "
+            + "1, duration, duration_ms, resolution, video_codec, audio_codec, frame_rate, bitrate, "
+            + "encoding_complexity, encoding_crf, encoding_ladder "
+            + "FROM videos WHERE id = :videoId AND status = 'READY' "
+            + "AND content_sha256 IS NOT NULL AND cmaf_path IS NOT NULL "
+            + "ON CONFLICT (cmaf_path) DO NOTHING")
+    Mono<Integer> registerVideo(Long videoId);
+
+    // Aynı içeriğin çıktısına bir referans ekle. Satır bu arada silindiyse (son referans
+    // bırakıldı) güncelleme boş döner ve video normal şekilde işlenir
+    @Query("UPDATE processed_outputs SET ref_count = ref_count + 1 "
+            + "WHERE id = (SELECT id FROM processed_outputs WHERE content_sha256 = :contentSha256 "
+            + "ORDER BY id LIMIT 1) RETURNING *")
+    Mono<ProcessedOutput> acquire(String contentSha256);
+
+    @Query("UPDATE processed_outputs SET ref_count = ref_count - 1 WHERE cmaf_path = :cmafPath RETURNING *")
+    Mono<ProcessedOutput> release(String cmafPath);
+
+    // Yalnızca hâlâ kullanılmıyorsa; arada acquire olduysa satır kalır
+    @Modifying
+    @Query("DELETE FROM processed_outputs WHERE id = :id AND ref_count <= 0")
+    Mono<Integer> deleteIfUnused(Long id);
+}
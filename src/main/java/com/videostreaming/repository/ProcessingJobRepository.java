@@ -0,0 +1,69 @@
+package com.videostreaming.repository;
+
+import com.videostreaming.model.ProcessingJob;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ProcessingJobRepository extends ReactiveCrudRepository<ProcessingJob, Long> {
+
+    Mono<Long> countByStatus(String status);
+
+    // Sıradaki işi (veya süresi dolmuş bir lease'i) atomik olarak sahiplen.
+    // SKIP LOCKED sayesinde birden fazla node aynı satırı beklemeden farklı işler alır.
+    @Query("UPDATE processing_jobs SET status = 'RUNNING', owner = :owner, attempts = attempts + 1, " +
+            "heartbeat_at = NOW(), lease_expires_at = NOW() + :leaseSeconds * INTERVAL '1 second' " +
+            "WHERE id = (SELECT id FROM processing_jobs " +
+            "WHERE (status = 'PENDING' OR (status = 'RUNNING' AND lease_expires_at < NOW())) " +
+            "AND attempts < :maxAttempts " +
+            "ORDER BY priority, created_at LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *")
+    Mono<ProcessingJob> claimNext(String owner, int leaseSeconds, int maxAttempts);
+
+    // Yükleme sırasında başlayan iş: doğrudan bu node'a ait ve RUNNING olarak oluşturulur
+    @Query("INSERT INTO processing_jobs (video_id, status, priority, attempts, owner, heartbeat_at, lease_expires_at) " +
+            "VALUES (:videoId, 'RUNNING', :priority, 1, :owner, NOW(), NOW() + :leaseSeconds * INTERVAL '1 second') " +
+            "RETURNING *")
+    Mono<ProcessingJob> insertClaimed(Long videoId, int priority, String owner, int leaseSeconds);
+
+    @Modifying
+    @Query("UPDATE processing_jobs SET heartbeat_at = NOW(), " +
+            "lease_expires_at = NOW() + :leaseSeconds * INTERVAL '1 second' " +
+            "WHERE owner = :owner AND status = 'RUNNING'")
+    Mono<Integer> renewLeases(String owner, int leaseSeconds);
+
+    @Modifying
+    @Query("UPDATE processing_jobs SET status = :status, owner = NULL, lease_expires_at = NULL, " +
+            "last_error = :lastError WHERE id = :id AND owner = :owner")
+    Mono<Integer> finish(Long id, String owner, String status, String lastError);
+
+    // Yeniden başlatmada: bu node'a ait kalan veya lease'i dolmuş işleri tekrar kuyruğa al
+    @Modifying
+    @Query("UPDATE processing_jobs SET status = 'PENDING', owner = NULL, lease_expires_at = NULL " +
+            "WHERE status = 'RUNNING' AND (owner = :owner OR lease_expires_at < NOW())")
+    Mono<Integer> requeueOrphans(String owner);
+
+    // Deneme hakkı bitmiş bekleyen (veya lease'i dolmuş) işler FAILED olur, videoları ERROR.
+    // claimNext bunları atlar; aksi halde sonsuza dek PENDING kalıp kuyruk sayısını şişirirler
+    @Query("WITH failed AS (UPDATE processing_jobs SET status = 'FAILED', owner = NULL, lease_expires_at = NULL, " +
+            "last_error = 'Gave up after ' || attempts || ' attempts; the node processing it stopped or lost its lease' " +
+            "WHERE attempts >= :maxAttempts " +
+            "AND (status = 'PENDING' OR (status = 'RUNNING' AND lease_expires_at < NOW())) " +
+            "RETURNING video_id) " +
+            "UPDATE videos SET status = 'ERROR' WHERE id IN (SELECT video_id FROM failed) " +
+            "AND status IN ('QUEUED', 'PROCESSING') RETURNING id")
+    Flux<Long> failExhausted(int maxAttempts);
+
+    // İş kaydı olmadan QUEUED/PROCESSING'de kalmış videolar (eski sürümlerden) için iş oluştur
+    @Modifying
+    @Query("INSERT INTO processing_jobs (video_id, status, priority) " +
+            "SELECT v.id, 'PENDING', 1 FROM videos v WHERE v.status IN ('QUEUED', 'PROCESSING') " +
+            "AND NOT EXISTS (SELECT 1 FROM processing_jobs j WHERE j.video_id = v.id " +
+            "AND j.status IN ('PENDING', 'RUNNING')) " +
+            "ON CONFLICT DO NOTHING")
+    Mono<Integer> enqueueStrandedVideos();
+}
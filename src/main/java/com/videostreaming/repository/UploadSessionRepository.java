@@ -0,0 +1,23 @@
+package com.videostreaming.repository;
+
+import com.videostreaming.model.UploadSession;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface UploadSessionRepository extends ReactiveCrudRepository<UploadSession, Long> {
+
+    // Parçayı atomik olarak işaretle; aynı parça tekrar gelirse sayaç artmaz.
+    // SET ifadeleri satırın eski değerlerini görür.
+    @Query("UPDATE upload_sessions SET received_chunks = set_bit(received_chunks, :chunk, 1), " +
+            "received_count = received_count + 1 - get_bit(received_chunks, :chunk) " +
+            "WHERE id = :id AND status = 'OPEN' RETURNING *")
+    Mono<UploadSession> markChunkReceived(Long id, int chunk);
+
+    // Tüm parçalar geldiyse oturumu kapat; yalnızca bir istek kazanır
+    @Query("UPDATE upload_sessions SET status = 'COMPLETE' " +
+            "WHERE id = :id AND status = 'OPEN' AND received_count = chunk_count RETURNING *")
+    Mono<UploadSession> complete(Long id);
+}
@@ -1,11 +1,16 @@
 package com.videostreaming.repository;
 
 import com.videostreaming.model.Video;
+import com.videostreaming.model.VideoSummary;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface VideoRepository extends ReactiveCrudRepository<Video, Long> {
 
@@ -13,5 +18,27 @@ public interface VideoRepository extends ReactiveCrudRepository<Video, Long> {
 
     Flux<Video> findByStatus(String status);
 
-    Flux<Video> findAllByOrderByCreatedAtDesc();
+    // Listeleme: (created_at, id) üzerinde keyset sayfalama - OFFSET yok, derinlik maliyeti sabit.
+    // idx_videos_created_at_id / idx_videos_status_created_at_id index'leriyle eşleşir
+    String SUMMARY_COLUMNS = "SELECT id, title, original_filename, file_size, status, duration, resolution, created_at "
+            + "FROM videos ";
+
+    @Query(SUMMARY_COLUMNS + "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<VideoSummary> findFirstPage(int limit);
+
+    @Query(SUMMARY_COLUMNS + "WHERE (created_at, id) < (:createdAt, :id) "
+            + "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<VideoSummary> findPageBefore(LocalDateTime createdAt, Long id, int limit);
+
+    @Query(SUMMARY_COLUMNS + "WHERE status = :status ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<VideoSummary> findFirstPageByStatus(String status, int limit);
+
+    @Query(SUMMARY_COLUMNS + "WHERE status = :status AND (created_at, id) < (:createdAt, :id) "
+            + "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<VideoSummary> findPageByStatusBefore(String status, LocalDateTime createdAt, Long id, int limit);
+
+    // Yalnızca yükleme sonucunu yazar; işleme aynı satırı paralel güncelliyor olabilir
+    @Modifying
+    @Query("UPDATE videos SET file_size = :fileSize, content_sha256 = :contentSha256 WHERE id = :id")
+    Mono<Integer> updateUploadResult(Long id, long fileSize, String contentSha256);
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.videostreaming.service;
+
+import com.videostreaming.service.MediaProbeService.MediaInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Per-title encoding: before the ladder encode, a few short windows spread
+ * over the source are encoded at low resolution with the ladder's CRF. The
+ * resulting bitrate measures how hard this title is to compress - a slideshow
+ * needs a fraction of the bits of fast sports at the same CRF - and the plan
+ * is derived from it:
+ * <ul>
+ *   <li>each rung's maxrate cap is the estimated need at that size, with
+ *       headroom, instead of the fixed ladder cap;</li>
+ *   <li>rungs whose cap is not clearly below the rung above are dropped,
+ *       since they would cost storage without saving viewers bandwidth;</li>
+ *   <li>CRF is nudged up for very complex content (motion hides the loss)
+ *       and down for very simple content (banding shows on flat areas).</li>
+ * </ul>
+ */
+@Service
+public class EncodingAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncodingAnalyzer.class);
+
+    // Bit/piksel/kare eşikleri (örnek kodlamanın ölçümü): altı sade, üstü karmaşık içerik
+    private static final double SIMPLE_BITS_PER_PIXEL = 0.03;
+    private static final double COMPLEX_BITS_PER_PIXEL = 0.15;
+    // Bitrate, piksel sayısıyla doğrusal değil kabaca 0.75 üssüyle artar
+    private static final double PIXEL_EXPONENT = 0.75;
+    private static final int MIN_MAXRATE_KBPS = 200;
+
+    /**
+     * Encoder settings for one video. {@code renditions} carry the per-title
+     * maxrate caps; {@code complexity} (bits per pixel per frame of the sample
+     * encodes) is null if no analysis was done.
+     */
+    public record EncodingPlan(List<Rendition> renditions, int crf, String preset, Double complexity) {
+
+        // Video satırına yazılan biçim, video.ladder.renditions ile aynı: "720:1800,360:600"
+        public String ladderSpec() {
+            return renditions.stream()
+                    .map(rendition -> rendition.getHeight() + ":" + rendition.getMaxBitrateKbps())
+                    .collect(Collectors.joining(","));
+        }
+    }
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final String ffmpegPath;
+    private final boolean enabled;
+    private final int crf;
+    private final String preset;
+    private final int sampleCount;
+    private final int sampleSeconds;
+    private final int sampleHeight;
+    private final double headroom;
+    private final double minRungStep;
+
+    public EncodingAnalyzer(FFmpegExecutor ffmpegExecutor,
+                            @Value("${ffmpeg.path}") String ffmpegPath,
+                            @Value("${video.encoding.per-title.enabled:true}") boolean enabled,
+                            @Value("${video.encoding.crf:23}") int crf,
+                            @Value("${video.encoding.preset:fast}") String preset,
+                            @Value("${video.encoding.per-title.samples:3}") int sampleCount,
+                            @Value("${video.encoding.per-title.sample-seconds:4}") int sampleSeconds,
+                            @Value("${video.encoding.per-title.sample-height:360}") int sampleHeight,
+                            @Value("${video.encoding.per-title.headroom:1.5}") double headroom,
+                            @Value("${video.encoding.per-title.min-rung-step:1.4}") double minRungStep) {
+        this.ffmpegExecutor = ffmpegExecutor;
+        this.ffmpegPath = ffmpegPath;
+        this.enabled = enabled;
+        this.crf = crf;
+        this.preset = preset;
+        this.sampleCount = Math.max(1, sampleCount);
+        this.sampleSeconds = Math.max(1, sampleSeconds);
+        this.sampleHeight = sampleHeight;
+        this.headroom = headroom;
+        this.minRungStep = minRungStep;
+    }
+
+    /** The fixed settings: configured CRF and preset, ladder caps as configured. */
+    public EncodingPlan defaultPlan(List<Rendition> renditions) {
+        return new EncodingPlan(renditions, crf, preset, null);
+    }
+
+    /**
+     * Analyses the source and returns its plan; falls back to the default
+     * plan if per-title encoding is disabled or the sample encodes fail.
+     */
+    public EncodingPlan plan(String inputPath, MediaInfo source, List<Rendition> renditions, Path workDir)
+            throws InterruptedException {
+        if (!enabled || source.durationSeconds() <= 0) {
+            return defaultPlan(renditions);
+        }
+        try {
+            return analyse(inputPath, source, renditions, workDir);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Per-title analysis of {} failed, using the default ladder: {}", inputPath, e.getMessage());
+            return defaultPlan(renditions);
+        } finally {
+            deleteQuietly(workDir);
+        }
+    }
+
+    private EncodingPlan analyse(String inputPath, MediaInfo source, List<Rendition> renditions, Path workDir)
+            throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        int shortSide = Math.min(source.width(), source.height());
+        int height = Math.min(sampleHeight, shortSide);
+        height -= height % 2;
+        double aspect = (double) Math.max(source.width(), source.height()) / Math.max(1, shortSide);
+        int width = (int) Math.round(height * aspect);
+        width += width % 2;
+        String scale = source.height() > source.width() ? height + ":" + width : width + ":" + height;
+
+        // Pencereler kaynağa eşit aralıklarla yayılır; kısa videolarda tek pencere baştan
+        double duration = source.durationSeconds();
+        int windows = duration < sampleSeconds * (sampleCount + 1) ? 1 : sampleCount;
+        double totalKbps = 0;
+        double peakKbps = 0;
+        for (int i = 0; i < windows; i++) {
+            double start = windows == 1 ? 0 : duration * (i + 1) / (windows + 1) - sampleSeconds / 2.0;
+            double length = Math.min(sampleSeconds, duration - start);
+            Path sample = workDir.resolve("sample_" + i + ".mp4");
+            ffmpegExecutor.execute(new String[]{
+                    ffmpegPath, "-y",
+                    "-ss", String.format(Locale.ROOT, "%.3f", start),
+                    "-i", inputPath,
+                    "-t", String.format(Locale.ROOT, "%.3f", length),
+                    "-map", "0:v:0",
+                    "-an", "-sn",
+                    "-vf", "scale=" + scale,
+                    "-c:v", "libx264",
+                    // Daha hızlı preset mutlak bitrate'i şişirir ama başlıklar arası oran korunur
+                    "-preset", "veryfast",
+                    "-crf", String.valueOf(crf),
+                    sample.toString()
+            });
+            double kbps = Files.size(sample) * 8 / length / 1000;
+            totalKbps += kbps;
+            peakKbps = Math.max(peakKbps, kbps);
+        }
+        double meanKbps = totalKbps / windows;
+        double bitsPerPixel = meanKbps * 1000 / ((double) width * height * Math.max(1, source.frameRate()));
+
+        int planCrf = crf;
+        if (bitsPerPixel >= COMPLEX_BITS_PER_PIXEL) {
+            planCrf = crf + 1;
+        } else if (bitsPerPixel <= SIMPLE_BITS_PER_PIXEL) {
+            planCrf = crf - 1;
+        }
+
+        // Tepe pencereye göre: sabit tavan, karmaşık sahnelerde segment boyutunu öngörülebilir tutar
+        List<Rendition> capped = new ArrayList<>();
+        for (Rendition rendition : renditions) {
+            double scaleFactor = Math.pow((double) rendition.getHeight() / height, 2 * PIXEL_EXPONENT);
+            int cap = (int) Math.round(peakKbps * scaleFactor * headroom);
+            cap = Math.max(MIN_MAXRATE_KBPS, Math.min(rendition.getMaxBitrateKbps(), cap));
+            capped.add(new Rendition(rendition.getHeight(), cap));
+        }
+        List<Rendition> ladder = pruneRungs(capped);
+
+        EncodingPlan plan = new EncodingPlan(ladder, planCrf, preset, Math.round(bitsPerPixel * 10000) / 10000.0);
+        logger.info("Per-title plan for {}: {} bits/pixel (peak {} kbps at {}p), crf {}, ladder {}",
+                inputPath, plan.complexity(), Math.round(peakKbps), height, planCrf, plan.ladderSpec());
+        return plan;
+    }
+
+    // En üst ve en alt basamak kalır; aradakiler ancak komşularından belirgin düşükse
+    private List<Rendition> pruneRungs(List<Rendition> ladder) {
+        if (ladder.size() <= 2) {
+            return ladder;
+        }
+        Rendition lowest = ladder.get(ladder.size() - 1);
+        List<Rendition> kept = new ArrayList<>(List.of(ladder.get(0)));
+        for (Rendition rendition : ladder.subList(1, ladder.size() - 1)) {
+            Rendition above = kept.get(kept.size() - 1);
+            if (rendition.getMaxBitrateKbps() * minRungStep <= above.getMaxBitrateKbps()
+                    && rendition.getMaxBitrateKbps() >= lowest.getMaxBitrateKbps() * minRungStep) {
+                kept.add(rendition);
+            }
+        }
+        kept.add(lowest);
+        return kept;
+    }
+
+    private void deleteQuietly(Path workDir) {
+        try (Stream<Path> files = Files.list(workDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(workDir);
+        } catch (IOException e) {
+            logger.debug("Could not clean up {}: {}", workDir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.videostreaming.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs ffmpeg processes with a wall-clock timeout. The timeout is enforced by
+ * a watchdog so that a stuck encode is killed even while its output is still
+ * being read. Callers that pass a progress listener get ffmpeg's
+ * {@code -progress} reports parsed as they arrive; those runs also feed the
+ * encode fps/speed metrics. Only the last {@code ffmpeg.log-tail-lines} lines
+ * of output are kept, for the error report of a failed run.
+ */
+@Service
+public class FFmpegExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FFmpegExecutor.class);
+
+    /**
+     * One {@code -progress} report: output time encoded so far, current
+     * encoding frame rate and speed relative to real time ({@code 2.0} = twice
+     * as fast as playback). {@code finished} on the last report.
+     */
+    public record Progress(long outTimeUs, double fps, double speed, boolean finished) {
+    }
+
+    private final long timeoutMinutes;
+    private final int logTailLines;
+    // Çalışan (ilerleme raporlayan) encode'ların son raporu - anlık fps/hız gauge'ları için
+    private final Map<Object, Progress> activeEncodes = new ConcurrentHashMap<>();
+    private final DistributionSummary encodeFps;
+    private final DistributionSummary encodeSpeed;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ffmpeg-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FFmpegExecutor(MeterRegistry meterRegistry,
+                          @Value("${ffmpeg.timeout:30}") long timeoutMinutes,
+                          @Value("${ffmpeg.log-tail-lines:100}") int logTailLines) {
+        this.timeoutMinutes = timeoutMinutes;
+        this.logTailLines = Math.max(1, logTailLines);
+
+        Gauge.builder("ffmpeg.encodes.active", activeEncodes, Map::size)
+                .description("ffmpeg encodes currently running on this node")
+                .register(meterRegistry);
+        Gauge.builder("ffmpeg.encode.fps.current", activeEncodes,
+                        encodes -> encodes.values().stream().mapToDouble(Progress::fps).sum())
+                .description("Frames per second encoded right now, summed over running encodes")
+                .register(meterRegistry);
+        Gauge.builder("ffmpeg.encode.speed.current", activeEncodes,
+                        encodes -> encodes.values().stream().mapToDouble(Progress::speed).sum())
+                .description("Media seconds encoded per wall-clock second, summed over running encodes")
+                .register(meterRegistry);
+        this.encodeFps = DistributionSummary.builder("ffmpeg.encode.fps")
+                .description("Average frames per second of finished encodes")
+                .register(meterRegistry);
+        this.encodeSpeed = DistributionSummary.builder("ffmpeg.encode.speed")
+                .description("Average speed (x real time) of finished encodes")
+                .register(meterRegistry);
+    }
+
+    public void execute(String[] command) throws IOException, InterruptedException {
+        execute(command, null);
+    }
+
+    /**
+     * Runs ffmpeg with {@code stdin} copied to the process's standard input
+     * (for {@code -i pipe:0}). If reading {@code stdin} fails the process is
+     * killed, so a broken source never produces a truncated "successful" encode.
+     */
+    public void execute(String[] command, InputStream stdin) throws IOException, InterruptedException {
+        execute(command, stdin, null);
+    }
+
+    /**
+     * Like {@link #execute(String[], InputStream)}, additionally reporting
+     * progress to {@code progress} (if not null) from the reader thread.
+     */
+    public void execute(String[] command, InputStream stdin, Consumer<Progress> progress)
+            throws IOException, InterruptedException {
+        if (progress != null) {
+            // Raporlar stdout'a key=value satırları olarak gelir; -nostats stderr'deki durum satırını kapatır
+            List<String> withProgress = new ArrayList<>(List.of(command));
+            withProgress.addAll(1, List.of("-progress", "pipe:1", "-nostats"));
+            command = withProgress.toArray(new String[0]);
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectErrorStream(true);
+
+        Process process = processBuilder.start();
+        AtomicBoolean inputFailed = new AtomicBoolean();
+        if (stdin != null) {
+            Thread feeder = new Thread(() -> feed(stdin, process, inputFailed), "ffmpeg-stdin");
+            feeder.setDaemon(true);
+            feeder.start();
+        } else {
+            process.getOutputStream().close();
+        }
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+            timedOut.set(true);
+            process.destroyForcibly();
+        }, timeoutMinutes, TimeUnit.MINUTES);
+
+        // Uzun encode'larda çıktının tamamı tutulmaz; hata raporu için son satırlar yeter
+        Deque<String> tail = new ArrayDeque<>(logTailLines);
+        Object encode = new Object();
+        ProgressParser parser = progress != null
+                ? new ProgressParser(progress.andThen(report -> recordProgress(encode, report)))
+                : null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (parser != null && parser.accept(line)) {
+                    continue;
+                }
+                logger.debug("FFmpeg: {}", line);
+                if (tail.size() == logTailLines) {
+                    tail.removeFirst();
+                }
+                tail.addLast(line);
+            }
+            process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        } finally {
+            timeout.cancel(false);
+            activeEncodes.remove(encode);
+        }
+
+        if (inputFailed.get()) {
+            throw new IOException("FFmpeg input stream failed");
+        }
+
+        if (timedOut.get()) {
+            throw new RuntimeException("FFmpeg process timed out after " + timeoutMinutes + " minutes");
+        }
+
+        if (process.exitValue() != 0) {
+            logger.error("FFmpeg output (last {} lines):\n{}", tail.size(), String.join("\n", tail));
+            throw new RuntimeException("FFmpeg process failed with exit code: " + process.exitValue()
+                    + (tail.isEmpty() ? "" : " (" + tail.getLast() + ")"));
+        }
+
+        logger.info("FFmpeg completed successfully");
+    }
+
+    private void feed(InputStream stdin, Process process, AtomicBoolean inputFailed) {
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream processInput = process.getOutputStream()) {
+            int read;
+            while (true) {
+                try {
+                    read = stdin.read(buffer);
+                } catch (IOException e) {
+                    logger.warn("FFmpeg input failed, stopping process: {}", e.getMessage());
+                    inputFailed.set(true);
+                    process.destroyForcibly();
+                    return;
+                }
+                if (read < 0) {
+                    break;
+                }
+                processInput.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // FFmpeg girdiyi okumadan çıktı (broken pipe) - sonucu çıkış kodu belirler
+            logger.debug("FFmpeg stdin closed early: {}", e.getMessage());
+        }
+    }
+
+    private void recordProgress(Object encode, Progress progress) {
+        if (!progress.finished()) {
+            activeEncodes.put(encode, progress);
+            return;
+        }
+        activeEncodes.remove(encode);
+        // Son rapordaki fps/hız, encode'un tamamının ortalaması
+        if (progress.fps() > 0) {
+            encodeFps.record(progress.fps());
+        }
+        if (progress.speed() > 0) {
+            encodeSpeed.record(progress.speed());
+        }
+    }
+
+    // -progress blokları: frame=..., fps=..., out_time_us=..., speed=1.5x, progress=continue|end
+    static final class ProgressParser {
+
+        private final Consumer<Progress> listener;
+        private long outTimeUs;
+        private double fps;
+        private double speed;
+
+        ProgressParser(Consumer<Progress> listener) {
+            this.listener = listener;
+        }
+
+        // Bir -progress satırıysa true (log çıktısına eklenmez)
+        boolean accept(String line) {
+            int separator = line.indexOf('=');
+            if (separator <= 0 || line.indexOf(' ') >= 0) {
+                return false;
+            }
+            String key = line.substring(0, separator);
+            String value = line.substring(separator + 1).trim();
+            switch (key) {
+                case "out_time_us" -> outTimeUs = parseLong(value, outTimeUs);
+                case "fps" -> fps = parseDouble(value, fps);
+                case "speed" -> speed = parseDouble(value.replace("x", ""), speed);
+                case "progress" -> listener.accept(new Progress(outTimeUs, fps, speed, "end".equals(value)));
+                case "frame", "bitrate", "total_size", "out_time_ms", "out_time", "dup_frames", "drop_frames" -> {
+                }
+                default -> {
+                    // stream_0_0_q=... gibi akış başına alanlar
+                    if (!key.startsWith("stream_")) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static long parseLong(String value, long fallback) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return fallback; // N/A
+            }
+        }
+
+        private static double parseDouble(String value, double fallback) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+}
@@ -0,0 +1,59 @@
+package com.videostreaming.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Processed output stays where transcoding wrote it, under
+ * {@code video.storage.path}. Only suitable when serving and transcoding run
+ * on the same machine (or share the directory).
+ */
+@Service
+@ConditionalOnProperty(name = "video.storage.backend", havingValue = "filesystem", matchIfMissing = true)
+public class FilesystemSegmentStore implements SegmentStore {
+
+    @Override
+    public void publish(Path outputDir) {
+        // Dosyalar zaten yerinde
+    }
+
+    @Override
+    public Mono<Path> localFile(String outputDir, String relativePath) {
+        return Mono.fromCallable(() -> {
+                    Path file = Paths.get(outputDir).resolve(relativePath);
+                    return Files.isRegularFile(file) ? file : null;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public boolean hasStableLocalPaths() {
+        return true;
+    }
+
+    @Override
+    public Mono<Void> delete(String outputDir) {
+        return Mono.<Void>fromCallable(() -> {
+                    Path processedDir = Paths.get(outputDir);
+                    if (Files.exists(processedDir)) {
+                        // Rendition alt dizinleri var: önce dosyalar, sonra dizinler silinmeli
+                        try (Stream<Path> paths = Files.walk(processedDir)) {
+                            paths.sorted(Comparator.reverseOrder())
+                                    .map(Path::toFile)
+                                    .forEach(File::delete);
+                        }
+                    }
+                    return null;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
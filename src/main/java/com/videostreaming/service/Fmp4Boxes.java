@@ -0,0 +1,450 @@
+package com.videostreaming.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal ISO-BMFF box reader/patcher for the fragmented MP4 files ffmpeg
+ * writes (init segments and moof/mdat media segments). Only the boxes the
+ * pipeline needs are understood.
+ */
+final class Fmp4Boxes {
+
+    private static final int TFHD_BASE_DATA_OFFSET = 0x01;
+    private static final int TFHD_SAMPLE_DESCRIPTION_INDEX = 0x02;
+    private static final int TFHD_DEFAULT_SAMPLE_DURATION = 0x08;
+    private static final int TFHD_DEFAULT_SAMPLE_SIZE = 0x10;
+    private static final int TFHD_DEFAULT_SAMPLE_FLAGS = 0x20;
+    private static final int TRUN_DATA_OFFSET = 0x01;
+    private static final int TRUN_FIRST_SAMPLE_FLAGS = 0x04;
+    private static final int TRUN_SAMPLE_DURATION = 0x100;
+    private static final int TRUN_SAMPLE_SIZE = 0x200;
+    private static final int TRUN_SAMPLE_FLAGS = 0x400;
+    private static final int TRUN_SAMPLE_CTO = 0x800;
+    private static final int SAMPLE_IS_NON_SYNC = 0x10000;
+
+    private Fmp4Boxes() {
+    }
+
+    // Dosya başı: moov, herhangi bir medya verisinden önce geliyor ve mvex içeriyor mu
+    // (yani dosya baştan sona sırayla, seek etmeden okunabilir mi)
+    static boolean isFragmented(byte[] prefix) {
+        ByteBuffer buffer = ByteBuffer.wrap(prefix);
+        int offset = 0;
+        while (offset + 8 <= prefix.length) {
+            long size = Integer.toUnsignedLong(buffer.getInt(offset));
+            if (size == 1 && offset + 16 <= prefix.length) {
+                size = buffer.getLong(offset + 8);
+            }
+            String type = boxType(buffer, offset);
+            if ("moov".equals(type)) {
+                if (size < 8 || offset + size > prefix.length) {
+                    return false; // moov önekten büyük - karar verilemiyor
+                }
+                int end = (int) (offset + size);
+                return findBox(buffer, contentStart(buffer, offset), end, "mvex") >= 0;
+            }
+            if ("mdat".equals(type) || "moof".equals(type) || size < 8) {
+                return false;
+            }
+            offset += (int) size;
+        }
+        return false;
+    }
+
+    // Init segment: moov/mvex/trex default_sample_duration (0 if absent)
+    static long readDefaultSampleDuration(byte[] init) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(init);
+        int moov = findBox(buffer, 0, init.length, "moov");
+        if (moov < 0) {
+            throw new IOException("Init segment has no moov box");
+        }
+        int mvex = findBox(buffer, contentStart(buffer, moov), boxEnd(buffer, moov), "mvex");
+        if (mvex < 0) {
+            return 0;
+        }
+        int trex = findBox(buffer, contentStart(buffer, mvex), boxEnd(buffer, mvex), "trex");
+        if (trex < 0) {
+            return 0;
+        }
+        // version/flags(4) track_ID(4) default_sample_description_index(4) default_sample_duration(4)
+        return Integer.toUnsignedLong(buffer.getInt(contentStart(buffer, trex) + 12));
+    }
+
+    // Init segment: moov/trak/mdia/mdhd timescale of the first track
+    static long readTimescale(byte[] init) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(init);
+        int box = findBox(buffer, 0, init.length, "moov");
+        for (String type : new String[]{"trak", "mdia", "mdhd"}) {
+            if (box < 0) {
+                break;
+            }
+            box = findBox(buffer, contentStart(buffer, box), boxEnd(buffer, box), type);
+        }
+        if (box < 0) {
+            throw new IOException("Init segment has no mdhd box");
+        }
+        int content = contentStart(buffer, box);
+        int version = buffer.get(content) & 0xFF;
+        // v1: creation(8) modification(8) timescale(4); v0: creation(4) modification(4) timescale(4)
+        return Integer.toUnsignedLong(buffer.getInt(content + (version == 1 ? 20 : 12)));
+    }
+
+    // Init segment: moov/trak/tkhd track_ID of the first track
+    static long readTrackId(byte[] init) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(init);
+        int box = findBox(buffer, 0, init.length, "moov");
+        for (String type : new String[]{"trak", "tkhd"}) {
+            if (box < 0) {
+                break;
+            }
+            box = findBox(buffer, contentStart(buffer, box), boxEnd(buffer, box), type);
+        }
+        if (box < 0) {
+            throw new IOException("Init segment has no tkhd box");
+        }
+        int content = contentStart(buffer, box);
+        int version = buffer.get(content) & 0xFF;
+        // v1: creation(8) modification(8) track_ID(4); v0: creation(4) modification(4) track_ID(4)
+        return Integer.toUnsignedLong(buffer.getInt(content + (version == 1 ? 20 : 12)));
+    }
+
+    // Media segment: baseMediaDecodeTime of the first fragment
+    static long firstDecodeTime(byte[] segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(segment);
+        int moof = findBox(buffer, 0, segment.length, "moof");
+        if (moof < 0) {
+            throw new IOException("Media segment has no moof box");
+        }
+        int traf = findBox(buffer, contentStart(buffer, moof), boxEnd(buffer, moof), "traf");
+        int tfdt = traf < 0 ? -1 : findBox(buffer, contentStart(buffer, traf), boxEnd(buffer, traf), "tfdt");
+        if (tfdt < 0) {
+            throw new IOException("Media segment has no tfdt box");
+        }
+        return readTfdt(buffer, tfdt);
+    }
+
+    // Media segment: decode time right after its last sample
+    static long endDecodeTime(byte[] segment, long defaultSampleDuration) {
+        ByteBuffer buffer = ByteBuffer.wrap(segment);
+        long end = 0;
+        for (int moof = findBox(buffer, 0, segment.length, "moof"); moof >= 0;
+             moof = findBox(buffer, boxEnd(buffer, moof), segment.length, "moof")) {
+            for (int traf = findBox(buffer, contentStart(buffer, moof), boxEnd(buffer, moof), "traf"); traf >= 0;
+                 traf = findBox(buffer, boxEnd(buffer, traf), boxEnd(buffer, moof), "traf")) {
+                end = Math.max(end, trafEndDecodeTime(buffer, traf, defaultSampleDuration));
+            }
+        }
+        return end;
+    }
+
+    // Media segment: earliest presentation time of its samples (decode time + composition offset);
+    // B-frame'li videoda ilk örneğin composition offset'i sıfır değildir
+    static long earliestPresentationTime(byte[] segment, long defaultSampleDuration) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(segment);
+        long earliest = Long.MAX_VALUE;
+        for (int moof = findBox(buffer, 0, segment.length, "moof"); moof >= 0;
+             moof = findBox(buffer, boxEnd(buffer, moof), segment.length, "moof")) {
+            for (int traf = findBox(buffer, contentStart(buffer, moof), boxEnd(buffer, moof), "traf"); traf >= 0;
+                 traf = findBox(buffer, boxEnd(buffer, traf), boxEnd(buffer, moof), "traf")) {
+                earliest = Math.min(earliest, trafEarliestPresentationTime(buffer, traf, defaultSampleDuration));
+            }
+        }
+        if (earliest == Long.MAX_VALUE) {
+            throw new IOException("Media segment has no samples");
+        }
+        return Math.max(earliest, 0);
+    }
+
+    // Media segment: add delta to every tfdt (in place)
+    static void shiftDecodeTimes(byte[] segment, long delta) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(segment);
+        for (int moof = findBox(buffer, 0, segment.length, "moof"); moof >= 0;
+             moof = findBox(buffer, boxEnd(buffer, moof), segment.length, "moof")) {
+            for (int traf = findBox(buffer, contentStart(buffer, moof), boxEnd(buffer, moof), "traf"); traf >= 0;
+                 traf = findBox(buffer, boxEnd(buffer, traf), boxEnd(buffer, moof), "traf")) {
+                int tfdt = findBox(buffer, contentStart(buffer, traf), boxEnd(buffer, traf), "tfdt");
+                if (tfdt < 0) {
+                    continue;
+                }
+                int content = contentStart(buffer, tfdt);
+                long shifted = readTfdt(buffer, tfdt) + delta;
+                if (shifted < 0) {
+                    throw new IOException("Decode time would become negative");
+                }
+                if ((buffer.get(content) & 0xFF) == 1) {
+                    buffer.putLong(content + 4, shifted);
+                } else if (shifted <= 0xFFFFFFFFL) {
+                    buffer.putInt(content + 4, (int) shifted);
+                } else {
+                    throw new IOException("Decode time does not fit a version 0 tfdt");
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a version 1 sidx box with one reference per segment, for a file
+     * laid out as init, sidx, segments (first_offset 0). Every segment starts
+     * with a SAP type 1 (keyframe) - the encoder forces one per segment.
+     * {@code trackId} is the track's own tkhd id and
+     * {@code earliestPresentationTime} the first segment's earliest
+     * presentation time (see {@link #earliestPresentationTime}).
+     */
+    static byte[] buildSidx(long trackId, long timescale, long earliestPresentationTime,
+                            int[] segmentSizes, int[] segmentDurations) {
+        int size = 40 + 12 * segmentSizes.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size);
+        buffer.put("sidx".getBytes(StandardCharsets.ISO_8859_1));
+        buffer.putInt(1 << 24); // version 1, flags 0
+        buffer.putInt((int) trackId);
+        buffer.putInt((int) timescale);
+        buffer.putLong(earliestPresentationTime);
+        buffer.putLong(0); // first_offset
+        buffer.putShort((short) 0); // reserved
+        buffer.putShort((short) segmentSizes.length);
+        for (int i = 0; i < segmentSizes.length; i++) {
+            buffer.putInt(segmentSizes[i] & 0x7FFFFFFF); // reference_type 0 (media)
+            buffer.putInt(segmentDurations[i]);
+            buffer.putInt(0x90000000); // starts_with_SAP 1, SAP_type 1, SAP_delta_time 0
+        }
+        return buffer.array();
+    }
+
+    // Init segment: moov altındaki trak sayısı
+    static int trackCount(byte[] init) {
+        ByteBuffer buffer = ByteBuffer.wrap(init);
+        int moov = findBox(buffer, 0, init.length, "moov");
+        int count = 0;
+        if (moov >= 0) {
+            for (int trak = findBox(buffer, contentStart(buffer, moov), boxEnd(buffer, moov), "trak"); trak >= 0;
+                 trak = findBox(buffer, boxEnd(buffer, trak), boxEnd(buffer, moov), "trak")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Fragment: verilen track'in [ilk decode zamanı, son örnekten sonraki decode zamanı]; track yoksa null
+    static long[] trackDecodeRange(byte[] fragment, long trackId, long defaultSampleDuration) {
+        ByteBuffer buffer = ByteBuffer.wrap(fragment);
+        int traf = findTraf(buffer, fragment.length, trackId);
+        if (traf < 0) {
+            return null;
+        }
+        int tfdt = findBox(buffer, contentStart(buffer, traf), boxEnd(buffer, traf), "tfdt");
+        long start = tfdt >= 0 ? readTfdt(buffer, tfdt) : 0;
+        return new long[]{start, trafEndDecodeTime(buffer, traf, defaultSampleDuration)};
+    }
+
+    // Fragment: verilen track'in ilk örneği keyframe (sync sample) mı
+    static boolean startsWithSyncSample(byte[] fragment, long trackId) {
+        ByteBuffer buffer = ByteBuffer.wrap(fragment);
+        int traf = findTraf(buffer, fragment.length, trackId);
+        if (traf < 0) {
+            return false;
+        }
+        int start = contentStart(buffer, traf);
+        int end = boxEnd(buffer, traf);
+
+        Integer sampleFlags = null;
+        int tfhd = findBox(buffer, start, end, "tfhd");
+        if (tfhd >= 0) {
+            int content = contentStart(buffer, tfhd);
+            int flags = buffer.getInt(content) & 0xFFFFFF;
+            int offset = content + 8;
+            offset += (flags & TFHD_BASE_DATA_OFFSET) != 0 ? 8 : 0;
+            offset += (flags & TFHD_SAMPLE_DESCRIPTION_INDEX) != 0 ? 4 : 0;
+            offset += (flags & TFHD_DEFAULT_SAMPLE_DURATION) != 0 ? 4 : 0;
+            offset += (flags & TFHD_DEFAULT_SAMPLE_SIZE) != 0 ? 4 : 0;
+            if ((flags & TFHD_DEFAULT_SAMPLE_FLAGS) != 0) {
+                sampleFlags = buffer.getInt(offset);
+            }
+        }
+
+        int trun = findBox(buffer, start, end, "trun");
+        if (trun >= 0) {
+            int content = contentStart(buffer, trun);
+            int flags = buffer.getInt(content) & 0xFFFFFF;
+            int offset = content + 8;
+            offset += (flags & TRUN_DATA_OFFSET) != 0 ? 4 : 0;
+            if ((flags & TRUN_FIRST_SAMPLE_FLAGS) != 0) {
+                sampleFlags = buffer.getInt(offset);
+            } else if ((flags & TRUN_SAMPLE_FLAGS) != 0) {
+                offset += (flags & TRUN_SAMPLE_DURATION) != 0 ? 4 : 0;
+                offset += (flags & TRUN_SAMPLE_SIZE) != 0 ? 4 : 0;
+                sampleFlags = buffer.getInt(offset);
+            }
+        }
+        // Bayrak yoksa (trex varsayılanı) keyframe kabul edilir
+        return sampleFlags == null || (sampleFlags & SAMPLE_IS_NON_SYNC) == 0;
+    }
+
+    private static int findTraf(ByteBuffer buffer, int length, long trackId) {
+        for (int moof = findBox(buffer, 0, length, "moof"); moof >= 0;
+             moof = findBox(buffer, boxEnd(buffer, moof), length, "moof")) {
+            for (int traf = findBox(buffer, contentStart(buffer, moof), boxEnd(buffer, moof), "traf"); traf >= 0;
+                 traf = findBox(buffer, boxEnd(buffer, traf), boxEnd(buffer, moof), "traf")) {
+                int tfhd = findBox(buffer, contentStart(buffer, traf), boxEnd(buffer, traf), "tfhd");
+                if (tfhd >= 0 && Integer.toUnsignedLong(buffer.getInt(contentStart(buffer, tfhd) + 4)) == trackId) {
+                    return traf;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long trafEndDecodeTime(ByteBuffer buffer, int traf, long defaultSampleDuration) {
+        int start = contentStart(buffer, traf);
+        int end = boxEnd(buffer, traf);
+
+        long trackDefaultDuration = trafDefaultDuration(buffer, traf, defaultSampleDuration);
+        int tfdt = findBox(buffer, start, end, "tfdt");
+        long decodeTime = tfdt >= 0 ? readTfdt(buffer, tfdt) : 0;
+
+        for (int trun = findBox(buffer, start, end, "trun"); trun >= 0;
+             trun = findBox(buffer, boxEnd(buffer, trun), end, "trun")) {
+            int content = contentStart(buffer, trun);
+            int flags = buffer.getInt(content) & 0xFFFFFF;
+            long sampleCount = Integer.toUnsignedLong(buffer.getInt(content + 4));
+            int offset = content + 8;
+            if ((flags & TRUN_DATA_OFFSET) != 0) {
+                offset += 4;
+            }
+            if ((flags & TRUN_FIRST_SAMPLE_FLAGS) != 0) {
+                offset += 4;
+            }
+            decodeTime += (flags & TRUN_SAMPLE_DURATION) == 0 ? sampleCount * trackDefaultDuration
+                    : trunDurationSum(buffer, offset, flags, sampleCount);
+        }
+        return decodeTime;
+    }
+
+    private static long trafEarliestPresentationTime(ByteBuffer buffer, int traf, long defaultSampleDuration) {
+        int start = contentStart(buffer, traf);
+        int end = boxEnd(buffer, traf);
+        long trackDefaultDuration = trafDefaultDuration(buffer, traf, defaultSampleDuration);
+        int tfdt = findBox(buffer, start, end, "tfdt");
+        long decodeTime = tfdt >= 0 ? readTfdt(buffer, tfdt) : 0;
+
+        long earliest = Long.MAX_VALUE;
+        for (int trun = findBox(buffer, start, end, "trun"); trun >= 0;
+             trun = findBox(buffer, boxEnd(buffer, trun), end, "trun")) {
+            int content = contentStart(buffer, trun);
+            int version = buffer.get(content) & 0xFF;
+            int flags = buffer.getInt(content) & 0xFFFFFF;
+            long sampleCount = Integer.toUnsignedLong(buffer.getInt(content + 4));
+            int offset = content + 8;
+            if ((flags & TRUN_DATA_OFFSET) != 0) {
+                offset += 4;
+            }
+            if ((flags & TRUN_FIRST_SAMPLE_FLAGS) != 0) {
+                offset += 4;
+            }
+            if ((flags & TRUN_SAMPLE_CTO) == 0) {
+                // Composition offset yok: sunum zamanı = decode zamanı
+                if (sampleCount > 0) {
+                    earliest = Math.min(earliest, decodeTime);
+                }
+                decodeTime += (flags & TRUN_SAMPLE_DURATION) == 0 ? sampleCount * trackDefaultDuration
+                        : trunDurationSum(buffer, offset, flags, sampleCount);
+                continue;
+            }
+            for (long i = 0; i < sampleCount; i++) {
+                long duration = trackDefaultDuration;
+                if ((flags & TRUN_SAMPLE_DURATION) != 0) {
+                    duration = Integer.toUnsignedLong(buffer.getInt(offset));
+                    offset += 4;
+                }
+                offset += (flags & TRUN_SAMPLE_SIZE) != 0 ? 4 : 0;
+                offset += (flags & TRUN_SAMPLE_FLAGS) != 0 ? 4 : 0;
+                // v0: işaretsiz, v1: işaretli composition offset
+                int cto = buffer.getInt(offset);
+                offset += 4;
+                earliest = Math.min(earliest, decodeTime + (version == 0 ? Integer.toUnsignedLong(cto) : cto));
+                decodeTime += duration;
+            }
+        }
+        return earliest;
+    }
+
+    private static long trunDurationSum(ByteBuffer buffer, int offset, int flags, long sampleCount) {
+        int sampleSize = 4 * Integer.bitCount(flags & (TRUN_SAMPLE_DURATION | TRUN_SAMPLE_SIZE
+                | TRUN_SAMPLE_FLAGS | TRUN_SAMPLE_CTO));
+        long sum = 0;
+        for (long i = 0; i < sampleCount; i++) {
+            sum += Integer.toUnsignedLong(buffer.getInt(offset));
+            offset += sampleSize;
+        }
+        return sum;
+    }
+
+    // tfhd default_sample_duration, yoksa trex varsayılanı
+    private static long trafDefaultDuration(ByteBuffer buffer, int traf, long defaultSampleDuration) {
+        int tfhd = findBox(buffer, contentStart(buffer, traf), boxEnd(buffer, traf), "tfhd");
+        if (tfhd < 0) {
+            return defaultSampleDuration;
+        }
+        int content = contentStart(buffer, tfhd);
+        int flags = buffer.getInt(content) & 0xFFFFFF;
+        int offset = content + 8; // version/flags + track_ID
+        if ((flags & TFHD_BASE_DATA_OFFSET) != 0) {
+            offset += 8;
+        }
+        if ((flags & TFHD_SAMPLE_DESCRIPTION_INDEX) != 0) {
+            offset += 4;
+        }
+        return (flags & TFHD_DEFAULT_SAMPLE_DURATION) != 0
+                ? Integer.toUnsignedLong(buffer.getInt(offset))
+                : defaultSampleDuration;
+    }
+
+    private static long readTfdt(ByteBuffer buffer, int tfdt) {
+        int content = contentStart(buffer, tfdt);
+        return (buffer.get(content) & 0xFF) == 1
+                ? buffer.getLong(content + 4)
+                : Integer.toUnsignedLong(buffer.getInt(content + 4));
+    }
+
+    // [start, end) aralığında verilen tipteki ilk kutunun başlangıç offset'i, yoksa -1
+    static int findBox(ByteBuffer buffer, int start, int end, String type) {
+        int offset = start;
+        while (offset + 8 <= end) {
+            long size = boxSize(buffer, offset, end);
+            if (size < 8) {
+                return -1;
+            }
+            if (type.equals(boxType(buffer, offset))) {
+                return offset;
+            }
+            offset += (int) size;
+        }
+        return -1;
+    }
+
+    static String boxType(ByteBuffer buffer, int offset) {
+        byte[] type = new byte[4];
+        buffer.get(offset + 4, type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    static int boxEnd(ByteBuffer buffer, int offset) {
+        return offset + (int) boxSize(buffer, offset, buffer.limit());
+    }
+
+    static int contentStart(ByteBuffer buffer, int offset) {
+        return offset + (Integer.toUnsignedLong(buffer.getInt(offset)) == 1 ? 16 : 8);
+    }
+
+    private static long boxSize(ByteBuffer buffer, int offset, int end) {
+        long size = Integer.toUnsignedLong(buffer.getInt(offset));
+        if (size == 1) {
+            size = buffer.getLong(offset + 8);
+        } else if (size == 0) {
+            size = end - offset; // dosya sonuna kadar
+        }
+        return size;
+    }
+}
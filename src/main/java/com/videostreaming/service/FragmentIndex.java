@@ -0,0 +1,342 @@
+package com.videostreaming.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary index of a processed video: for every track its codec,
+ * measured bitrates, timescale and, per segment, the byte offset and size in
+ * the track's media and the keyframe (decode) time and duration in track
+ * ticks. It is written once at processing time; HLS and DASH manifests are
+ * rendered from it on request by {@link ManifestRenderer}.
+ *
+ * <p>A track is stored either as init.mp4 plus one file per segment, or - in
+ * the single-file layout - as one fragmented MP4 ({@code mediaFile}) laid out
+ * as init, sidx, segments, addressed with byte ranges.
+ *
+ * <p>Optionally it also describes the trickplay thumbnails
+ * ({@link ThumbnailSprites}).
+ */
+public class FragmentIndex {
+
+    public static final String FILE_NAME = "index.bin";
+
+    private static final int MAGIC = 0x56464958; // "VFIX"
+    private static final int VERSION = 3;
+
+    /**
+     * One output track (a video rendition or the audio track). Every segment
+     * starts with a keyframe, so {@code keyframeTimes[i]} is also the start
+     * of segment {@code i}. {@code mediaFile} is null for the per-segment
+     * layout; offsets are then positions in init + segments laid end to end.
+     */
+    public record Track(String name, boolean audio, String codecs, int width, int height,
+                        long averageBitrate, long peakBitrate, int timescale,
+                        String mediaFile, int initSize, int indexSize,
+                        long[] offsets, int[] sizes, long[] keyframeTimes, int[] durations) {
+
+        public boolean isSingleFile() {
+            return mediaFile != null;
+        }
+
+        public int segmentCount() {
+            return sizes.length;
+        }
+
+        public double durationSeconds(int segment) {
+            return durations[segment] / (double) timescale;
+        }
+
+        public double maxDurationSeconds() {
+            int max = 0;
+            for (int duration : durations) {
+                max = Math.max(max, duration);
+            }
+            return max / (double) timescale;
+        }
+    }
+
+    /**
+     * Thumbnail sprite sheets: {@code count} tiles of {@code width x height},
+     * one per {@code intervalMs}, laid out {@code columns x rows} per sheet.
+     */
+    public record Thumbnails(int intervalMs, int columns, int rows, int width, int height, int count,
+                             long bandwidth) {
+
+        public int sheetCount() {
+            return (count + columns * rows - 1) / (columns * rows);
+        }
+
+        public double sheetDurationSeconds() {
+            return columns * rows * intervalMs / 1000.0;
+        }
+    }
+
+    private final long durationMs;
+    private final double frameRate;
+    private final String frameRateRatio;
+    private final int audioSampleRate;
+    private final List<Track> tracks;
+    private final Thumbnails thumbnails;
+
+    public FragmentIndex(long durationMs, double frameRate, String frameRateRatio, int audioSampleRate,
+                         List<Track> tracks) {
+        this(durationMs, frameRate, frameRateRatio, audioSampleRate, tracks, null);
+    }
+
+    public FragmentIndex(long durationMs, double frameRate, String frameRateRatio, int audioSampleRate,
+                         List<Track> tracks, Thumbnails thumbnails) {
+        this.durationMs = durationMs;
+        this.frameRate = frameRate;
+        this.frameRateRatio = frameRateRatio;
+        this.audioSampleRate = audioSampleRate;
+        this.tracks = List.copyOf(tracks);
+        this.thumbnails = thumbnails;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    public String getFrameRateRatio() {
+        return frameRateRatio;
+    }
+
+    public int getAudioSampleRate() {
+        return audioSampleRate;
+    }
+
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    public List<Track> getVideoTracks() {
+        return tracks.stream().filter(track -> !track.audio()).toList();
+    }
+
+    public Track getAudioTrack() {
+        return tracks.stream().filter(Track::audio).findFirst().orElse(null);
+    }
+
+    public Track getTrack(String name) {
+        return tracks.stream().filter(track -> track.name().equals(name)).findFirst().orElse(null);
+    }
+
+    // Küçük resimler üretilmediyse (kapalı, eski video) null
+    public Thumbnails getThumbnails() {
+        return thumbnails;
+    }
+
+    /**
+     * Indexes the segments ffmpeg wrote into {@code trackDir} (init.mp4 and
+     * segment_NNN.m4s). Times come from the fragments' tfdt/trun boxes, so no
+     * playlist has to be parsed; bitrates are measured from segment sizes.
+     */
+    public static Track indexTrack(Path trackDir, String name, boolean audio, String codecs,
+                                   int width, int height) throws IOException {
+        byte[] init = Files.readAllBytes(trackDir.resolve("init.mp4"));
+        long timescale = Fmp4Boxes.readTimescale(init);
+        long defaultSampleDuration = Fmp4Boxes.readDefaultSampleDuration(init);
+
+        List<long[]> segments = new ArrayList<>(); // {size, start, duration}
+        for (int i = 0; ; i++) {
+            Path segmentPath = trackDir.resolve(String.format("segment_%03d.m4s", i));
+            if (!Files.exists(segmentPath)) {
+                break;
+            }
+            byte[] segment = Files.readAllBytes(segmentPath);
+            long start = Fmp4Boxes.firstDecodeTime(segment);
+            long end = Fmp4Boxes.endDecodeTime(segment, defaultSampleDuration);
+            segments.add(new long[]{segment.length, start, end - start});
+        }
+        if (segments.isEmpty()) {
+            throw new IOException("No segments found in " + trackDir);
+        }
+
+        int count = segments.size();
+        long[] offsets = new long[count];
+        int[] sizes = new int[count];
+        long[] keyframeTimes = new long[count];
+        int[] durations = new int[count];
+        long offset = init.length; // init + segmentler art arda düşünülür
+        long totalBytes = 0;
+        double peakBitrate = 0;
+        for (int i = 0; i < count; i++) {
+            long[] segment = segments.get(i);
+            offsets[i] = offset;
+            sizes[i] = (int) segment[0];
+            keyframeTimes[i] = segment[1];
+            durations[i] = (int) segment[2];
+            offset += segment[0];
+            totalBytes += segment[0];
+
+            // Çok kısa (son) segmentler tepe bitrate'i yanıltır
+            double seconds = segment[2] / (double) timescale;
+            if (seconds >= 1.0) {
+                peakBitrate = Math.max(peakBitrate, segment[0] * 8 / seconds);
+            }
+        }
+        double totalSeconds = (keyframeTimes[count - 1] + durations[count - 1] - keyframeTimes[0]) / (double) timescale;
+        long averageBitrate = totalSeconds > 0 ? Math.round(totalBytes * 8 / totalSeconds) : 0;
+        long peak = peakBitrate > 0 ? Math.round(peakBitrate) : averageBitrate;
+
+        return new Track(name, audio, codecs, width, height, averageBitrate, peak, (int) timescale,
+                null, init.length, 0, offsets, sizes, keyframeTimes, durations);
+    }
+
+    /**
+     * Packs an indexed per-segment track into one file, {@code mediaFile},
+     * written as init, sidx, segments, and deletes the per-segment files.
+     * Fragments use default-base-is-moof, so their data offsets stay valid
+     * after concatenation.
+     */
+    public static Track packSingleFile(Path trackDir, Track track, String mediaFile) throws IOException {
+        Path init = trackDir.resolve("init.mp4");
+        byte[] initBytes = Files.readAllBytes(init);
+        // sidx EPT sunum zamanıdır: ilk segmentin composition offset'leri hesaba katılır
+        long earliestPresentationTime = Fmp4Boxes.earliestPresentationTime(
+                Files.readAllBytes(trackDir.resolve("segment_000.m4s")),
+                Fmp4Boxes.readDefaultSampleDuration(initBytes));
+        byte[] sidx = Fmp4Boxes.buildSidx(Fmp4Boxes.readTrackId(initBytes), track.timescale(),
+                earliestPresentationTime, track.sizes(), track.durations());
+        Path temp = trackDir.resolve(mediaFile + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            out.write(initBytes);
+            out.write(sidx);
+            for (int i = 0; i < track.segmentCount(); i++) {
+                Files.copy(trackDir.resolve(String.format("segment_%03d.m4s", i)), out);
+            }
+        }
+        Files.move(temp, trackDir.resolve(mediaFile), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        Files.delete(init);
+        for (int i = 0; i < track.segmentCount(); i++) {
+            Files.delete(trackDir.resolve(String.format("segment_%03d.m4s", i)));
+        }
+
+        long[] offsets = new long[track.segmentCount()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = track.offsets()[i] + sidx.length;
+        }
+        return new Track(track.name(), track.audio(), track.codecs(), track.width(), track.height(),
+                track.averageBitrate(), track.peakBitrate(), track.timescale(),
+                mediaFile, track.initSize(), sidx.length, offsets, track.sizes(), track.keyframeTimes(),
+                track.durations());
+    }
+
+    public void write(Path outputDir) throws IOException {
+        // Yarım yazılmış index okunmasın: geçici dosyaya yaz, sonra taşı
+        Path target = outputDir.resolve(FILE_NAME);
+        Path temp = outputDir.resolve(FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(durationMs);
+            out.writeDouble(frameRate);
+            out.writeUTF(frameRateRatio);
+            out.writeInt(audioSampleRate);
+            out.writeShort(tracks.size());
+            for (Track track : tracks) {
+                out.writeUTF(track.name());
+                out.writeBoolean(track.audio());
+                out.writeUTF(track.codecs());
+                out.writeInt(track.width());
+                out.writeInt(track.height());
+                out.writeLong(track.averageBitrate());
+                out.writeLong(track.peakBitrate());
+                out.writeInt(track.timescale());
+                out.writeUTF(track.mediaFile() != null ? track.mediaFile() : "");
+                out.writeInt(track.initSize());
+                out.writeInt(track.indexSize());
+                out.writeInt(track.segmentCount());
+                for (int i = 0; i < track.segmentCount(); i++) {
+                    out.writeLong(track.offsets()[i]);
+                    out.writeInt(track.sizes()[i]);
+                    out.writeLong(track.keyframeTimes()[i]);
+                    out.writeInt(track.durations()[i]);
+                }
+            }
+            out.writeBoolean(thumbnails != null);
+            if (thumbnails != null) {
+                out.writeInt(thumbnails.intervalMs());
+                out.writeShort(thumbnails.columns());
+                out.writeShort(thumbnails.rows());
+                out.writeShort(thumbnails.width());
+                out.writeShort(thumbnails.height());
+                out.writeInt(thumbnails.count());
+                out.writeLong(thumbnails.bandwidth());
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static FragmentIndex read(Path outputDir) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(outputDir.resolve(FILE_NAME))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a fragment index: " + outputDir);
+            }
+            int version = in.readShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported fragment index version " + version);
+            }
+            long durationMs = in.readLong();
+            double frameRate = in.readDouble();
+            String frameRateRatio = in.readUTF();
+            int audioSampleRate = in.readInt();
+            int trackCount = in.readShort();
+
+            List<Track> tracks = new ArrayList<>(trackCount);
+            for (int t = 0; t < trackCount; t++) {
+                String name = in.readUTF();
+                boolean audio = in.readBoolean();
+                String codecs = in.readUTF();
+                int width = in.readInt();
+                int height = in.readInt();
+                long averageBitrate = in.readLong();
+                long peakBitrate = in.readLong();
+                int timescale = in.readInt();
+                // v1 yalnızca segment başına dosya düzenini bilir
+                String mediaFile = version >= 2 ? in.readUTF() : "";
+                int initSize = version >= 2 ? in.readInt() : -1;
+                int indexSize = version >= 2 ? in.readInt() : 0;
+                int count = in.readInt();
+                long[] offsets = new long[count];
+                int[] sizes = new int[count];
+                long[] keyframeTimes = new long[count];
+                int[] durations = new int[count];
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = in.readLong();
+                    sizes[i] = in.readInt();
+                    keyframeTimes[i] = in.readLong();
+                    durations[i] = in.readInt();
+                }
+                tracks.add(new Track(name, audio, codecs, width, height, averageBitrate, peakBitrate, timescale,
+                        mediaFile.isEmpty() ? null : mediaFile,
+                        initSize >= 0 ? initSize : (int) (count > 0 ? offsets[0] : 0), indexSize,
+                        offsets, sizes, keyframeTimes, durations));
+            }
+            // v3: küçük resim ızgarası
+            Thumbnails thumbnails = null;
+            if (version >= 3 && in.readBoolean()) {
+                thumbnails = new Thumbnails(in.readInt(), in.readShort(), in.readShort(), in.readShort(),
+                        in.readShort(), in.readInt(), in.readLong());
+            }
+            return new FragmentIndex(durationMs, frameRate, frameRateRatio, audioSampleRate, tracks, thumbnails);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.videostreaming.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * A file that is still being written by an upload. The upload reports how
+ * many bytes have reached the disk; readers block until more data arrives
+ * and see end-of-file only once the upload has completed. Used to feed
+ * ffmpeg while the client is still sending the file. A reader that sees no
+ * new data for {@code idleTimeout} fails, so a stalled or silently dropped
+ * upload cannot block the encoding worker forever.
+ */
+public class GrowingFile {
+
+    private static final long WAIT_MILLIS = 1000;
+
+    private final Path path;
+    private final long idleTimeoutMillis;
+    private long written;
+    private long lastProgress;
+    private boolean complete;
+    private Throwable failure;
+
+    public GrowingFile(Path path, Duration idleTimeout) {
+        this.path = path;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.lastProgress = System.currentTimeMillis();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized void advance(long bytes) {
+        written += bytes;
+        lastProgress = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    public synchronized void complete() {
+        complete = true;
+        notifyAll();
+    }
+
+    // Tamamlanmış bir yükleme sonradan başarısız olamaz (ör. tamamlandıktan sonraki iptal)
+    public synchronized void fail(Throwable error) {
+        if (complete || failure != null) {
+            return;
+        }
+        failure = error;
+        notifyAll();
+    }
+
+    // En az verilen uzunluk (veya yükleme sonu) yazılana kadar bekler; yazılmış byte sayısını döner
+    public synchronized long awaitLength(long length) throws IOException, InterruptedException {
+        while (written < length && !complete) {
+            checkFailure();
+            awaitProgress();
+        }
+        checkFailure();
+        return written;
+    }
+
+    public synchronized long awaitComplete() throws IOException, InterruptedException {
+        while (!complete) {
+            checkFailure();
+            awaitProgress();
+        }
+        checkFailure();
+        return written;
+    }
+
+    public byte[] readPrefix(int length) throws IOException, InterruptedException {
+        int available = (int) Math.min(length, awaitLength(length));
+        ByteBuffer buffer = ByteBuffer.allocate(available);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    public InputStream openStream() throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new InputStream() {
+            private long position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                long end;
+                try {
+                    end = awaitLength(position + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for upload data", e);
+                }
+                if (end <= position) {
+                    return -1; // yükleme tamamlandı, dosya sonu
+                }
+                int count = channel.read(ByteBuffer.wrap(target, offset,
+                        (int) Math.min(length, end - position)), position);
+                if (count > 0) {
+                    position += count;
+                }
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private void awaitProgress() throws IOException, InterruptedException {
+        long idle = System.currentTimeMillis() - lastProgress;
+        if (idle >= idleTimeoutMillis) {
+            throw new IOException("Upload stalled: no data for " + idle + " ms");
+        }
+        wait(Math.min(WAIT_MILLIS, idleTimeoutMillis - idle));
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Upload failed: " + failure.getMessage(), failure);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.videostreaming.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Off-heap cache for the files every player asks for first: manifests, init
+ * segments and the first few media segments of each rendition. Contents live
+ * in direct ByteBuffers bounded by a byte budget; Caffeine's W-TinyLFU
+ * admission keeps one-off reads from evicting popular titles. Concurrent
+ * misses for the same file share a single disk read.
+ */
+@Service
+public class HotSegmentCache {
+
+    private static final Pattern SEGMENT_NUMBER = Pattern.compile("segment_(\\d+)\\.m4s$");
+
+    private final AsyncCache<String, ByteBuffer> cache;
+    private final int firstSegments;
+    private final long maxEntryBytes;
+
+    public HotSegmentCache(MeterRegistry meterRegistry,
+                           @Value("${video.segments.hot-cache.max-bytes:268435456}") long maxBytes,
+                           @Value("${video.segments.hot-cache.first-segments:6}") int firstSegments,
+                           @Value("${video.segments.hot-cache.max-entry-bytes:8388608}") long maxEntryBytes) {
+        this.firstSegments = firstSegments;
+        this.maxEntryBytes = maxEntryBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, ByteBuffer buffer) -> buffer.capacity())
+                // Disk okuması bloklayıcı - event loop yerine boundedElastic üzerinde
+                .executor(runnable -> Schedulers.boundedElastic().schedule(runnable))
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "segments.hot");
+        Gauge.builder("segments.hot.bytes", cache, c -> c.synchronous().policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L))
+                .description("Bytes held in the off-heap hot segment cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Manifestler, init segmentleri ve her rendition'ın ilk N segmenti önbelleğe alınır
+    public boolean isCandidate(String relativePath, long length) {
+        if (length > maxEntryBytes) {
+            return false;
+        }
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        if (name.equals("init.mp4") || name.endsWith(".m3u8") || name.endsWith(".mpd")) {
+            return true;
+        }
+        Matcher matcher = SEGMENT_NUMBER.matcher(name);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) < firstSegments;
+    }
+
+    /**
+     * Returns a read-only view of the file contents, loading them on a miss.
+     * Callers get their own buffer position and may hand it to Netty as is.
+     */
+    public Mono<ByteBuffer> get(Long videoId, String relativePath, SegmentFileCache.SegmentFile file) {
+        String key = videoId + "/" + relativePath;
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) ->
+                        CompletableFuture.supplyAsync(() -> load(file), executor)), true)
+                .map(ByteBuffer::asReadOnlyBuffer);
+    }
+
+    public boolean contains(Long videoId, String relativePath) {
+        return cache.getIfPresent(videoId + "/" + relativePath) != null;
+    }
+
+    public void invalidate(Long videoId) {
+        String prefix = videoId + "/";
+        cache.synchronous().asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private ByteBuffer load(SegmentFileCache.SegmentFile file) {
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) file.length());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.videostreaming.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of one live stream: the init segment and a sliding window of CMAF
+ * segments, each built from the parts (moof+mdat fragments) ffmpeg writes.
+ * Playlists are rendered from memory; a segment's playlist lines are
+ * rendered once when it completes, so a reload only renders the open
+ * segment. Every new part is published to waiting blocking-reload requests.
+ */
+public class LiveStream {
+
+    // Canlı çıktıda video her zaman ilk track
+    private static final long VIDEO_TRACK_ID = 1;
+    // Segment başına EXT-X-PART satırları yalnızca son segmentler için yazılır
+    private static final int PART_SEGMENTS = 3;
+
+    public record Status(String name, String source, Instant startedAt, long mediaSequence,
+                         int segmentCount, boolean ended) {
+    }
+
+    private record Part(byte[] data, double duration, boolean independent) {
+    }
+
+    private record SegmentChunk(List<byte[]> parts, boolean last) {
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final long startTime; // video timescale
+        private final List<Part> parts = new ArrayList<>();
+        private double duration;
+        private boolean complete;
+        private String playlistLines;
+        private String partLines;
+        private byte[] data;
+
+        private Segment(long sequence, long startTime) {
+            this.sequence = sequence;
+            this.startTime = startTime;
+        }
+    }
+
+    private final String name;
+    private final String source;
+    private final Instant startedAt = Instant.now();
+    private final int segmentSeconds;
+    private final double partTarget;
+    private final int windowSegments;
+    private final String videoCodecs;
+    private final int bitrateKbps;
+    private final double frameRate;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Sinks.Many<Long> updates = Sinks.many().replay().latest();
+
+    private byte[] init;
+    private long timescale;
+    private long defaultSampleDuration;
+    private boolean hasAudio;
+    private long firstStartTime = -1;
+    private Instant availabilityStart;
+    private long nextSequence;
+    private boolean ended;
+    private long version;
+
+    private long hlsVersion = -1;
+    private String hlsPlaylist;
+    private long dashVersion = -1;
+    private String dashManifest;
+
+    public LiveStream(String name, String source, int segmentSeconds, double partTarget, int windowSegments,
+                      Rendition rendition, double frameRate) {
+        this.name = name;
+        this.source = source;
+        this.segmentSeconds = segmentSeconds;
+        this.partTarget = partTarget;
+        this.windowSegments = windowSegments;
+        this.videoCodecs = rendition.getCodecs(frameRate);
+        this.bitrateKbps = rendition.getMaxBitrateKbps();
+        this.frameRate = frameRate;
+        publish();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized Status status() {
+        Segment first = segments.peekFirst();
+        return new Status(name, source, startedAt, first != null ? first.sequence : 0, segments.size(), ended);
+    }
+
+    synchronized void setInit(byte[] init) throws IOException {
+        this.init = init;
+        this.timescale = Fmp4Boxes.readTimescale(init);
+        this.defaultSampleDuration = Fmp4Boxes.readDefaultSampleDuration(init);
+        this.hasAudio = Fmp4Boxes.trackCount(init) > 1;
+        publish();
+    }
+
+    synchronized void addFragment(byte[] fragment) {
+        if (init == null) {
+            return;
+        }
+        long[] range = Fmp4Boxes.trackDecodeRange(fragment, VIDEO_TRACK_ID, defaultSampleDuration);
+        if (range == null) {
+            return; // video örneği olmayan fragment
+        }
+        boolean independent = Fmp4Boxes.startsWithSyncSample(fragment, VIDEO_TRACK_ID);
+        double duration = (range[1] - range[0]) / (double) timescale;
+
+        if (firstStartTime < 0) {
+            firstStartTime = range[0];
+            // İlk part süresi kadar önce üretilmeye başlandı
+            availabilityStart = Instant.now().minusMillis(Math.round(duration * 1000));
+        }
+
+        // Her keyframe yeni bir segment başlatır (ffmpeg segment süresinde keyframe zorlar)
+        Segment current = segments.peekLast();
+        if (current == null || current.complete || (independent && !current.parts.isEmpty())) {
+            if (current != null && !current.complete) {
+                completeSegment(current);
+            }
+            current = new Segment(nextSequence++, range[0]);
+            segments.addLast(current);
+            while (segments.size() > windowSegments) {
+                segments.removeFirst();
+            }
+        }
+        current.parts.add(new Part(fragment, duration, independent));
+        current.duration += duration;
+        publish();
+    }
+
+    synchronized void end() {
+        Segment current = segments.peekLast();
+        if (current != null && !current.complete) {
+            completeSegment(current);
+        }
+        ended = true;
+        publish();
+    }
+
+    public synchronized boolean isEnded() {
+        return ended;
+    }
+
+    public synchronized byte[] getInit() {
+        return init;
+    }
+
+    /**
+     * Completes when part {@code part} of segment {@code msn} (or, without a
+     * part, the whole segment) is available - the blocking playlist reload
+     * and blocking preload-hint semantics of LL-HLS.
+     */
+    public Mono<Void> awaitPart(long msn, Integer part, Duration timeout) {
+        synchronized (this) {
+            if (msn > nextSequence + 1) {
+                return Mono.error(new IllegalArgumentException(
+                        "_HLS_msn " + msn + " is too far beyond the live edge " + (nextSequence - 1)));
+            }
+        }
+        return updates.asFlux()
+                .filter(ignored -> isAvailable(msn, part))
+                .next()
+                .then()
+                .timeout(timeout);
+    }
+
+    public Mono<byte[]> getPart(long msn, int part, Duration timeout) {
+        return awaitPart(msn, part, timeout).then(Mono.fromSupplier(() -> {
+            synchronized (this) {
+                Segment segment = find(msn);
+                return segment != null && part < segment.parts.size() ? segment.parts.get(part).data() : null;
+            }
+        }));
+    }
+
+    // Segment henüz tamamlanmadıysa partlar geldikçe gönderilir (chunked transfer)
+    public Flux<byte[]> streamSegment(long msn) {
+        synchronized (this) {
+            Segment first = segments.peekFirst();
+            if ((first != null && msn < first.sequence) || msn > nextSequence) {
+                return Flux.empty();
+            }
+            Segment segment = find(msn);
+            if (segment != null && segment.complete) {
+                return Flux.just(segment.data);
+            }
+        }
+        AtomicInteger sent = new AtomicInteger();
+        return updates.asFlux()
+                .map(ignored -> nextChunk(msn, sent))
+                .takeUntil(SegmentChunk::last)
+                .concatMapIterable(SegmentChunk::parts)
+                .timeout(Duration.ofSeconds(segmentSeconds * 3L));
+    }
+
+    public synchronized String renderHlsPlaylist() {
+        if (hlsVersion == version) {
+            return hlsPlaylist;
+        }
+        StringBuilder playlist = new StringBuilder();
+        playlist.append("#EXTM3U\n");
+        playlist.append("#EXT-X-VERSION:9\n");
+        playlist.append("#EXT-X-TARGETDURATION:").append(segmentSeconds).append("\n");
+        playlist.append(String.format(Locale.ROOT,
+                "#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES,PART-HOLD-BACK=%.3f\n", partTarget * 3));
+        playlist.append(String.format(Locale.ROOT, "#EXT-X-PART-INF:PART-TARGET=%.3f\n", partTarget));
+        Segment first = segments.peekFirst();
+        playlist.append("#EXT-X-MEDIA-SEQUENCE:").append(first != null ? first.sequence : 0).append("\n");
+        playlist.append("#EXT-X-MAP:URI=\"init.mp4\"\n");
+
+        int index = 0;
+        int partsFrom = segments.size() - PART_SEGMENTS;
+        for (Segment segment : segments) {
+            if (index == 0 || segment.complete || !segment.parts.isEmpty()) {
+                playlist.append("#EXT-X-PROGRAM-DATE-TIME:").append(wallClock(segment)).append("\n");
+            }
+            if (index++ >= partsFrom) {
+                playlist.append(segment.complete ? segment.partLines : renderPartLines(segment));
+            }
+            if (segment.complete) {
+                playlist.append(segment.playlistLines);
+            }
+        }
+
+        Segment last = segments.peekLast();
+        if (ended) {
+            playlist.append("#EXT-X-ENDLIST\n");
+        } else if (last != null) {
+            // Sıradaki part için önceden istek (sunucu part hazır olana kadar bekletir)
+            long hintSequence = last.complete ? last.sequence + 1 : last.sequence;
+            int hintPart = last.complete ? 0 : last.parts.size();
+            playlist.append("#EXT-X-PRELOAD-HINT:TYPE=PART,URI=\"")
+                    .append(partName(hintSequence, hintPart)).append("\"\n");
+        }
+
+        hlsPlaylist = playlist.toString();
+        hlsVersion = version;
+        return hlsPlaylist;
+    }
+
+    public synchronized String renderDashManifest() {
+        if (dashVersion == version) {
+            return dashManifest;
+        }
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        manifest.append("<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" ");
+        manifest.append("profiles=\"urn:mpeg:dash:profile:isoff-live:2011\" ");
+        manifest.append("type=\"dynamic\" ");
+        manifest.append("availabilityStartTime=\"")
+                .append(availabilityStart != null ? availabilityStart : startedAt).append("\" ");
+        manifest.append("publishTime=\"").append(Instant.now()).append("\" ");
+        if (ended) {
+            manifest.append(String.format(Locale.ROOT, "mediaPresentationDuration=\"PT%.3fS\" ",
+                    nextSequence * (double) segmentSeconds));
+        } else {
+            manifest.append("minimumUpdatePeriod=\"PT").append(segmentSeconds).append("S\" ");
+        }
+        manifest.append("timeShiftBufferDepth=\"PT").append(windowSegments * segmentSeconds).append("S\" ");
+        manifest.append(String.format(Locale.ROOT, "suggestedPresentationDelay=\"PT%.3fS\" ", partTarget * 3));
+        manifest.append("maxSegmentDuration=\"PT").append(segmentSeconds).append("S\" ");
+        manifest.append(String.format(Locale.ROOT, "minBufferTime=\"PT%.3fS\">\n", partTarget * 2));
+
+        manifest.append("  <Period id=\"0\" start=\"PT0S\">\n");
+        manifest.append("    <AdaptationSet mimeType=\"video/mp4\" segmentAlignment=\"true\" startWithSAP=\"1\">\n");
+        manifest.append("      <Representation id=\"live\" codecs=\"").append(videoCodecs)
+                .append(hasAudio ? ",mp4a.40.2" : "").append("\" ");
+        manifest.append("bandwidth=\"").append(bitrateKbps * 1000L).append("\" ");
+        manifest.append(String.format(Locale.ROOT, "frameRate=\"%s\">\n", formatFrameRate()));
+        // Segment yayınlanırken partlar chunked transfer ile gelir: segment bitmeden istenebilir
+        manifest.append("        <SegmentTemplate timescale=\"").append(timescale > 0 ? timescale : 1000).append("\" ");
+        manifest.append("duration=\"").append(segmentSeconds * (timescale > 0 ? timescale : 1000)).append("\" ");
+        manifest.append("presentationTimeOffset=\"").append(Math.max(0, firstStartTime)).append("\" ");
+        manifest.append("startNumber=\"0\" initialization=\"init.mp4\" media=\"segment_$Number$.m4s\" ");
+        manifest.append(String.format(Locale.ROOT, "availabilityTimeOffset=\"%.3f\" ", segmentSeconds - partTarget));
+        manifest.append("availabilityTimeComplete=\"false\"/>\n");
+        manifest.append("      </Representation>\n");
+        manifest.append("    </AdaptationSet>\n");
+        manifest.append("  </Period>\n");
+        manifest.append("  <UTCTiming schemeIdUri=\"urn:mpeg:dash:utc:http-iso:2014\" value=\"../time\"/>\n");
+        manifest.append("</MPD>\n");
+
+        dashManifest = manifest.toString();
+        dashVersion = version;
+        return dashManifest;
+    }
+
+    static String partName(long sequence, int part) {
+        return "part_" + sequence + "." + part + ".m4s";
+    }
+
+    private void publish() {
+        version++;
+        updates.tryEmitNext(version);
+    }
+
+    private synchronized boolean isAvailable(long msn, Integer part) {
+        if (ended) {
+            return true;
+        }
+        Segment first = segments.peekFirst();
+        if (first != null && msn < first.sequence) {
+            return true; // pencereden çıkmış
+        }
+        Segment segment = find(msn);
+        if (segment == null) {
+            return false;
+        }
+        return segment.complete || (part != null && segment.parts.size() > part);
+    }
+
+    private synchronized SegmentChunk nextChunk(long msn, AtomicInteger sent) {
+        Segment segment = find(msn);
+        if (segment == null) {
+            Segment first = segments.peekFirst();
+            return new SegmentChunk(List.of(), ended || (first != null && msn < first.sequence));
+        }
+        List<byte[]> fresh = new ArrayList<>();
+        for (int i = sent.get(); i < segment.parts.size(); i++) {
+            fresh.add(segment.parts.get(i).data());
+        }
+        sent.set(segment.parts.size());
+        return new SegmentChunk(fresh, segment.complete);
+    }
+
+    private Segment find(long msn) {
+        for (Segment segment : segments) {
+            if (segment.sequence == msn) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private void completeSegment(Segment segment) {
+        segment.complete = true;
+        segment.partLines = renderPartLines(segment);
+        segment.playlistLines = String.format(Locale.ROOT, "#EXTINF:%.3f,\nsegment_%d.m4s\n",
+                segment.duration, segment.sequence);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (Part part : segment.parts) {
+            data.writeBytes(part.data());
+        }
+        segment.data = data.toByteArray();
+    }
+
+    private String renderPartLines(Segment segment) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < segment.parts.size(); i++) {
+            Part part = segment.parts.get(i);
+            lines.append(String.format(Locale.ROOT, "#EXT-X-PART:DURATION=%.3f,URI=\"%s\"",
+                    part.duration(), partName(segment.sequence, i)));
+            if (part.independent()) {
+                lines.append(",INDEPENDENT=YES");
+            }
+            lines.append("\n");
+        }
+        return lines.toString();
+    }
+
+    private String wallClock(Segment segment) {
+        Instant start = availabilityStart != null ? availabilityStart : startedAt;
+        long offsetMillis = timescale > 0 ? (segment.startTime - firstStartTime) * 1000 / timescale : 0;
+        return start.plusMillis(offsetMillis).toString();
+    }
+
+    private String formatFrameRate() {
+        return frameRate == Math.rint(frameRate)
+                ? String.valueOf((long) frameRate)
+                : String.format(Locale.ROOT, "%.3f", frameRate);
+    }
+}
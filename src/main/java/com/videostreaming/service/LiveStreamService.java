@@ -0,0 +1,322 @@
+package com.videostreaming.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Low-latency live streams. ffmpeg encodes the source into fragmented MP4 on
+ * stdout with a fragment per part target; the fragments are parsed as they
+ * arrive and kept in memory by {@link LiveStream}, which serves them as
+ * LL-HLS parts and as chunked DASH segments. Nothing is written to disk.
+ */
+@Service
+public class LiveStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStreamService.class);
+
+    private static final Pattern STREAM_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    // Dosya dışındaki kaynaklar; http(s) sunucudan rastgele adreslere istek atılmasın diye yok
+    private static final Set<String> SOURCE_SCHEMES = Set.of("rtmp", "rtmps", "srt", "udp", "rtp");
+    // Tek bir box için üst sınır (bozuk çıktıya karşı)
+    private static final long MAX_BOX_SIZE = 64L * 1024 * 1024;
+
+    private final Map<String, LiveStream> streams = new ConcurrentHashMap<>();
+    private final Map<String, Process> processes = new ConcurrentHashMap<>();
+
+    @Value("${video.storage.path}")
+    private String storagePath;
+
+    @Value("${ffmpeg.path}")
+    private String ffmpegPath;
+
+    @Value("${video.ladder.audio-bitrate:128}")
+    private int audioBitrateKbps;
+
+    @Value("${video.live.segment-seconds:2}")
+    private int segmentSeconds;
+
+    @Value("${video.live.part-ms:500}")
+    private int partMillis;
+
+    @Value("${video.live.window-segments:10}")
+    private int windowSegments;
+
+    @Value("${video.live.height:720}")
+    private int height;
+
+    @Value("${video.live.bitrate-kbps:2800}")
+    private int bitrateKbps;
+
+    @Value("${video.live.frame-rate:30}")
+    private int frameRate;
+
+    @Value("${video.live.max-streams:4}")
+    private int maxStreams;
+
+    public Duration partTarget() {
+        return Duration.ofMillis(partMillis);
+    }
+
+    public int getSegmentSeconds() {
+        return segmentSeconds;
+    }
+
+    public Mono<LiveStream> get(String name) {
+        return Mono.justOrEmpty(streams.get(name));
+    }
+
+    public Collection<LiveStream> list() {
+        return streams.values();
+    }
+
+    /**
+     * Starts a live stream from {@code source}: a file under the storage
+     * directory (played back in real time, optionally looped) or an
+     * rtmp/srt/udp/rtp URL. An rtmp URL on 0.0.0.0 makes ffmpeg listen for an
+     * incoming publisher.
+     */
+    public LiveStream start(String name, String source, boolean loop) throws IOException {
+        if (name == null || !STREAM_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Stream name must match " + STREAM_NAME.pattern());
+        }
+        List<String> input = inputArguments(source, loop);
+
+        LiveStream stream;
+        synchronized (streams) {
+            // Bitmiş yayın adı bloklamaz ve sınıra sayılmaz; yenisi onun yerine geçer
+            LiveStream existing = streams.get(name);
+            if (existing != null && !existing.isEnded()) {
+                throw new IllegalStateException("Live stream already exists: " + name);
+            }
+            if (streams.values().stream().filter(other -> !other.isEnded()).count() >= maxStreams) {
+                throw new IllegalStateException("Too many live streams (max " + maxStreams + ")");
+            }
+            Rendition rendition = new Rendition(height, bitrateKbps);
+            stream = new LiveStream(name, source, segmentSeconds, partMillis / 1000.0, windowSegments,
+                    rendition, frameRate);
+            streams.put(name, stream);
+        }
+
+        Process process;
+        try {
+            process = new ProcessBuilder(buildCommand(input)).start();
+        } catch (IOException e) {
+            streams.remove(name);
+            throw e;
+        }
+        processes.put(name, process);
+        process.getOutputStream().close();
+
+        Thread reader = new Thread(() -> readFragments(stream, process), "live-" + name);
+        reader.setDaemon(true);
+        reader.start();
+        Thread logs = new Thread(() -> drainErrors(name, process), "live-" + name + "-stderr");
+        logs.setDaemon(true);
+        logs.start();
+
+        logger.info("Live stream {} started from {}", name, source);
+        return stream;
+    }
+
+    public boolean stop(String name) {
+        LiveStream stream = streams.remove(name);
+        Process process = processes.remove(name);
+        if (process != null) {
+            process.destroy();
+        }
+        if (stream != null) {
+            stream.end();
+            logger.info("Live stream {} stopped", name);
+        }
+        return stream != null;
+    }
+
+    private List<String> inputArguments(String source, boolean loop) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("Source is required");
+        }
+        List<String> input = new ArrayList<>();
+        if (source.contains("://")) {
+            URI uri = URI.create(source);
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+            if (!SOURCE_SCHEMES.contains(scheme)) {
+                throw new IllegalArgumentException("Unsupported live source scheme: " + scheme);
+            }
+            if (scheme.startsWith("rtmp") && "0.0.0.0".equals(uri.getHost())) {
+                input.addAll(List.of("-listen", "1"));
+            }
+            input.addAll(List.of("-i", source));
+            return input;
+        }
+
+        // Yerel dosya: depolama dizini dışına çıkılamaz, gerçek zamanlı oynatılır
+        Path base = Paths.get(storagePath).toAbsolutePath().normalize();
+        Path file = base.resolve(source).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Source file not found: " + source);
+        }
+        input.add("-re");
+        if (loop) {
+            input.addAll(List.of("-stream_loop", "-1"));
+        }
+        input.addAll(List.of("-i", file.toString()));
+        return input;
+    }
+
+    private List<String> buildCommand(List<String> input) {
+        int gop = frameRate * segmentSeconds;
+        // Part başına bir fragment: hedefin biraz altında kes ki partlar PART-TARGET'ı aşmasın
+        long fragmentMicros = partMillis * 900L;
+
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-hide_banner", "-loglevel", "warning"));
+        command.addAll(input);
+        command.addAll(List.of(
+                "-map", "0:v:0", "-map", "0:a:0?",
+                "-c:v", "libx264",
+                "-preset", "veryfast",
+                "-tune", "zerolatency",
+                "-vf", "scale=-2:" + height,
+                "-r", String.valueOf(frameRate),
+                "-b:v", bitrateKbps + "k",
+                "-maxrate", bitrateKbps + "k",
+                "-bufsize", (bitrateKbps * 2) + "k",
+                "-g", String.valueOf(gop),
+                "-keyint_min", String.valueOf(gop),
+                "-sc_threshold", "0",
+                "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")",
+                "-c:a", "aac",
+                "-b:a", audioBitrateKbps + "k",
+                "-ac", "2",
+                "-f", "mp4",
+                "-movflags", "empty_moov+default_base_moof+frag_keyframe",
+                "-frag_duration", String.valueOf(fragmentMicros),
+                "-flush_packets", "1",
+                "pipe:1"));
+        return command;
+    }
+
+    // ffmpeg stdout'unu box box okur: ftyp+moov init, her moof+mdat bir part
+    private void readFragments(LiveStream stream, Process process) {
+        try (DataInputStream in = new DataInputStream(process.getInputStream())) {
+            ByteArrayOutputStream init = new ByteArrayOutputStream();
+            byte[] moof = null;
+            while (true) {
+                byte[] box;
+                try {
+                    box = readBox(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                String type = new String(box, 4, 4, StandardCharsets.ISO_8859_1);
+                switch (type) {
+                    case "ftyp" -> init.writeBytes(box);
+                    case "moov" -> {
+                        init.writeBytes(box);
+                        stream.setInit(init.toByteArray());
+                    }
+                    case "moof" -> moof = box;
+                    case "mdat" -> {
+                        if (moof != null) {
+                            byte[] fragment = new byte[moof.length + box.length];
+                            System.arraycopy(moof, 0, fragment, 0, moof.length);
+                            System.arraycopy(box, 0, fragment, moof.length, box.length);
+                            stream.addFragment(fragment);
+                            moof = null;
+                        }
+                    }
+                    default -> {
+                        // styp, sidx, mfra vb. kullanılmaz
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Live stream {} output failed: {}", stream.getName(), e.getMessage());
+        } finally {
+            stream.end();
+            processes.remove(stream.getName(), process);
+            process.destroy();
+            logger.info("Live stream {} ended", stream.getName());
+            scheduleRemoval(stream);
+        }
+    }
+
+    // Oynatıcılar ENDLIST'i görebilsin diye bitmiş yayın bir pencere boyunca kalır, sonra bırakılır
+    private void scheduleRemoval(LiveStream stream) {
+        long graceSeconds = (long) windowSegments * segmentSeconds;
+        Schedulers.parallel().schedule(() -> {
+            if (streams.remove(stream.getName(), stream)) {
+                logger.info("Ended live stream {} removed", stream.getName());
+            }
+        }, graceSeconds, TimeUnit.SECONDS);
+    }
+
+    private byte[] readBox(DataInputStream in) throws IOException {
+        byte[] header = new byte[8];
+        in.readFully(header);
+        long size = ByteBuffer.wrap(header).getInt() & 0xFFFFFFFFL;
+        byte[] largeSize = null;
+        if (size == 1) {
+            largeSize = new byte[8];
+            in.readFully(largeSize);
+            size = ByteBuffer.wrap(largeSize).getLong();
+        }
+        int headerLength = largeSize == null ? 8 : 16;
+        if (size < headerLength || size > MAX_BOX_SIZE) {
+            throw new IOException("Invalid box size " + size);
+        }
+
+        byte[] box = new byte[(int) size];
+        System.arraycopy(header, 0, box, 0, 8);
+        if (largeSize != null) {
+            System.arraycopy(largeSize, 0, box, 8, 8);
+        }
+        in.readFully(box, headerLength, box.length - headerLength);
+        return box;
+    }
+
+    private void drainErrors(String name, Process process) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.debug("FFmpeg live {}: {}", name, line);
+            }
+        } catch (IOException e) {
+            logger.debug("FFmpeg live {} stderr closed: {}", name, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String name : List.copyOf(streams.keySet())) {
+            stop(name);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.videostreaming.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Renders manifests on request from a video's {@link FragmentIndex}: the HLS
+ * master playlist, one HLS (v7) media playlist per track and a DASH manifest
+ * with a SegmentTimeline, plus - if the video has trickplay thumbnails - an
+ * HLS image playlist and a DASH image adaptation set for them. The index is loaded once per video and every
+ * rendered manifest is memoized next to it, so a manifest costs one render
+ * per video while it stays in the cache.
+ */
+@Service
+public class ManifestRenderer {
+
+    public static final String HLS_PLAYLIST = "playlist.m3u8";
+    public static final String DASH_MANIFEST = "manifest.mpd";
+    // Küçük resimler /api/videos/{id}/thumbnails/ altında; HLS ve DASH manifest'lerine göre göreli
+    private static final String THUMBNAILS_PATH = "../" + ThumbnailSprites.DIR + "/";
+
+    /**
+     * A rendered manifest. The ETag is a hash of the body, so it is strong and
+     * changes only when the rendered bytes do. Last-Modified is the caller's:
+     * the index file's time is that of the local copy, not of the output.
+     */
+    public record Manifest(byte[] body, String etag) {
+    }
+
+    private record Manifests(FragmentIndex index, ConcurrentMap<String, Manifest> rendered) {
+    }
+
+    private final AsyncCache<Long, Optional<Manifests>> cache;
+    private final SegmentStore segmentStore;
+
+    public ManifestRenderer(MeterRegistry meterRegistry,
+                            SegmentStore segmentStore,
+                            @Value("${video.manifests.cache-size:1000}") long cacheSize) {
+        this.segmentStore = segmentStore;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .executor(Schedulers.boundedElastic()::schedule)
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "videos.manifests");
+    }
+
+    public static boolean isManifest(String relativePath) {
+        return relativePath.endsWith(".m3u8") || relativePath.endsWith(".mpd");
+    }
+
+    /**
+     * Returns the manifest at {@code relativePath} (e.g. {@code playlist.m3u8},
+     * {@code 720p/playlist.m3u8}, {@code manifest.mpd}), or empty if the path
+     * names no manifest of this video or the video has no fragment index
+     * (processed before indexes existed; its manifests are files on disk).
+     */
+    public Mono<Manifest> render(Long videoId, String cmafPath, String relativePath) {
+        // suppressCancel: iptal edilen bir istek paylaşılan future'ı iptal etmemeli
+        return Mono.fromFuture(() -> cache.get(videoId, (id, executor) ->
+                        CompletableFuture.supplyAsync(() -> load(cmafPath), executor)), true)
+                .flatMap(manifests -> Mono.justOrEmpty(manifests.map(m -> manifest(m, relativePath))));
+    }
+
+    /** The video's fragment index from the same cache; empty if it has none. */
+    public Mono<FragmentIndex> index(Long videoId, String cmafPath) {
+        return Mono.fromFuture(() -> cache.get(videoId, (id, executor) ->
+                        CompletableFuture.supplyAsync(() -> load(cmafPath), executor)), true)
+                .flatMap(manifests -> Mono.justOrEmpty(manifests.map(Manifests::index)));
+    }
+
+    // Video silindiğinde veya yeniden işlendiğinde çağrılmalı
+    public void invalidate(Long videoId) {
+        cache.synchronous().invalidate(videoId);
+    }
+
+    // Test için: bir videonun önbellekteki işlenmiş manifest yolları
+    Set<String> renderedPaths(Long videoId) {
+        Optional<Manifests> manifests = cache.synchronous().getIfPresent(videoId);
+        return manifests == null || manifests.isEmpty() ? Set.of() : Set.copyOf(manifests.get().rendered().keySet());
+    }
+
+    // Yalnızca var olan manifest'ler saklanır: bilinmeyen yollar (istemci her adı deneyebilir) haritayı büyütmez
+    private Manifest manifest(Manifests manifests, String relativePath) {
+        Manifest manifest = manifests.rendered().get(relativePath);
+        if (manifest != null) {
+            return manifest;
+        }
+        String rendered = renderVariant(manifests.index(), relativePath);
+        return rendered != null
+                ? manifests.rendered().computeIfAbsent(relativePath, path -> toManifest(rendered))
+                : null;
+    }
+
+    private Optional<Manifests> load(String cmafPath) {
+        // boundedElastic üzerinde çalışır; depodan indirme beklenebilir
+        Optional<Path> indexFile = segmentStore.localFile(cmafPath, FragmentIndex.FILE_NAME).blockOptional();
+        if (indexFile.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Path dir = indexFile.get().getParent();
+            return Optional.of(new Manifests(FragmentIndex.read(dir), new ConcurrentHashMap<>()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Manifest toManifest(String rendered) {
+        byte[] body = rendered.getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            // İlk 128 bit yeterli
+            return new Manifest(body, "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String renderVariant(FragmentIndex index, String relativePath) {
+        if (relativePath.equals(HLS_PLAYLIST)) {
+            return renderHlsMaster(index);
+        }
+        if (relativePath.equals(DASH_MANIFEST)) {
+            return renderDash(index);
+        }
+        if (relativePath.equals(ThumbnailSprites.DIR + "/" + HLS_PLAYLIST)) {
+            return index.getThumbnails() != null ? renderHlsThumbnails(index.getThumbnails()) : null;
+        }
+        if (relativePath.endsWith("/" + HLS_PLAYLIST)) {
+            FragmentIndex.Track track = index.getTrack(
+                    relativePath.substring(0, relativePath.length() - HLS_PLAYLIST.length() - 1));
+            return track != null ? renderHlsMedia(track) : null;
+        }
+        return null;
+    }
+
+    String renderHlsMedia(FragmentIndex.Track track) {
+        StringBuilder playlist = new StringBuilder();
+        playlist.append("#EXTM3U\n");
+        playlist.append("#EXT-X-VERSION:7\n");
+        // TARGETDURATION, en uzun segmentin yukarı yuvarlanmış süresi olmalı
+        playlist.append("#EXT-X-TARGETDURATION:").append((int) Math.ceil(track.maxDurationSeconds())).append("\n");
+        playlist.append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        playlist.append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+
+        if (track.isSingleFile()) {
+            // Tek dosya: init ve segmentler aynı dosyada byte aralıklarıyla adreslenir
+            playlist.append("#EXT-X-MAP:URI=\"").append(track.mediaFile())
+                    .append("\",BYTERANGE=\"").append(track.initSize()).append("@0\"\n");
+            for (int i = 0; i < track.segmentCount(); i++) {
+                playlist.append(String.format(Locale.ROOT, "#EXTINF:%.6f,\n", track.durationSeconds(i)));
+                playlist.append("#EXT-X-BYTERANGE:").append(track.sizes()[i]).append("@")
+                        .append(track.offsets()[i]).append("\n");
+                playlist.append(track.mediaFile()).append("\n");
+            }
+        } else {
+            playlist.append("#EXT-X-MAP:URI=\"init.mp4\"\n");
+            for (int i = 0; i < track.segmentCount(); i++) {
+                playlist.append(String.format(Locale.ROOT, "#EXTINF:%.6f,\n", track.durationSeconds(i)));
+                playlist.append(String.format("segment_%03d.m4s", i)).append("\n");
+            }
+        }
+
+        playlist.append("#EXT-X-ENDLIST\n");
+        return playlist.toString();
+    }
+
+    // Image media playlist (EXT-X-IMAGES-ONLY): her sayfa bir "segment", EXT-X-TILES ızgarayı tarif eder
+    String renderHlsThumbnails(FragmentIndex.Thumbnails thumbnails) {
+        int perSheet = thumbnails.columns() * thumbnails.rows();
+        StringBuilder playlist = new StringBuilder();
+        playlist.append("#EXTM3U\n");
+        playlist.append("#EXT-X-VERSION:7\n");
+        playlist.append("#EXT-X-TARGETDURATION:").append((int) Math.ceil(thumbnails.sheetDurationSeconds())).append("\n");
+        playlist.append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        playlist.append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        playlist.append("#EXT-X-IMAGES-ONLY\n");
+        for (int sheet = 0; sheet < thumbnails.sheetCount(); sheet++) {
+            int tiles = Math.min(perSheet, thumbnails.count() - sheet * perSheet);
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", tiles * thumbnails.intervalMs() / 1000.0));
+            playlist.append("#EXT-X-TILES:RESOLUTION=").append(thumbnails.width()).append("x").append(thumbnails.height())
+                    .append(",LAYOUT=").append(thumbnails.columns()).append("x").append(thumbnails.rows())
+                    .append(String.format(Locale.ROOT, ",DURATION=%.3f\n", thumbnails.intervalMs() / 1000.0));
+            playlist.append(ThumbnailSprites.sheetName(sheet)).append("\n");
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        return playlist.toString();
+    }
+
+    String renderHlsMaster(FragmentIndex index) {
+        FragmentIndex.Track audio = index.getAudioTrack();
+
+        StringBuilder master = new StringBuilder();
+        master.append("#EXTM3U\n");
+        master.append("#EXT-X-VERSION:7\n");
+        master.append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+
+        if (audio != null) {
+            master.append("#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"audio\",NAME=\"Default\",DEFAULT=YES,AUTOSELECT=YES,")
+                    .append("URI=\"").append(audio.name()).append("/playlist.m3u8\"\n");
+        }
+
+        for (FragmentIndex.Track rendition : index.getVideoTracks()) {
+            long peak = rendition.peakBitrate() + (audio != null ? audio.peakBitrate() : 0);
+            long average = rendition.averageBitrate() + (audio != null ? audio.averageBitrate() : 0);
+            String codecs = audio != null ? rendition.codecs() + "," + audio.codecs() : rendition.codecs();
+
+            master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(peak)
+                    .append(",AVERAGE-BANDWIDTH=").append(average)
+                    .append(",CODECS=\"").append(codecs).append("\"")
+                    .append(",RESOLUTION=").append(rendition.width()).append("x").append(rendition.height())
+                    .append(",FRAME-RATE=").append(String.format(Locale.ROOT, "%.3f", index.getFrameRate()));
+            if (audio != null) {
+                master.append(",AUDIO=\"audio\"");
+            }
+            master.append("\n").append(rendition.name()).append("/playlist.m3u8\n");
+        }
+
+        // Yavaş bağlantılar için yalnızca-ses varyantı
+        if (audio != null) {
+            master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(audio.peakBitrate())
+                    .append(",AVERAGE-BANDWIDTH=").append(audio.averageBitrate())
+                    .append(",CODECS=\"").append(audio.codecs()).append("\"")
+                    .append(",AUDIO=\"audio\"\n")
+                    .append(audio.name()).append("/playlist.m3u8\n");
+        }
+
+        FragmentIndex.Thumbnails thumbnails = index.getThumbnails();
+        if (thumbnails != null) {
+            master.append("#EXT-X-IMAGE-STREAM-INF:BANDWIDTH=").append(thumbnails.bandwidth())
+                    .append(",RESOLUTION=").append(thumbnails.columns() * thumbnails.width())
+                    .append("x").append(thumbnails.rows() * thumbnails.height())
+                    .append(",CODECS=\"jpeg\"")
+                    .append(",URI=\"").append(THUMBNAILS_PATH).append(HLS_PLAYLIST).append("\"\n");
+        }
+        return master.toString();
+    }
+
+    String renderDash(FragmentIndex index) {
+        FragmentIndex.Track audio = index.getAudioTrack();
+        List<FragmentIndex.Track> videoTracks = index.getVideoTracks();
+
+        // DASH manifest - her basamak bir Representation, SegmentTimeline ile gerçek süreler
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        manifest.append("<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" ");
+        manifest.append("type=\"static\" ");
+        manifest.append("mediaPresentationDuration=\"").append(formatDurationToISO(index.getDurationMs())).append("\" ");
+        manifest.append("minBufferTime=\"PT")
+                .append((int) Math.ceil(videoTracks.get(0).maxDurationSeconds())).append("S\" ");
+        // SegmentBase (tek dosya) on-demand profiline, SegmentTemplate live profiline ait
+        manifest.append("profiles=\"urn:mpeg:dash:profile:")
+                .append(videoTracks.get(0).isSingleFile() ? "isoff-on-demand" : "isoff-live").append(":2011\">\n");
+        manifest.append("  <Period>\n");
+
+        FragmentIndex.Track largest = videoTracks.get(0);
+        manifest.append("    <AdaptationSet contentType=\"video\" mimeType=\"video/mp4\" ");
+        manifest.append("maxWidth=\"").append(largest.width()).append("\" ");
+        manifest.append("maxHeight=\"").append(largest.height()).append("\" ");
+        manifest.append("frameRate=\"").append(index.getFrameRateRatio()).append("\" ");
+        manifest.append("segmentAlignment=\"true\" ");
+        manifest.append("startWithSAP=\"1\">\n");
+
+        for (FragmentIndex.Track rendition : videoTracks) {
+            manifest.append("      <Representation id=\"").append(rendition.name()).append("\" ");
+            manifest.append("codecs=\"").append(rendition.codecs()).append("\" ");
+            manifest.append("bandwidth=\"").append(rendition.peakBitrate()).append("\" ");
+            manifest.append("width=\"").append(rendition.width()).append("\" ");
+            manifest.append("height=\"").append(rendition.height()).append("\">\n");
+            appendSegmentTemplate(manifest, rendition);
+            manifest.append("      </Representation>\n");
+        }
+        manifest.append("    </AdaptationSet>\n");
+
+        if (audio != null) {
+            manifest.append("    <AdaptationSet contentType=\"audio\" mimeType=\"audio/mp4\" lang=\"und\" ");
+            manifest.append("segmentAlignment=\"true\" ");
+            manifest.append("startWithSAP=\"1\">\n");
+            manifest.append("      <Representation id=\"").append(audio.name()).append("\" ");
+            manifest.append("codecs=\"").append(audio.codecs()).append("\" ");
+            manifest.append("bandwidth=\"").append(audio.peakBitrate()).append("\"");
+            if (index.getAudioSampleRate() > 0) {
+                manifest.append(" audioSamplingRate=\"").append(index.getAudioSampleRate()).append("\"");
+            }
+            manifest.append(">\n");
+            manifest.append("        <AudioChannelConfiguration ");
+            manifest.append("schemeIdUri=\"urn:mpeg:dash:23003:3:audio_channel_configuration:2011\" value=\"2\"/>\n");
+            appendSegmentTemplate(manifest, audio);
+            manifest.append("      </Representation>\n");
+            manifest.append("    </AdaptationSet>\n");
+        }
+
+        FragmentIndex.Thumbnails thumbnails = index.getThumbnails();
+        if (thumbnails != null) {
+            // DASH-IF IOP küçük resim uyarlama kümesi: sabit süreli sayfalar, her biri columns x rows karo
+            manifest.append("    <AdaptationSet id=\"thumbnails\" contentType=\"image\" mimeType=\"image/jpeg\">\n");
+            manifest.append("      <SegmentTemplate ");
+            manifest.append("media=\"").append(THUMBNAILS_PATH).append("sprite_$Number%03d$.jpg\" ");
+            manifest.append("timescale=\"1000\" ");
+            manifest.append("duration=\"").append((long) thumbnails.columns() * thumbnails.rows() * thumbnails.intervalMs())
+                    .append("\" ");
+            manifest.append("startNumber=\"0\"/>\n");
+            manifest.append("      <Representation id=\"thumbnails\" ");
+            manifest.append("bandwidth=\"").append(thumbnails.bandwidth()).append("\" ");
+            manifest.append("width=\"").append(thumbnails.columns() * thumbnails.width()).append("\" ");
+            manifest.append("height=\"").append(thumbnails.rows() * thumbnails.height()).append("\">\n");
+            manifest.append("        <EssentialProperty schemeIdUri=\"http://dashif.org/thumbnail_tile\" ");
+            manifest.append("value=\"").append(thumbnails.columns()).append("x").append(thumbnails.rows()).append("\"/>\n");
+            manifest.append("      </Representation>\n");
+            manifest.append("    </AdaptationSet>\n");
+        }
+
+        manifest.append("  </Period>\n");
+        manifest.append("</MPD>\n");
+        return manifest.toString();
+    }
+
+    private void appendSegmentTemplate(StringBuilder manifest, FragmentIndex.Track track) {
+        if (track.isSingleFile()) {
+            appendSegmentBase(manifest, track);
+            return;
+        }
+        // Süreler track'in kendi timescale'inde (yuvarlama yok), ilk segment zamanı sunum başlangıcı
+        manifest.append("        <SegmentTemplate ");
+        manifest.append("timescale=\"").append(track.timescale()).append("\" ");
+        manifest.append("presentationTimeOffset=\"").append(track.keyframeTimes()[0]).append("\" ");
+        manifest.append("initialization=\"$RepresentationID$/init.mp4\" ");
+        manifest.append("media=\"$RepresentationID$/segment_$Number%03d$.m4s\" ");
+        manifest.append("startNumber=\"0\">\n");
+
+        manifest.append("          <SegmentTimeline>\n");
+
+        // Ardışık eşit süreler tek <S r="..."> satırına sıkıştırılır
+        int[] durations = track.durations();
+        int i = 0;
+        while (i < durations.length) {
+            int repeat = 0;
+            while (i + repeat + 1 < durations.length && durations[i + repeat + 1] == durations[i]) {
+                repeat++;
+            }
+            manifest.append("            <S t=\"").append(track.keyframeTimes()[i])
+                    .append("\" d=\"").append(durations[i]).append("\"");
+            if (repeat > 0) {
+                manifest.append(" r=\"").append(repeat).append("\"");
+            }
+            manifest.append("/>\n");
+            i += repeat + 1;
+        }
+
+        manifest.append("          </SegmentTimeline>\n");
+        manifest.append("        </SegmentTemplate>\n");
+    }
+
+    // Tek dosya: segment konumları dosyadaki sidx'ten okunur (init, sidx, segmentler)
+    private void appendSegmentBase(StringBuilder manifest, FragmentIndex.Track track) {
+        long indexStart = track.initSize();
+        manifest.append("        <BaseURL>").append(track.name()).append("/").append(track.mediaFile())
+                .append("</BaseURL>\n");
+        manifest.append("        <SegmentBase ");
+        manifest.append("timescale=\"").append(track.timescale()).append("\" ");
+        manifest.append("presentationTimeOffset=\"").append(track.keyframeTimes()[0]).append("\" ");
+        manifest.append("indexRange=\"").append(indexStart).append("-")
+                .append(indexStart + track.indexSize() - 1).append("\" ");
+        manifest.append("indexRangeExact=\"true\">\n");
+        manifest.append("          <Initialization range=\"0-").append(track.initSize() - 1).append("\"/>\n");
+        manifest.append("        </SegmentBase>\n");
+    }
+
+    static String formatDurationToISO(long durationMs) {
+        long hours = durationMs / 3_600_000;
+        long minutes = (durationMs % 3_600_000) / 60_000;
+        double remainingSeconds = (durationMs % 60_000) / 1000.0;
+
+        StringBuilder iso = new StringBuilder("PT");
+        if (hours > 0) {
+            iso.append(hours).append("H");
+        }
+        if (minutes > 0) {
+            iso.append(minutes).append("M");
+        }
+        if (remainingSeconds > 0 || iso.length() == 2) {
+            iso.append(String.format(Locale.ROOT, "%.3f", remainingSeconds)).append("S");
+        }
+        return iso.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.videostreaming.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads container and stream metadata with a single ffprobe call. ffprobe
+ * only parses headers (and a few packets where the container has no index),
+ * so probing costs milliseconds regardless of the video's length.
+ */
+@Service
+public class MediaProbeService {
+
+    private static final long PROBE_TIMEOUT_SECONDS = 60;
+
+    public record MediaInfo(long durationMs, long bitrate,
+                            int width, int height, double frameRate, String frameRateRatio,
+                            String videoCodec, long videoBitrate,
+                            boolean hasAudio, String audioCodec, int audioSampleRate, long audioBitrate) {
+
+        public double durationSeconds() {
+            return durationMs / 1000.0;
+        }
+    }
+
+    private final String ffprobePath;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public MediaProbeService(@Value("${ffprobe.path:ffprobe}") String ffprobePath) {
+        this.ffprobePath = ffprobePath;
+    }
+
+    public MediaInfo probe(String inputPath) throws IOException, InterruptedException {
+        String[] probeCommand = {
+                ffprobePath,
+                "-v", "error",
+                "-show_entries", "format=duration,bit_rate:" +
+                "stream=codec_type,codec_name,width,height,r_frame_rate,avg_frame_rate,sample_rate,bit_rate,duration",
+                "-of", "json",
+                inputPath
+        };
+
+        ProcessBuilder processBuilder = new ProcessBuilder(probeCommand);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = processBuilder.start();
+
+        JsonNode root;
+        try (InputStream stdout = process.getInputStream()) {
+            root = objectMapper.readTree(stdout);
+        } finally {
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        if (process.isAlive() || process.exitValue() != 0) {
+            throw new RuntimeException("FFprobe failed for " + inputPath);
+        }
+        return parse(root, inputPath);
+    }
+
+    // ffprobe -of json çıktısından; süreç çalıştırmadan test edilebilsin diye ayrı
+    MediaInfo parse(JsonNode root, String inputPath) {
+        JsonNode videoStream = null;
+        JsonNode audioStream = null;
+        for (JsonNode stream : root.path("streams")) {
+            String codecType = stream.path("codec_type").asText();
+            if ("video".equals(codecType) && videoStream == null) {
+                videoStream = stream;
+            } else if ("audio".equals(codecType) && audioStream == null) {
+                audioStream = stream;
+            }
+        }
+        if (videoStream == null) {
+            throw new RuntimeException("No video stream found in " + inputPath);
+        }
+
+        // Bazı konteynerlerde (TS, büyüyen dosya) format süresi yok - stream süresine düş
+        JsonNode format = root.path("format");
+        double durationSeconds = parseNumber(format.path("duration").asText());
+        if (durationSeconds <= 0) {
+            durationSeconds = parseNumber(videoStream.path("duration").asText());
+        }
+
+        // r_frame_rate bazen alan hızını (ör. 60/1 yerine 120/1) verir; ortalama daha güvenilir
+        String frameRate = videoStream.path("avg_frame_rate").asText("0/0");
+        if (parseFrameRate(frameRate) <= 0) {
+            frameRate = videoStream.path("r_frame_rate").asText("25/1");
+        }
+        double fps = parseFrameRate(frameRate);
+
+        return new MediaInfo(
+                Math.round(durationSeconds * 1000),
+                (long) parseNumber(format.path("bit_rate").asText()),
+                videoStream.path("width").asInt(),
+                videoStream.path("height").asInt(),
+                fps > 0 ? fps : 25.0,
+                fps <= 0 ? "25" : frameRate.endsWith("/1") ? frameRate.substring(0, frameRate.length() - 2) : frameRate,
+                videoStream.path("codec_name").asText(null),
+                (long) parseNumber(videoStream.path("bit_rate").asText()),
+                audioStream != null,
+                audioStream != null ? audioStream.path("codec_name").asText(null) : null,
+                audioStream != null ? audioStream.path("sample_rate").asInt(0) : 0,
+                audioStream != null ? (long) parseNumber(audioStream.path("bit_rate").asText()) : 0);
+    }
+
+    private double parseFrameRate(String frameRate) {
+        // Format: "30000/1001" veya "25/1"
+        String[] parts = frameRate.split("/");
+        try {
+            double numerator = Double.parseDouble(parts[0]);
+            double denominator = parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0;
+            return denominator > 0 && numerator > 0 ? numerator / denominator : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // ffprobe bilinmeyen değerler için "N/A" yazar
+    private double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
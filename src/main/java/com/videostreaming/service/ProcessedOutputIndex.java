@@ -0,0 +1,108 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.ProcessedOutput;
+import com.videostreaming.model.Video;
+import com.videostreaming.repository.ProcessedOutputRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Content-hash index of processed outputs. A finished video registers its
+ * CMAF output under the SHA-256 of its upload; a later upload with the same
+ * hash is linked to that output instead of being transcoded again. Each
+ * linked video holds a reference, and a video's processed files are deleted
+ * only when the last reference is released.
+ */
+@Service
+public class ProcessedOutputIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedOutputIndex.class);
+
+    private final ProcessedOutputRepository processedOutputRepository;
+    private final Counter deduplicated;
+    private final Counter deduplicatedBytes;
+
+    public ProcessedOutputIndex(ProcessedOutputRepository processedOutputRepository, MeterRegistry meterRegistry) {
+        this.processedOutputRepository = processedOutputRepository;
+        this.deduplicated = Counter.builder("video.uploads.deduplicated")
+                .description("Uploads linked to an existing processed output instead of being transcoded")
+                .register(meterRegistry);
+        this.deduplicatedBytes = Counter.builder("video.uploads.deduplicated.bytes")
+                .description("Source bytes not transcoded thanks to deduplication")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the output of a video that just became READY; it holds the
+     * first reference. A failure only costs deduplication and is logged.
+     */
+    public Mono<Void> register(Video video) {
+        return processedOutputRepository.registerVideo(video.getId())
+                .onErrorResume(e -> {
+                    logger.warn("Could not register output of video {}: {}", video.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Takes a reference to an existing output with the video's content hash
+     * and points the video at it (paths and media info, status READY). Empty
+     * if no output has this content; the caller then processes the video.
+     * The video is not saved.
+     */
+    public Mono<Video> link(Video video) {
+        if (video.getContentSha256() == null) {
+            return Mono.empty();
+        }
+        return processedOutputRepository.acquire(video.getContentSha256())
+                .map(output -> {
+                    apply(video, output);
+                    deduplicated.increment();
+                    deduplicatedBytes.increment(video.getFileSize());
+                    logger.info("Video {} has the same content as {}, reusing its output (now {} references)",
+                            video.getId(), output.getCmafPath(), output.getRefCount());
+                    return video;
+                });
+    }
+
+    /**
+     * Drops the video's reference to its output. Emits true if the processed
+     * files are no longer used and may be deleted - also for outputs that were
+     * never registered (processed before deduplication, or failed).
+     */
+    public Mono<Boolean> release(Video video) {
+        if (video.getCmafPath() == null) {
+            return Mono.just(true);
+        }
+        return processedOutputRepository.release(video.getCmafPath())
+                .flatMap(output -> output.getRefCount() > 0
+                        ? Mono.just(false)
+                        // Sıfıra indi: satırı silebilen, dosyaları da siler
+                        : processedOutputRepository.deleteIfUnused(output.getId()).map(deleted -> deleted > 0))
+                .defaultIfEmpty(true);
+    }
+
+    private static void apply(Video video, ProcessedOutput output) {
+        video.setStatus("READY");
+        video.setCmafPath(output.getCmafPath());
+        video.setHlsManifestPath(output.getHlsManifestPath());
+        video.setDashManifestPath(output.getDashManifestPath());
+        video.setDuration(output.getDuration());
+        video.setDurationMs(output.getDurationMs());
+        video.setResolution(output.getResolution());
+        video.setVideoCodec(output.getVideoCodec());
+        video.setAudioCodec(output.getAudioCodec());
+        video.setFrameRate(output.getFrameRate());
+        video.setBitrate(output.getBitrate());
+        video.setEncodingComplexity(output.getEncodingComplexity());
+        video.setEncodingCrf(output.getEncodingCrf());
+        video.setEncodingLadder(output.getEncodingLadder());
+        video.setProcessedAt(output.getCreatedAt());
+    }
+}
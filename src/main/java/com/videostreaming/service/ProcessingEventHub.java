@@ -0,0 +1,179 @@
+package com.videostreaming.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Processing status and progress of videos as a stream, so clients can wait
+ * for READY without polling the database. Events are multicast in-process;
+ * with {@code video.events.notify.enabled} they are also sent through
+ * PostgreSQL NOTIFY on {@value #CHANNEL}, and every node LISTENs, so a
+ * client connected to any node sees the events of a video transcoded on
+ * another.
+ */
+@Service
+public class ProcessingEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingEventHub.class);
+
+    static final String CHANNEL = "video_processing";
+
+    /**
+     * A status transition ({@code progress} etc. null) or a progress update
+     * while PROCESSING: percent done, encoded frames per second and speed
+     * relative to real time, summed over parallel encodes.
+     */
+    public record Event(Long videoId, String status, Double progress, Double fps, Double speed, long timestamp) {
+
+        public static Event ofStatus(Long videoId, String status) {
+            return new Event(videoId, status, null, null, null, System.currentTimeMillis());
+        }
+
+        public boolean isTerminal() {
+            return "READY".equals(status) || "ERROR".equals(status);
+        }
+    }
+
+    // NOTIFY yükü: kendi gönderdiğimiz olayları ikinci kez yaymamak için kaynak düğüm
+    private record Notification(String origin, Event event) {
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    private final VideoLocationCache videoLocationCache;
+    private final boolean notifyEnabled;
+    private final String origin = UUID.randomUUID().toString();
+
+    private final Sinks.Many<Event> events = Sinks.many().multicast().directBestEffort();
+    private final Disposable.Composite listeners = Disposables.composite();
+
+    public ProcessingEventHub(ConnectionFactory connectionFactory,
+                              DatabaseClient databaseClient,
+                              ObjectMapper objectMapper,
+                              VideoLocationCache videoLocationCache,
+                              @Value("${video.events.notify.enabled:true}") boolean notifyEnabled) {
+        this.connectionFactory = connectionFactory;
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+        this.videoLocationCache = videoLocationCache;
+        this.notifyEnabled = notifyEnabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!notifyEnabled) {
+            return;
+        }
+        listeners.add(listen()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> logger.warn("LISTEN {} failed, reconnecting: {}",
+                                CHANNEL, signal.failure().getMessage())))
+                .subscribe(this::emitRemote));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listeners.dispose();
+    }
+
+    /** Emits to local subscribers and, if enabled, to the other nodes. Non-blocking. */
+    public void publish(Event event) {
+        emitLocal(event);
+        if (!notifyEnabled) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new Notification(origin, event));
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize processing event: {}", e.getMessage());
+            return;
+        }
+        databaseClient.sql("SELECT pg_notify(:channel, :payload)")
+                .bind("channel", CHANNEL)
+                .bind("payload", payload)
+                .then()
+                .subscribe(null, e -> logger.warn("NOTIFY {} failed: {}", CHANNEL, e.getMessage()));
+    }
+
+    /** Events of one video from now on. */
+    public Flux<Event> events(Long videoId) {
+        return events.asFlux().filter(event -> event.videoId().equals(videoId));
+    }
+
+    // Başka bir node'da durum değişti: bu node'un önbelleğindeki konum eskimiş olabilir.
+    // İlerleme raporları (fps dolu) durumu değiştirmez
+    private void emitRemote(Event event) {
+        if (event.fps() == null) {
+            videoLocationCache.invalidate(event.videoId());
+        }
+        emitLocal(event);
+    }
+
+    private void emitLocal(Event event) {
+        // Worker thread'leri aynı anda yayınlayabilir; çakışmada kısa süre yeniden dene
+        events.emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(50)));
+    }
+
+    // Havuzdan bir bağlantı LISTEN için sürekli tutulur
+    private Flux<Event> listen() {
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> {
+                    PostgresqlConnection postgres = unwrap(connection);
+                    return postgres.createStatement("LISTEN " + CHANNEL).execute()
+                            .flatMap(PostgresqlResult::getRowsUpdated)
+                            .thenMany(postgres.getNotifications())
+                            .doOnSubscribe(subscription -> logger.info("Listening for processing events on {}", CHANNEL))
+                            .concatMap(notification -> Mono.justOrEmpty(decode(notification.getParameter())));
+                },
+                Connection::close)
+                // Bağlantı kapanırsa akış tamamlanır - yeniden bağlanmak için hataya çevir
+                .concatWith(Mono.error(() -> new IllegalStateException("LISTEN connection closed")));
+    }
+
+    private Event decode(String payload) {
+        try {
+            Notification notification = objectMapper.readValue(payload, Notification.class);
+            return origin.equals(notification.origin()) ? null : notification.event();
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring malformed processing event: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Connection current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?>) {
+            current = ((Wrapped<Connection>) current).unwrap();
+        }
+        if (!(current instanceof PostgresqlConnection postgres)) {
+            throw new IllegalStateException("LISTEN/NOTIFY requires a PostgreSQL connection");
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,272 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.ProcessingJob;
+import com.videostreaming.model.Video;
+import com.videostreaming.repository.ProcessingJobRepository;
+import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Persistent job queue backed by the {@code processing_jobs} table. Every node
+ * claims pending jobs with {@code FOR UPDATE SKIP LOCKED} only when it has an
+ * idle transcoding worker, keeps a lease on them through heartbeats, and hands
+ * them to the local {@link TranscodingJobScheduler}. Jobs whose lease expires
+ * (crashed node) are picked up again by whichever node claims next.
+ */
+@Service
+public class ProcessingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingJobService.class);
+
+    private final ProcessingJobRepository jobRepository;
+    private final VideoRepository videoRepository;
+    private final TranscodingJobScheduler transcodingJobScheduler;
+    private final VideoLocationCache videoLocationCache;
+    private final ProcessingEventHub eventHub;
+
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+    private final int queueCapacity;
+    private final Duration pollInterval;
+    private final Timer claimWait;
+
+    private final Sinks.Many<Boolean> wakeups = Sinks.many().multicast().directBestEffort();
+    private final Disposable.Composite loops = Disposables.composite();
+
+    public ProcessingJobService(ProcessingJobRepository jobRepository,
+                                VideoRepository videoRepository,
+                                TranscodingJobScheduler transcodingJobScheduler,
+                                VideoLocationCache videoLocationCache,
+                                ProcessingEventHub eventHub,
+                                MeterRegistry meterRegistry,
+                                @Value("${video.processing.node-id:}") String nodeId,
+                                @Value("${video.processing.lease-seconds:60}") int leaseSeconds,
+                                @Value("${video.processing.max-attempts:3}") int maxAttempts,
+                                @Value("${video.processing.queue-capacity:100}") int queueCapacity,
+                                @Value("${video.processing.poll-interval:5s}") Duration pollInterval) {
+        this.jobRepository = jobRepository;
+        this.videoRepository = videoRepository;
+        this.transcodingJobScheduler = transcodingJobScheduler;
+        this.videoLocationCache = videoLocationCache;
+        this.eventHub = eventHub;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.queueCapacity = queueCapacity;
+        this.pollInterval = pollInterval;
+        // Ortak kuyrukta (veritabanı) bekleme; yerel worker kuyruğu transcoding.queue.wait'te
+        this.claimWait = Timer.builder("transcoding.jobs.claim.wait")
+                .description("Time from job creation until a node claimed it (first attempt)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        jobRepository.requeueOrphans(nodeId)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        logger.info("Re-queued {} orphaned processing jobs", count);
+                    }
+                })
+                // Yeniden kuyruğa alınanlardan deneme hakkı bitmiş olanlar burada düşer
+                .then(failExhausted())
+                .then(jobRepository.enqueueStrandedVideos())
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        logger.info("Created processing jobs for {} stranded videos", count);
+                    }
+                })
+                .onErrorResume(e -> {
+                    logger.error("Could not recover orphaned processing jobs", e);
+                    return Mono.empty();
+                })
+                .subscribe(count -> wakeUp());
+
+        // Periyodik yoklama + yeni iş geldiğinde anında uyandırma
+        loops.add(Flux.merge(Flux.interval(pollInterval).map(tick -> true), wakeups.asFlux())
+                .onBackpressureDrop()
+                .concatMap(tick -> dispatchAvailable()
+                        .onErrorResume(e -> {
+                            logger.error("Processing job dispatch failed", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe());
+
+        // Lease süresinin üçte biri aralıklarla heartbeat
+        loops.add(Flux.interval(Duration.ofSeconds(Math.max(1, leaseSeconds / 3)))
+                .concatMap(tick -> jobRepository.renewLeases(nodeId, leaseSeconds)
+                        .onErrorResume(e -> {
+                            logger.warn("Could not renew processing job leases: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe());
+
+        logger.info("Processing job worker started on node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        loops.dispose();
+    }
+
+    /**
+     * Rejects the upload when too many jobs are already waiting cluster-wide.
+     */
+    public Mono<Void> checkBacklog() {
+        return jobRepository.countByStatus("PENDING")
+                .flatMap(pending -> {
+                    if (pending >= queueCapacity) {
+                        int depth = pending.intValue();
+                        return Mono.error(new TranscodingQueueFullException(depth,
+                                transcodingJobScheduler.estimateRetryAfterSeconds(depth)));
+                    }
+                    return Mono.<Void>empty();
+                });
+    }
+
+    public Mono<ProcessingJob> enqueue(Video video) {
+        int priority = transcodingJobScheduler.laneFor(video).ordinal();
+        return jobRepository.save(new ProcessingJob(video.getId(), priority))
+                .doOnNext(job -> {
+                    logger.info("Created processing job {} for video {}", job.getId(), video.getId());
+                    wakeUp();
+                });
+    }
+
+    /**
+     * Starts processing a video whose upload is still in progress on this node,
+     * if a worker is idle right now. The job row is created already claimed by
+     * this node because only this node sees the growing file.
+     */
+    public Mono<Boolean> startWhileUploading(Video video, GrowingFile upload) {
+        if (!transcodingJobScheduler.hasIdleWorker()) {
+            return Mono.just(false);
+        }
+        int priority = transcodingJobScheduler.laneFor(video).ordinal();
+        return jobRepository.insertClaimed(video.getId(), priority, nodeId, leaseSeconds)
+                .map(job -> {
+                    logger.info("Started processing job {} for video {} while uploading", job.getId(), video.getId());
+                    run(job, video, upload);
+                    return true;
+                })
+                .defaultIfEmpty(false);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void wakeUp() {
+        wakeups.tryEmitNext(true);
+    }
+
+    private Mono<Void> dispatchAvailable() {
+        return failExhausted().then(Mono.defer(this::claimAndSubmit)
+                .repeat()
+                .takeWhile(Boolean::booleanValue)
+                .then());
+    }
+
+    // Düğümü tekrar tekrar çökerten işler: claimNext'in atladığı işler FAILED, videoları ERROR olur
+    private Mono<Void> failExhausted() {
+        return jobRepository.failExhausted(maxAttempts)
+                .doOnNext(videoId -> {
+                    logger.warn("Gave up on video {} after {} processing attempts", videoId, maxAttempts);
+                    videoLocationCache.invalidate(videoId);
+                    eventHub.publish(ProcessingEventHub.Event.ofStatus(videoId, "ERROR"));
+                })
+                .then();
+    }
+
+    private Mono<Boolean> claimAndSubmit() {
+        if (!transcodingJobScheduler.hasIdleWorker()) {
+            return Mono.just(false);
+        }
+        return jobRepository.claimNext(nodeId, leaseSeconds, maxAttempts)
+                .doOnNext(this::recordClaimWait)
+                .flatMap(job -> videoRepository.findById(job.getVideoId())
+                        .flatMap(video -> {
+                            // Yükleme sırasında başlayıp node'u ölen iş: dosya eksik, yeniden işlenemez
+                            if (video.getFileSize() <= 0) {
+                                return finish(job, "FAILED", "Upload did not complete").thenReturn(true);
+                            }
+                            run(job, video, null);
+                            return Mono.just(true);
+                        })
+                        .switchIfEmpty(Mono.defer(() -> finish(job, "FAILED", "Video not found")
+                                .thenReturn(true))))
+                .defaultIfEmpty(false);
+    }
+
+    private void recordClaimWait(ProcessingJob job) {
+        // Yeniden denemeler ilk oluşturulma zamanını taşır - yalnızca ilk deneme ölçülür
+        if (job.getAttempts() != 1 || job.getCreatedAt() == null) {
+            return;
+        }
+        Duration wait = Duration.between(job.getCreatedAt(), LocalDateTime.now());
+        if (!wait.isNegative()) {
+            claimWait.record(wait);
+        }
+    }
+
+    private void run(ProcessingJob job, Video video, GrowingFile upload) {
+        logger.info("Claimed processing job {} (attempt {}) for video {}",
+                job.getId(), job.getAttempts(), video.getId());
+
+        try {
+            transcodingJobScheduler.submit(video, upload).whenComplete((ignored, error) -> {
+                boolean succeeded = error == null && "READY".equals(video.getStatus());
+                String lastError = error != null ? error.getMessage()
+                        : succeeded ? null : "Processing ended with status " + video.getStatus();
+                finish(job, succeeded ? "DONE" : "FAILED", lastError)
+                        .doFinally(signal -> wakeUp())
+                        .subscribe();
+            });
+        } catch (RuntimeException e) {
+            // Yerel kuyruğa alınamadı - işi başka bir node (veya sonraki yoklama) için geri bırak
+            logger.warn("Could not start processing job {}: {}", job.getId(), e.getMessage());
+            finish(job, "PENDING", e.getMessage()).subscribe();
+        }
+    }
+
+    private Mono<Integer> finish(ProcessingJob job, String status, String lastError) {
+        return jobRepository.finish(job.getId(), nodeId, status, lastError)
+                .doOnNext(updated -> {
+                    if (updated == 0) {
+                        logger.warn("Lost lease on processing job {} before it finished", job.getId());
+                    }
+                })
+                .onErrorResume(e -> {
+                    logger.error("Could not update processing job {}", job.getId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node-" + ProcessHandle.current().pid();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.videostreaming.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Combines the ffmpeg progress reports of one video's encodes (one, or one per
+ * chunk when encoding in parallel) into PROCESSING events, published at most
+ * once per interval.
+ */
+final class ProcessingProgress {
+
+    private final ProcessingEventHub eventHub;
+    private final Long videoId;
+    private final long totalUs;
+    private final long intervalMs;
+    private final Map<Integer, FFmpegExecutor.Progress> encodes = new ConcurrentHashMap<>();
+    private final AtomicLong lastPublished = new AtomicLong();
+
+    ProcessingProgress(ProcessingEventHub eventHub, Long videoId, double durationSeconds, Duration interval) {
+        this.eventHub = eventHub;
+        this.videoId = videoId;
+        this.totalUs = (long) (durationSeconds * 1_000_000);
+        this.intervalMs = interval.toMillis();
+    }
+
+    /** Listener for the encode covering part {@code slot} of the timeline. */
+    Consumer<FFmpegExecutor.Progress> encode(int slot) {
+        return progress -> {
+            encodes.put(slot, progress);
+            long now = System.currentTimeMillis();
+            long last = lastPublished.get();
+            if (now - last >= intervalMs && lastPublished.compareAndSet(last, now)) {
+                publish(now);
+            }
+        };
+    }
+
+    private void publish(long now) {
+        long outTimeUs = 0;
+        double fps = 0;
+        double speed = 0;
+        for (FFmpegExecutor.Progress progress : encodes.values()) {
+            outTimeUs += progress.outTimeUs();
+            if (!progress.finished()) {
+                fps += progress.fps();
+                speed += progress.speed();
+            }
+        }
+        // Süre bilinmiyorsa (yükleme sürerken probe) yüzde verilmez
+        Double percent = totalUs > 0
+                ? Math.min(100.0, Math.round(outTimeUs * 1000.0 / totalUs) / 10.0)
+                : null;
+        eventHub.publish(new ProcessingEventHub.Event(videoId, "PROCESSING", percent,
+                Math.round(fps * 10) / 10.0, Math.round(speed * 100) / 100.0, now));
+    }
+}
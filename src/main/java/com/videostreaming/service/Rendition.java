@@ -0,0 +1,125 @@
+package com.videostreaming.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One rung of the ABR ladder. {@code height} is the short side of the output
+ * frame so the same ladder works for landscape and portrait sources.
+ */
+public class Rendition {
+
+    private record Level(String name, long maxMbRate, long maxFrameMbs, long maxBitrateKbps) {
+    }
+
+    // H.264 Table A-1: MaxMBPS (makroblok/s), MaxFS (makroblok), Main profil MaxBR (kbps)
+    private static final List<Level> LEVELS = List.of(
+            new Level("1.0", 1_485, 99, 64),
+            new Level("1.1", 3_000, 396, 192),
+            new Level("1.2", 6_000, 396, 384),
+            new Level("1.3", 11_880, 396, 768),
+            new Level("2.0", 11_880, 396, 2_000),
+            new Level("2.1", 19_800, 792, 4_000),
+            new Level("2.2", 20_250, 1_620, 4_000),
+            new Level("3.0", 40_500, 1_620, 10_000),
+            new Level("3.1", 108_000, 3_600, 14_000),
+            new Level("3.2", 216_000, 5_120, 20_000),
+            new Level("4.0", 245_760, 8_192, 20_000),
+            new Level("4.1", 245_760, 8_192, 50_000),
+            new Level("4.2", 522_240, 8_704, 50_000),
+            new Level("5.0", 589_824, 22_080, 135_000),
+            new Level("5.1", 983_040, 36_864, 240_000),
+            new Level("5.2", 2_073_600, 36_864, 240_000),
+            new Level("6.0", 4_177_920, 139_264, 240_000),
+            new Level("6.1", 8_355_840, 139_264, 480_000),
+            new Level("6.2", 16_711_680, 139_264, 800_000));
+
+    private final String name;
+    private final int height;
+    private final int maxBitrateKbps;
+
+    public Rendition(int height, int maxBitrateKbps) {
+        this.name = height + "p";
+        this.height = height;
+        this.maxBitrateKbps = maxBitrateKbps;
+    }
+
+    // Format: "1080:5000,720:2800,480:1400" (kısa kenar:kbps), yüksekten düşüğe sıralanır
+    public static List<Rendition> parseLadder(String spec) {
+        List<Rendition> ladder = new ArrayList<>();
+        for (String rung : spec.split(",")) {
+            String[] parts = rung.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid rendition '" + rung + "', expected height:kbps");
+            }
+            ladder.add(new Rendition(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())));
+        }
+        ladder.sort(Comparator.comparingInt(Rendition::getHeight).reversed());
+        return ladder;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMaxBitrateKbps() {
+        return maxBitrateKbps;
+    }
+
+    public String getProfile() {
+        return height >= 720 ? "high" : "main";
+    }
+
+    /** Level for a 16:9 frame of this height; see {@link #getLevel(int, int, double)}. */
+    public String getLevel(double frameRate) {
+        return getLevel(defaultWidth(), height, frameRate);
+    }
+
+    /**
+     * The lowest H.264 level (ITU-T H.264 Table A-1) whose frame size,
+     * macroblock rate and bitrate limits hold a {@code width x height} frame
+     * at {@code frameRate} and this rung's maxrate.
+     */
+    public String getLevel(int width, int height, double frameRate) {
+        long widthMbs = (width + 15) / 16;
+        long heightMbs = (height + 15) / 16;
+        long frameMbs = widthMbs * heightMbs;
+        double mbRate = frameMbs * frameRate;
+        // High profile'da bitrate sınırı 1.25 kat (cpbBrVclFactor 1250)
+        double bitrateFactor = "high".equals(getProfile()) ? 1.25 : 1.0;
+        for (Level level : LEVELS) {
+            // Kenar uzunluğu da sınırlı: sqrt(8 * MaxFS) makroblok
+            long maxSideMbs = (long) Math.sqrt(8.0 * level.maxFrameMbs());
+            if (frameMbs <= level.maxFrameMbs() && mbRate <= level.maxMbRate()
+                    && widthMbs <= maxSideMbs && heightMbs <= maxSideMbs
+                    && maxBitrateKbps <= level.maxBitrateKbps() * bitrateFactor) {
+                return level.name();
+            }
+        }
+        return LEVELS.get(LEVELS.size() - 1).name();
+    }
+
+    /** Codec string for a 16:9 frame of this height; see {@link #getCodecs(int, int, double)}. */
+    public String getCodecs(double frameRate) {
+        return getCodecs(defaultWidth(), height, frameRate);
+    }
+
+    // RFC 6381 codec string for the profile/level we force on the encoder, e.g. avc1.640028
+    public String getCodecs(int width, int height, double frameRate) {
+        String profileAndConstraints = "high".equals(getProfile()) ? "6400" : "4d40";
+        String[] level = getLevel(width, height, frameRate).split("\\.");
+        int levelIdc = Integer.parseInt(level[0]) * 10 + Integer.parseInt(level[1]);
+        return String.format("avc1.%s%02x", profileAndConstraints, levelIdc);
+    }
+
+    // Canlı yayın scale=-2:height ile 16:9 kaynaktan üretir
+    private int defaultWidth() {
+        int width = (int) Math.round(height * 16 / 9.0);
+        return width + width % 2;
+    }
+}
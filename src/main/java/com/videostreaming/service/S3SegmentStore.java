@@ -0,0 +1,276 @@
+package com.videostreaming.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.CompletedDirectoryUpload;
+import software.amazon.awssdk.transfer.s3.model.DownloadFileRequest;
+import software.amazon.awssdk.transfer.s3.model.UploadDirectoryRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Processed output in an S3-compatible object store (AWS S3, MinIO, ...).
+ * A finished output directory is uploaded with the transfer manager -
+ * files in parallel, large files as multipart uploads - and the local copy
+ * is removed. Reads go through a local disk cache: a missing object is
+ * downloaded once (concurrent requests share the download) and served from
+ * disk; the cache is bounded by size and evicts with Caffeine's policy.
+ *
+ * <p>Object keys are the output directory relative to
+ * {@code video.storage.path}, e.g. {@code processed/my_video/720p/init.mp4}.
+ */
+@Service
+@ConditionalOnProperty(name = "video.storage.backend", havingValue = "s3")
+public class S3SegmentStore implements SegmentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3SegmentStore.class);
+
+    private static final int DELETE_BATCH_SIZE = 1000; // DeleteObjects sınırı
+
+    private final S3AsyncClient client;
+    private final S3TransferManager transferManager;
+    private final String bucket;
+    private final Path storageBase;
+    private final Path cacheDir;
+    // Önbellekteki dosyalar (anahtar -> boyut); çıkarılan dosya diskten silinir
+    private final Cache<String, Long> cachedFiles;
+    private final ConcurrentMap<String, CompletableFuture<Optional<Path>>> downloads = new ConcurrentHashMap<>();
+    private final AtomicLong tempCounter = new AtomicLong();
+
+    public S3SegmentStore(MeterRegistry meterRegistry,
+                          @Value("${video.storage.path}") String storagePath,
+                          @Value("${video.storage.s3.endpoint:}") String endpoint,
+                          @Value("${video.storage.s3.region:us-east-1}") String region,
+                          @Value("${video.storage.s3.bucket}") String bucket,
+                          @Value("${video.storage.s3.access-key:}") String accessKey,
+                          @Value("${video.storage.s3.secret-key:}") String secretKey,
+                          @Value("${video.storage.s3.path-style:true}") boolean pathStyle,
+                          @Value("${video.storage.s3.part-size:8MB}") DataSize partSize,
+                          @Value("${video.storage.s3.cache-path:src/videos/cache}") String cachePath,
+                          @Value("${video.storage.s3.cache-max-size:10GB}") DataSize cacheMaxSize) throws IOException {
+        this.bucket = bucket;
+        this.storageBase = Paths.get(storagePath).toAbsolutePath().normalize();
+        this.cacheDir = Paths.get(cachePath).toAbsolutePath().normalize();
+
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                // MinIO ve benzerleri bucket'ı host adında değil yolda bekler
+                .forcePathStyle(pathStyle)
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(partSize.toBytes())
+                        .minimumPartSizeInBytes(partSize.toBytes())
+                        .build());
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = builder.build();
+        this.transferManager = S3TransferManager.builder().s3Client(client).build();
+
+        // Önceki çalışmadan kalan önbellek dosyaları izlenmiyor - temizle
+        deleteRecursively(cacheDir);
+        Files.createDirectories(cacheDir);
+        this.cachedFiles = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxSize.toBytes())
+                .weigher((String key, Long size) -> (int) Math.min(size, Integer.MAX_VALUE))
+                .removalListener((String key, Long size, RemovalCause cause) -> {
+                    try {
+                        Files.deleteIfExists(cacheDir.resolve(key));
+                    } catch (IOException e) {
+                        logger.warn("Could not evict cached segment {}: {}", key, e.getMessage());
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cachedFiles, "segments.store.disk-cache");
+
+        ensureBucket();
+    }
+
+    @Override
+    public void publish(Path outputDir) throws IOException {
+        String prefix = keyPrefix(outputDir.toString());
+        long started = System.nanoTime();
+        CompletedDirectoryUpload result = transferManager.uploadDirectory(UploadDirectoryRequest.builder()
+                        .source(outputDir)
+                        .bucket(bucket)
+                        .s3Prefix(prefix)
+                        .build())
+                .completionFuture()
+                .join();
+        if (!result.failedTransfers().isEmpty()) {
+            Throwable first = result.failedTransfers().get(0).exception();
+            throw new IOException(result.failedTransfers().size() + " files failed to upload to s3://"
+                    + bucket + "/" + prefix, first);
+        }
+        logger.info("Published {} to s3://{}/{} in {} ms", outputDir, bucket, prefix,
+                (System.nanoTime() - started) / 1_000_000);
+
+        // Yerel kopya artık gerekmiyor; sunum depodan (ve disk önbelleğinden) yapılır
+        deleteRecursively(outputDir);
+    }
+
+    @Override
+    public Mono<Path> localFile(String outputDir, String relativePath) {
+        String key = keyPrefix(outputDir) + "/" + relativePath;
+        Path cached = cacheDir.resolve(key).normalize();
+        if (!cached.startsWith(cacheDir)) {
+            return Mono.empty();
+        }
+        if (cachedFiles.getIfPresent(key) != null) {
+            return Mono.just(cached);
+        }
+        // suppressCancel: iptal edilen bir istek paylaşılan indirmeyi iptal etmemeli
+        return Mono.fromFuture(() -> {
+                    CompletableFuture<Optional<Path>> download =
+                            downloads.computeIfAbsent(key, k -> download(k, cached));
+                    download.whenComplete((path, error) -> downloads.remove(key, download));
+                    return download;
+                }, true)
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    @Override
+    public boolean hasStableLocalPaths() {
+        return false; // disk önbelleği dosyaları çıkarabilir
+    }
+
+    @Override
+    public Mono<Void> delete(String outputDir) {
+        String prefix = keyPrefix(outputDir) + "/";
+        return Flux.from(client.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix)).contents())
+                .map(object -> ObjectIdentifier.builder().key(object.key()).build())
+                .buffer(DELETE_BATCH_SIZE)
+                .concatMap(batch -> Mono.fromFuture(() -> client.deleteObjects(request -> request
+                        .bucket(bucket)
+                        .delete(Delete.builder().objects(batch).quiet(true).build()))))
+                .onErrorMap(e -> new IOException("Could not delete s3://" + bucket + "/" + prefix, e))
+                // Önbellekten çıkarma dosya siler (removal listener); yerel işler boundedElastic üzerinde
+                .then(Mono.<Void>fromCallable(() -> {
+                    cachedFiles.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+                    // Yayınlanmadan kalmış yerel çıktı (işleme hatası) varsa
+                    deleteRecursively(Paths.get(outputDir));
+                    return null;
+                }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transferManager.close();
+        client.close();
+    }
+
+    private CompletableFuture<Optional<Path>> download(String key, Path target) {
+        Path temp = cacheDir.resolve(".download-" + tempCounter.incrementAndGet());
+        return transferManager.downloadFile(DownloadFileRequest.builder()
+                        .getObjectRequest(request -> request.bucket(bucket).key(key))
+                        .destination(temp)
+                        .build())
+                .completionFuture()
+                .thenApply(done -> {
+                    try {
+                        Files.createDirectories(target.getParent());
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        cachedFiles.put(key, Files.size(target));
+                        return Optional.of(target);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .exceptionally(error -> {
+                    deleteQuietly(temp);
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof S3Exception s3 && s3.statusCode() == 404) {
+                        return Optional.empty();
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                });
+    }
+
+    // Yerel çıktı dizini -> anahtar öneki, ör. src/videos/processed/foo -> processed/foo
+    private String keyPrefix(String outputDir) {
+        Path dir = Paths.get(outputDir).toAbsolutePath().normalize();
+        if (!dir.startsWith(storageBase)) {
+            throw new IllegalArgumentException("Output directory is outside the storage path: " + outputDir);
+        }
+        return storageBase.relativize(dir).toString().replace(File.separatorChar, '/');
+    }
+
+    private void ensureBucket() {
+        try {
+            client.headBucket(request -> request.bucket(bucket)).join();
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof NoSuchBucketException)
+                    && !(e.getCause() instanceof S3Exception s3 && s3.statusCode() == 404)) {
+                throw e;
+            }
+            // Yerel MinIO gibi boş kurulumlar için
+            client.createBucket(request -> request.bucket(bucket)).join();
+            logger.info("Created bucket {}", bucket);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+}
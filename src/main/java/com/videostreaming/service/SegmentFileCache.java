@@ -0,0 +1,91 @@
+package com.videostreaming.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of resolved processed files (path, size, mtime) keyed by video
+ * id and relative segment path. Segment files never change once a video is
+ * READY, so after the first request a segment can be served without touching
+ * the filesystem on the event loop; cache misses are resolved on
+ * boundedElastic. Files come from the {@link SegmentStore}; when its local
+ * paths can be evicted (object-store disk cache) nothing is remembered here.
+ */
+@Service
+public class SegmentFileCache {
+
+    public record SegmentFile(Path path, long length, long lastModified) {
+    }
+
+    private final Map<String, SegmentFile> entries;
+    private final SegmentStore segmentStore;
+
+    public SegmentFileCache(SegmentStore segmentStore,
+                            @Value("${video.segments.file-cache-size:10000}") int maxEntries) {
+        this.segmentStore = segmentStore;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SegmentFile> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Resolves {@code relativePath} inside {@code baseDir}; empty if the file does
+     * not exist or the path escapes the video's directory.
+     */
+    public Mono<SegmentFile> resolve(Long videoId, String baseDir, String relativePath) {
+        String key = videoId + "/" + relativePath;
+        SegmentFile cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        Path base = Paths.get(baseDir).normalize();
+        if (!base.resolve(relativePath).normalize().startsWith(base)) {
+            return Mono.empty();
+        }
+        return segmentStore.localFile(baseDir, relativePath)
+                .publishOn(Schedulers.boundedElastic())
+                .mapNotNull(this::stat)
+                .doOnNext(file -> {
+                    if (segmentStore.hasStableLocalPaths()) {
+                        synchronized (entries) {
+                            entries.put(key, file);
+                        }
+                    }
+                });
+    }
+
+    public void invalidate(Long videoId) {
+        String prefix = videoId + "/";
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private SegmentFile stat(Path filePath) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new SegmentFile(filePath, attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (java.io.IOException e) {
+            return null; // yok veya okunamıyor
+        }
+    }
+}
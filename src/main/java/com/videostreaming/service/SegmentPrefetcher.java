@@ -0,0 +1,235 @@
+package com.videostreaming.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Warms the files a player asks for right after a manifest: the init segment
+ * and the first few media segments of the renditions the manifest lists.
+ * Per-segment files go into the {@link HotSegmentCache}; the single-file
+ * layout ({@code media.mp4}) is too large for it, so the byte range covering
+ * init and the first segments is read once to pull it into the page cache.
+ * That is only done on stores with stable local paths: elsewhere resolving
+ * {@code media.mp4} would download the whole file.
+ * <p>
+ * Warming is fire-and-forget and never delays the manifest response. A track
+ * is warmed at most once per {@code dedup-window}, and all warming shares a
+ * global budget (concurrent reads and bytes per second) that is taken before
+ * a file is resolved; work over budget is dropped, not queued, since a late
+ * warmup is worth nothing. A track none of whose files got through the
+ * budget is not marked warmed, so the next manifest request retries it.
+ */
+@Service
+public class SegmentPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentPrefetcher.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ManifestRenderer manifestRenderer;
+    private final SegmentStore segmentStore;
+    private final SegmentFileCache segmentFileCache;
+    private final HotSegmentCache hotSegmentCache;
+    private final boolean enabled;
+    private final int segments;
+    private final long maxBytesPerSecond;
+    private final Semaphore reads;
+    private final Cache<String, Boolean> recentlyWarmed;
+    private final Counter warmedFiles;
+    private final Counter warmedBytes;
+    private final Counter skippedFiles;
+
+    private long windowStart;
+    private long windowBytes;
+
+    public SegmentPrefetcher(ManifestRenderer manifestRenderer,
+                             SegmentStore segmentStore,
+                             SegmentFileCache segmentFileCache,
+                             HotSegmentCache hotSegmentCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${video.segments.prefetch.enabled:true}") boolean enabled,
+                             @Value("${video.segments.prefetch.segments:3}") int segments,
+                             @Value("${video.segments.prefetch.max-concurrent-reads:4}") int maxConcurrentReads,
+                             @Value("${video.segments.prefetch.max-bytes-per-second:67108864}") long maxBytesPerSecond,
+                             @Value("${video.segments.prefetch.dedup-window:60s}") Duration dedupWindow) {
+        this.manifestRenderer = manifestRenderer;
+        this.segmentStore = segmentStore;
+        this.segmentFileCache = segmentFileCache;
+        this.hotSegmentCache = hotSegmentCache;
+        this.enabled = enabled;
+        this.segments = segments;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.reads = new Semaphore(Math.max(1, maxConcurrentReads));
+        this.recentlyWarmed = Caffeine.newBuilder()
+                .expireAfterWrite(dedupWindow)
+                .maximumSize(10_000)
+                .build();
+        this.warmedFiles = Counter.builder("segments.prefetch.files")
+                .description("Files warmed after a manifest request")
+                .register(meterRegistry);
+        this.warmedBytes = Counter.builder("segments.prefetch.bytes")
+                .description("Bytes read ahead after manifest requests")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.skippedFiles = Counter.builder("segments.prefetch.skipped")
+                .description("Files not warmed because the prefetch I/O budget was exhausted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts warming for a manifest request and returns immediately. The
+     * master playlist and the MPD warm every track, a media playlist
+     * ({@code 720p/playlist.m3u8}) only its own.
+     */
+    public void prefetch(Long videoId, String cmafPath, String manifestPath) {
+        if (!enabled || segments <= 0 || manifestPath.startsWith(ThumbnailSprites.DIR + "/")) {
+            return;
+        }
+        String trackName = manifestPath.contains("/")
+                ? manifestPath.substring(0, manifestPath.lastIndexOf('/'))
+                : null;
+
+        manifestRenderer.index(videoId, cmafPath)
+                .flatMapMany(index -> Flux.fromIterable(tracks(index, trackName)))
+                // Aynı track'i pencere içinde bir kez ısıt: izleyici sayısından bağımsız
+                .filter(track -> recentlyWarmed.asMap().putIfAbsent(videoId + "/" + track.name(), true) == null)
+                // Hiçbir dosyası okunamayan track işaretli kalmaz; bütçe açılınca sonraki istek ısıtır
+                .concatMap(track -> warm(videoId, cmafPath, track)
+                        .doOnNext(read -> {
+                            if (!read) {
+                                recentlyWarmed.invalidate(videoId + "/" + track.name());
+                            }
+                        })
+                        .doOnError(e -> recentlyWarmed.invalidate(videoId + "/" + track.name())))
+                .subscribe(null, e -> logger.debug("Prefetch for video {} failed: {}", videoId, e.getMessage()));
+    }
+
+    // Ses önce: her oynatıcı onu ister; ardından manifest sırasıyla video rendition'ları
+    private List<FragmentIndex.Track> tracks(FragmentIndex index, String trackName) {
+        if (trackName != null) {
+            FragmentIndex.Track track = index.getTrack(trackName);
+            return track != null ? List.of(track) : List.of();
+        }
+        List<FragmentIndex.Track> tracks = new ArrayList<>();
+        if (index.getAudioTrack() != null) {
+            tracks.add(index.getAudioTrack());
+        }
+        tracks.addAll(index.getVideoTracks());
+        return tracks;
+    }
+
+    // true: en az bir dosya okundu. Hepsi bütçeye takıldıysa false
+    private Mono<Boolean> warm(Long videoId, String cmafPath, FragmentIndex.Track track) {
+        int count = Math.min(segments, track.segmentCount());
+        if (track.isSingleFile()) {
+            // Yerel kopyası olmayan depoda (S3) localFile tüm media.mp4'ü indirir: ısıtma bedelinden pahalı
+            if (!segmentStore.hasStableLocalPaths()) {
+                return Mono.just(false);
+            }
+            long end = count > 0
+                    ? track.offsets()[count - 1] + track.sizes()[count - 1]
+                    : (long) track.initSize() + track.indexSize();
+            return budgeted(end, segmentFileCache.resolve(videoId, cmafPath, track.name() + "/" + track.mediaFile())
+                    .flatMap(file -> readAhead(file, Math.min(end, file.length()))));
+        }
+        List<String> files = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        files.add(track.name() + "/init.mp4");
+        lengths.add((long) track.initSize());
+        for (int i = 0; i < count; i++) {
+            files.add(track.name() + "/" + String.format("segment_%03d.m4s", i));
+            lengths.add((long) track.sizes()[i]);
+        }
+        return Flux.range(0, files.size())
+                .filter(i -> !hotSegmentCache.contains(videoId, files.get(i)))
+                // Bütçe dosya çözülmeden önce alınır: çözmek uzak depodan indirme demek olabilir
+                .concatMap(i -> budgeted(lengths.get(i), segmentFileCache.resolve(videoId, cmafPath, files.get(i))
+                        .flatMap(file -> hotSegmentCache.isCandidate(files.get(i), file.length())
+                                ? load(videoId, files.get(i), file)
+                                : readAhead(file, file.length()))))
+                .reduce(false, (any, read) -> any || read);
+    }
+
+    // Bütçe alınamazsa iş hiç başlamaz ve false döner
+    private Mono<Boolean> budgeted(long bytes, Mono<Void> work) {
+        return Mono.defer(() -> {
+            if (!acquire(bytes)) {
+                return Mono.just(false);
+            }
+            return work.doFinally(signal -> reads.release()).thenReturn(true);
+        });
+    }
+
+    private Mono<Void> load(Long videoId, String relativePath, SegmentFileCache.SegmentFile file) {
+        return hotSegmentCache.get(videoId, relativePath, file)
+                .doOnNext(contents -> {
+                    warmedFiles.increment();
+                    warmedBytes.increment(file.length());
+                })
+                .then();
+    }
+
+    // Okunan veri atılır; amaç yalnızca dosyayı işletim sisteminin sayfa önbelleğine almak
+    private Mono<Void> readAhead(SegmentFileCache.SegmentFile file, long length) {
+        return Mono.fromRunnable(() -> {
+                    try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+                        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+                        long position = 0;
+                        while (position < length) {
+                            buffer.clear().limit((int) Math.min(READ_BUFFER_SIZE, length - position));
+                            int read = channel.read(buffer, position);
+                            if (read < 0) {
+                                break;
+                            }
+                            position += read;
+                        }
+                        warmedFiles.increment();
+                        warmedBytes.increment(position);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    // Bütçe: eşzamanlı okuma sayısı ve saniye başına byte. Bütçe dışı iş beklemez, atlanır
+    private boolean acquire(long bytes) {
+        if (!reads.tryAcquire()) {
+            skippedFiles.increment();
+            return false;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= 1000) {
+                windowStart = now;
+                windowBytes = 0;
+            }
+            if (windowBytes + bytes <= maxBytesPerSecond) {
+                windowBytes += bytes;
+                return true;
+            }
+        }
+        reads.release();
+        skippedFiles.increment();
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package com.videostreaming.service;
+
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Where processed output (init segments, media segments, fragment index)
+ * lives once a video is READY. Transcoding writes to a local output
+ * directory and publishes it; serving nodes read files back through
+ * {@link #localFile}, which hands out a local path so responses can still be
+ * sent with zero-copy file transfers.
+ *
+ * <p>Output directories are identified by the video's {@code cmafPath};
+ * implementations map them to their own keys.
+ */
+public interface SegmentStore {
+
+    /**
+     * Makes a finished output directory available to every node. Blocking;
+     * called from the transcoding worker before the video is marked READY.
+     */
+    void publish(Path outputDir) throws IOException;
+
+    /**
+     * A readable local copy of {@code relativePath} inside {@code outputDir},
+     * or empty if the store has no such file.
+     */
+    Mono<Path> localFile(String outputDir, String relativePath);
+
+    /**
+     * Whether paths returned by {@link #localFile} stay valid until the
+     * video is deleted, so callers may remember them. A store that serves
+     * from an evicting cache returns false.
+     */
+    boolean hasStableLocalPaths();
+
+    /**
+     * Deletes everything stored for {@code outputDir}. Non-blocking: file
+     * system work runs on boundedElastic, so callers may subscribe from an
+     * event loop or an R2DBC thread.
+     */
+    Mono<Void> delete(String outputDir);
+}
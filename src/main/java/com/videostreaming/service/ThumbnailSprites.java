@@ -0,0 +1,137 @@
+package com.videostreaming.service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Trickplay thumbnails. The ladder encode writes one small JPEG every
+ * {@code interval} seconds as an extra branch of its filter graph (the
+ * source is decoded once); here those frames are tiled into sprite sheets
+ * ({@code thumbnails/sprite_NNN.jpg}) and a WebVTT track
+ * ({@code thumbnails/thumbnails.vtt}) whose cues point at each tile with a
+ * {@code #xywh} fragment. Sheets follow a fixed time grid, so manifests can
+ * address them with a template (DASH) or a tiles playlist (HLS).
+ */
+public final class ThumbnailSprites {
+
+    public static final String DIR = "thumbnails";
+    public static final String VTT_FILE = "thumbnails.vtt";
+    /** Where the encode writes the raw frames, inside the output directory. */
+    public static final String FRAMES_DIR = "_frames";
+    public static final String FRAME_PATTERN = "thumb_%05d.jpg";
+
+    /** A raw thumbnail frame and its presentation time. */
+    public record Frame(Path file, double timeSeconds) {
+    }
+
+    private ThumbnailSprites() {
+    }
+
+    // fps filtresi kareleri 0, interval, 2*interval... anlarında üretir; offset parçanın başlangıcı
+    public static List<Frame> listFrames(Path framesDir, double offsetSeconds, int intervalSeconds)
+            throws IOException {
+        List<Frame> frames = new ArrayList<>();
+        for (int i = 0; Files.exists(framesDir.resolve(String.format(FRAME_PATTERN, i))); i++) {
+            frames.add(new Frame(framesDir.resolve(String.format(FRAME_PATTERN, i)),
+                    offsetSeconds + (double) i * intervalSeconds));
+        }
+        return frames;
+    }
+
+    /**
+     * Tiles {@code frames} (sorted by time) into sheets of
+     * {@code columns x rows} tiles under {@code outputDir/thumbnails} and
+     * writes the WebVTT track. Grid position {@code g} shows the last frame
+     * at or before {@code g * interval}.
+     */
+    public static FragmentIndex.Thumbnails write(Path outputDir, List<Frame> frames, long durationMs,
+                                                 int intervalSeconds, int columns, int rows,
+                                                 int width, int height) throws IOException {
+        if (frames.isEmpty()) {
+            throw new IOException("No thumbnail frames in " + outputDir);
+        }
+        Path dir = outputDir.resolve(DIR);
+        Files.createDirectories(dir);
+
+        int count = (int) Math.max(1, (durationMs + intervalSeconds * 1000L - 1) / (intervalSeconds * 1000L));
+        int perSheet = columns * rows;
+        int sheetCount = (count + perSheet - 1) / perSheet;
+        long largestSheet = 0;
+        int frame = 0;
+        StringBuilder vtt = new StringBuilder("WEBVTT\n");
+
+        for (int sheet = 0; sheet < sheetCount; sheet++) {
+            // Her sayfa tam ızgara boyutunda: DASH şablonu tüm sayfaları aynı kabul eder
+            BufferedImage image = new BufferedImage(columns * width, rows * height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                for (int tile = 0; tile < perSheet; tile++) {
+                    int position = sheet * perSheet + tile;
+                    if (position >= count) {
+                        break;
+                    }
+                    double time = (double) position * intervalSeconds;
+                    while (frame + 1 < frames.size() && frames.get(frame + 1).timeSeconds() <= time + 1e-3) {
+                        frame++;
+                    }
+                    int x = (tile % columns) * width;
+                    int y = (tile / columns) * height;
+                    BufferedImage thumbnail = ImageIO.read(frames.get(frame).file().toFile());
+                    if (thumbnail != null) {
+                        graphics.drawImage(thumbnail, x, y, width, height, null);
+                    }
+
+                    long startMs = (long) position * intervalSeconds * 1000;
+                    long endMs = Math.min(durationMs, startMs + intervalSeconds * 1000L);
+                    vtt.append('\n').append(formatTimestamp(startMs)).append(" --> ").append(formatTimestamp(endMs))
+                            .append('\n').append(sheetName(sheet))
+                            .append("#xywh=").append(x).append(',').append(y).append(',')
+                            .append(width).append(',').append(height).append('\n');
+                }
+            } finally {
+                graphics.dispose();
+            }
+            Path sheetFile = dir.resolve(sheetName(sheet));
+            if (!ImageIO.write(image, "jpg", sheetFile.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            largestSheet = Math.max(largestSheet, Files.size(sheetFile));
+        }
+        Files.writeString(dir.resolve(VTT_FILE), vtt.toString(), StandardCharsets.UTF_8);
+
+        // Bant genişliği: en büyük sayfa, kapsadığı süre boyunca
+        long bandwidth = Math.round(largestSheet * 8.0 / ((double) perSheet * intervalSeconds));
+        return new FragmentIndex.Thumbnails(intervalSeconds * 1000, columns, rows, width, height, count, bandwidth);
+    }
+
+    public static String sheetName(int sheet) {
+        return String.format("sprite_%03d.jpg", sheet);
+    }
+
+    public static void deleteFrames(Path framesDir) throws IOException {
+        if (!Files.exists(framesDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(framesDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(framesDir);
+    }
+
+    // WebVTT zaman damgası: HH:MM:SS.mmm
+    static String formatTimestamp(long ms) {
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d",
+                ms / 3_600_000, (ms / 60_000) % 60, (ms / 1000) % 60, ms % 1000);
+    }
+}
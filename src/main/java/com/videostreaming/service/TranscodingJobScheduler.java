@@ -0,0 +1,201 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.Video;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs transcoding jobs on a fixed number of worker threads so that a burst of
+ * uploads cannot start more ffmpeg processes than the machine can handle.
+ * Short clips are dequeued before long ones; when the queue is full new jobs
+ * are rejected with {@link TranscodingQueueFullException}.
+ */
+@Service
+public class TranscodingJobScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodingJobScheduler.class);
+
+    public enum Lane {
+        SHORT, STANDARD
+    }
+
+    private final VideoProcessingService videoProcessingService;
+    private final ThreadPoolExecutor executor;
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    // Son işlerin ortalama süresi (ms) - Retry-After tahmini için
+    private final AtomicLong averageJobMillis = new AtomicLong(TimeUnit.MINUTES.toMillis(1));
+
+    private final int concurrency;
+    private final int queueCapacity;
+    private final long shortClipMaxBytes;
+
+    private final Timer shortLaneWait;
+    private final Timer standardLaneWait;
+    private final Timer jobDuration;
+    private final Counter rejectedJobs;
+
+    public TranscodingJobScheduler(VideoProcessingService videoProcessingService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${video.processing.concurrency:0}") int concurrency,
+                                   @Value("${video.processing.queue-capacity:100}") int queueCapacity,
+                                   @Value("${video.processing.short-clip-max-bytes:52428800}") long shortClipMaxBytes) {
+        this.videoProcessingService = videoProcessingService;
+        // 0 = otomatik: libx264 zaten çok çekirdek kullanıyor, iş başına ~4 çekirdek ayır
+        this.concurrency = concurrency > 0
+                ? concurrency
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        this.queueCapacity = queueCapacity;
+        this.shortClipMaxBytes = shortClipMaxBytes;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.concurrency, this.concurrency,
+                0L, TimeUnit.MILLISECONDS, queue, runnable -> {
+                    Thread thread = new Thread(runnable, "transcode-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("transcoding.queue.depth", queue, PriorityBlockingQueue::size)
+                .description("Transcoding jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("transcoding.jobs.active", activeJobs, AtomicInteger::get)
+                .description("Transcoding jobs currently running")
+                .register(meterRegistry);
+        this.shortLaneWait = Timer.builder("transcoding.queue.wait")
+                .tag("lane", Lane.SHORT.name().toLowerCase())
+                .register(meterRegistry);
+        this.standardLaneWait = Timer.builder("transcoding.queue.wait")
+                .tag("lane", Lane.STANDARD.name().toLowerCase())
+                .register(meterRegistry);
+        this.jobDuration = Timer.builder("transcoding.job.duration").register(meterRegistry);
+        this.rejectedJobs = Counter.builder("transcoding.jobs.rejected").register(meterRegistry);
+
+        logger.info("Transcoding scheduler started with {} workers, queue capacity {}",
+                this.concurrency, queueCapacity);
+    }
+
+    /**
+     * Fails fast when the queue cannot take another job, so that uploads can be
+     * refused before their bytes are accepted.
+     */
+    public void checkCapacity() {
+        int depth = queue.size();
+        if (depth >= queueCapacity) {
+            rejectedJobs.increment();
+            throw new TranscodingQueueFullException(depth, estimateRetryAfterSeconds(depth));
+        }
+    }
+
+    public CompletableFuture<Void> submit(Video video) {
+        return submit(video, null);
+    }
+
+    // upload != null: dosya hâlâ yükleniyor, kodlama yükleme ile birlikte ilerler
+    public CompletableFuture<Void> submit(Video video, GrowingFile upload) {
+        checkCapacity();
+
+        Lane lane = laneFor(video);
+        TranscodingJob job = new TranscodingJob(video, upload, lane, sequence.incrementAndGet());
+        executor.execute(job);
+
+        logger.info("Queued video {} in {} lane (queue depth: {})",
+                video.getFilename(), lane, queue.size());
+        return job.completion;
+    }
+
+    public Lane laneFor(Video video) {
+        return video.getFileSize() <= shortClipMaxBytes ? Lane.SHORT : Lane.STANDARD;
+    }
+
+    // Boşta worker var mı? Ortak kuyruktan yalnızca hemen başlatabileceğimiz kadar iş alınır
+    public boolean hasIdleWorker() {
+        return activeJobs.get() + queue.size() < concurrency;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    long estimateRetryAfterSeconds(int depth) {
+        long waitMillis = averageJobMillis.get() * Math.max(1, depth / concurrency);
+        return Math.min(600, Math.max(5, TimeUnit.MILLISECONDS.toSeconds(waitMillis)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class TranscodingJob implements Runnable, Comparable<TranscodingJob> {
+
+        private final Video video;
+        private final GrowingFile upload;
+        private final Lane lane;
+        private final long sequenceNumber;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private TranscodingJob(Video video, GrowingFile upload, Lane lane, long sequenceNumber) {
+            this.video = video;
+            this.upload = upload;
+            this.lane = lane;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            (lane == Lane.SHORT ? shortLaneWait : standardLaneWait)
+                    .record(Duration.ofNanos(startedAt - enqueuedAt));
+
+            activeJobs.incrementAndGet();
+            RuntimeException failure = null;
+            try {
+                videoProcessingService.processVideo(video, upload);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                activeJobs.decrementAndGet();
+                long elapsed = System.nanoTime() - startedAt;
+                jobDuration.record(Duration.ofNanos(elapsed));
+                // Basit üstel ortalama
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+                averageJobMillis.updateAndGet(avg -> (avg * 4 + elapsedMillis) / 5);
+            }
+
+            // Worker serbest kaldıktan sonra tamamla ki dinleyiciler yeni iş alabilsin
+            if (failure != null) {
+                completion.completeExceptionally(failure);
+            } else {
+                completion.complete(null);
+            }
+        }
+
+        @Override
+        public int compareTo(TranscodingJob other) {
+            int byLane = lane.compareTo(other.lane);
+            return byLane != 0 ? byLane : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.videostreaming.service;
+
+public class TranscodingQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TranscodingQueueFullException(int queueDepth, long retryAfterSeconds) {
+        super("Transcoding queue is full (" + queueDepth + " jobs waiting)");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,129 @@
+package com.videostreaming.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.videostreaming.model.VideoPage;
+import com.videostreaming.model.VideoSummary;
+import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Paged video listing, newest first. Pages are cut with a keyset on
+ * {@code (created_at, id)} rather than OFFSET, so a page deep in the
+ * catalogue costs the same as the first one. The cursor is opaque to clients:
+ * the last row's creation time and id, base64url-encoded.
+ *
+ * <p>First pages (the front page hits them on every load) are cached for a
+ * short TTL per status filter and page size; later pages are not cached.
+ */
+@Service
+public class VideoCatalog {
+
+    private record PageKey(String status, int limit) {
+    }
+
+    private final VideoRepository videoRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final AsyncLoadingCache<PageKey, VideoPage> firstPages;
+
+    public VideoCatalog(VideoRepository videoRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${video.list.default-page-size:20}") int defaultPageSize,
+                        @Value("${video.list.max-page-size:100}") int maxPageSize,
+                        @Value("${video.list.first-page-ttl:5s}") Duration firstPageTtl) {
+        this.videoRepository = videoRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.firstPages = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(firstPageTtl)
+                .recordStats()
+                .buildAsync((key, executor) -> loadPage(key.status(), null, key.limit()).toFuture());
+
+        CaffeineCacheMetrics.monitor(meterRegistry, firstPages.synchronous(), "videos.list.first-page");
+    }
+
+    /**
+     * One page of videos, optionally only those with {@code status}.
+     *
+     * @throws IllegalArgumentException if {@code cursor} was not issued by this service
+     */
+    public Mono<VideoPage> list(String status, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        String statusFilter = status == null || status.isBlank() ? null : status.toUpperCase();
+        if (cursor == null || cursor.isBlank()) {
+            // suppressCancel: iptal edilen bir istek paylaşılan future'ı iptal etmemeli
+            return Mono.fromFuture(() -> firstPages.get(new PageKey(statusFilter, pageSize)), true);
+        }
+        Cursor after;
+        try {
+            after = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        return loadPage(statusFilter, after, pageSize);
+    }
+
+    // Yeni video eklendiğinde veya silindiğinde; durum değişiklikleri TTL ile yansır
+    public void invalidate() {
+        firstPages.synchronous().invalidateAll();
+    }
+
+    private Mono<VideoPage> loadPage(String status, Cursor after, int pageSize) {
+        // Bir fazla satır okunur: varsa sonraki sayfa vardır
+        int fetch = pageSize + 1;
+        Flux<VideoSummary> rows;
+        if (status == null) {
+            rows = after == null
+                    ? videoRepository.findFirstPage(fetch)
+                    : videoRepository.findPageBefore(after.createdAt(), after.id(), fetch);
+        } else {
+            rows = after == null
+                    ? videoRepository.findFirstPageByStatus(status, fetch)
+                    : videoRepository.findPageByStatusBefore(status, after.createdAt(), after.id(), fetch);
+        }
+        return rows.collectList().map(items -> {
+            if (items.size() <= pageSize) {
+                return new VideoPage(items, null);
+            }
+            List<VideoSummary> page = List.copyOf(items.subList(0, pageSize));
+            VideoSummary last = page.get(pageSize - 1);
+            return new VideoPage(page, new Cursor(last.getCreatedAt(), last.getId()).encode());
+        });
+    }
+
+    private record Cursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.videostreaming.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.videostreaming.model.Video;
+import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Caches what the segment endpoints need to know about a video (status and
+ * processed output directory) so that serving a segment does not cost a
+ * database round-trip. Only READY locations are kept for the full TTL; unknown
+ * ids and videos still in progress are cached briefly, since another node may
+ * finish them without this node hearing about it. Concurrent misses for the
+ * same id share one query.
+ */
+@Service
+public class VideoLocationCache {
+
+    /**
+     * {@code lastModified} (epoch millis) is when the output was produced, as
+     * recorded in the database - the same on every node, unlike file times
+     * of a local copy.
+     */
+    public record VideoLocation(Long id, String status, String cmafPath, long lastModified) {
+
+        static VideoLocation of(Video video) {
+            // İşleme zamanı kaydedilmemiş eski videolar için son güncelleme
+            LocalDateTime processedAt = video.getProcessedAt() != null ? video.getProcessedAt()
+                    : video.getUpdatedAt() != null ? video.getUpdatedAt()
+                    : video.getCreatedAt();
+            long lastModified = processedAt != null
+                    ? processedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : 0;
+            return new VideoLocation(video.getId(), video.getStatus(), video.getCmafPath(), lastModified);
+        }
+
+        boolean isReady() {
+            return "READY".equals(status) && cmafPath != null;
+        }
+    }
+
+    private final AsyncLoadingCache<Long, Optional<VideoLocation>> cache;
+
+    public VideoLocationCache(VideoRepository videoRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${video.location-cache.max-size:10000}") long maxSize,
+                              @Value("${video.location-cache.ttl:5m}") Duration ttl,
+                              @Value("${video.location-cache.negative-ttl:10s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, Optional<VideoLocation>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<VideoLocation> location, long currentTime) {
+                        // Yalnızca READY kalıcı: işleme başka bir node'da bitebilir
+                        return (location.filter(VideoLocation::isReady).isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<VideoLocation> location,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, location, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<VideoLocation> location,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync((id, executor) -> videoRepository.findById(id)
+                        .map(video -> Optional.of(VideoLocation.of(video)))
+                        .defaultIfEmpty(Optional.empty())
+                        .toFuture());
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "videos.location");
+    }
+
+    public Mono<VideoLocation> get(Long id) {
+        // suppressCancel: iptal edilen bir istek paylaşılan future'ı iptal etmemeli
+        return Mono.fromFuture(() -> cache.get(id), true)
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    // Durum veya çıktı dizini değiştiğinde çağrılmalı (işleme, silme)
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+}
@@ -1,369 +1,769 @@
 package com.videostreaming.service;
 
 import com.videostreaming.model.Video;
+import com.videostreaming.service.EncodingAnalyzer.EncodingPlan;
+import com.videostreaming.service.MediaProbeService.MediaInfo;
 import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class VideoProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(VideoProcessingService.class);
 
+    private static final int SEGMENT_SECONDS = 4;
+    private static final String AUDIO_RENDITION = "audio";
+    private static final String AUDIO_CODECS = "mp4a.40.2"; // AAC-LC
+    private static final String MEDIA_FILE = "media.mp4";
+    private static final List<String> STREAMABLE_EXTENSIONS = List.of(".mkv", ".webm", ".ts", ".m2ts", ".mts");
+
     @Value("${video.storage.path}")
     private String videoStoragePath;
 
     @Value("${ffmpeg.path}")
     private String ffmpegPath;
 
-    private final VideoRepository videoRepository;
+    // segments: basamak başına init.mp4 + segment dosyaları; single-file: basamak başına tek media.mp4
+    @Value("${video.storage.layout:segments}")
+    private String storageLayout;
+
+    @Value("${video.ladder.audio-bitrate:128}")
+    private int audioBitrateKbps;
+
+    @Value("${video.processing.chunking.enabled:true}")
+    private boolean chunkingEnabled;
+
+    // Bu süreden kısa videolar tek parça kodlanır (saniye)
+    @Value("${video.processing.chunking.min-duration:600}")
+    private double chunkingMinDuration;
+
+    @Value("${video.processing.chunking.min-chunk-seconds:60}")
+    private int minChunkSeconds;
+
+    // Birleştirilmiş video ile tek parça kodlanan ses arasında izin verilen süre farkı
+    @Value("${video.processing.chunking.max-av-drift-ms:500}")
+    private long maxAvDriftMs;
+
+    // Yükleme sırasında kodlamaya başlamadan önce beklenen (probe için) byte sayısı
+    @Value("${video.processing.pipelined-ingest.probe-bytes:4194304}")
+    private int pipelineProbeBytes;
 
-    public VideoProcessingService(VideoRepository videoRepository) {
+    // Trickplay küçük resimleri: kodlama filtre grafiğinin ek bir dalı, aynı decode'dan
+    @Value("${video.thumbnails.enabled:true}")
+    private boolean thumbnailsEnabled;
+
+    @Value("${video.thumbnails.interval:5}")
+    private int thumbnailInterval;
+
+    @Value("${video.thumbnails.width:160}")
+    private int thumbnailWidth;
+
+    @Value("${video.thumbnails.columns:10}")
+    private int thumbnailColumns;
+
+    @Value("${video.thumbnails.rows:10}")
+    private int thumbnailRows;
+
+    // İlerleme olaylarının en sık yayın aralığı
+    @Value("${video.events.progress-interval:1s}")
+    private Duration progressInterval;
+
+    private final VideoRepository videoRepository;
+    private final VideoLocationCache videoLocationCache;
+    private final ManifestRenderer manifestRenderer;
+    private final SegmentStore segmentStore;
+    private final ProcessingEventHub eventHub;
+    private final ProcessedOutputIndex processedOutputIndex;
+    private final MeterRegistry meterRegistry;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+    private final MediaProbeService mediaProbeService;
+    private final FFmpegExecutor ffmpegExecutor;
+    private final EncodingAnalyzer encodingAnalyzer;
+    private final List<Rendition> ladder;
+    private final int chunkParallelism;
+    // Tüm işler arasında paylaşılır - aynı anda çalışan parça encode sayısını sınırlar
+    private final ExecutorService chunkEncoders;
+
+    public VideoProcessingService(VideoRepository videoRepository,
+                                  VideoLocationCache videoLocationCache,
+                                  ManifestRenderer manifestRenderer,
+                                  SegmentStore segmentStore,
+                                  ProcessingEventHub eventHub,
+                                  ProcessedOutputIndex processedOutputIndex,
+                                  MeterRegistry meterRegistry,
+                                  MediaProbeService mediaProbeService,
+                                  FFmpegExecutor ffmpegExecutor,
+                                  EncodingAnalyzer encodingAnalyzer,
+                                  @Value("${video.ladder.renditions:1080:5000,720:2800,480:1400,360:800}") String ladder,
+                                  @Value("${video.processing.chunking.parallelism:0}") int chunkParallelism) {
         this.videoRepository = videoRepository;
+        this.videoLocationCache = videoLocationCache;
+        this.manifestRenderer = manifestRenderer;
+        this.segmentStore = segmentStore;
+        this.eventHub = eventHub;
+        this.processedOutputIndex = processedOutputIndex;
+        this.meterRegistry = meterRegistry;
+        this.bytesIn = Counter.builder("video.processing.bytes.in")
+                .description("Source bytes transcoded")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.bytesOut = Counter.builder("video.processing.bytes.out")
+                .description("Processed output bytes (all renditions and audio)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.mediaProbeService = mediaProbeService;
+        this.ffmpegExecutor = ffmpegExecutor;
+        this.encodingAnalyzer = encodingAnalyzer;
+        this.ladder = Rendition.parseLadder(ladder);
+        this.chunkParallelism = chunkParallelism > 0
+                ? chunkParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.chunkEncoders = Executors.newFixedThreadPool(this.chunkParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-encode-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public Mono<Void> processVideo(Video video) {
-        return Mono.fromRunnable(() -> {
-            try {
-                logger.info("Starting TRUE CMAF processing for: {}", video.getFilename());
+    @PreDestroy
+    public void shutdown() {
+        chunkEncoders.shutdownNow();
+    }
 
-                video.setStatus("PROCESSING");
-                videoRepository.save(video).subscribe();
+    // TranscodingJobScheduler worker thread'inde çalışır, bloklayıcıdır
+    public void processVideo(Video video) {
+        processVideo(video, null);
+    }
 
-                String inputPath = Paths.get(videoStoragePath, video.getFilename()).toString();
-                String outputDir = Paths.get(videoStoragePath, "processed",
-                        video.getFilename().replaceAll("\\.[^.]+$", "")).toString();
+    /**
+     * Processes a video; when {@code upload} is given the file is still being
+     * uploaded and, if its container can be read sequentially, ffmpeg is fed
+     * from the growing file so encoding overlaps the transfer.
+     */
+    public void processVideo(Video video, GrowingFile upload) {
+        try {
+            logger.info("Starting TRUE CMAF processing for: {}", video.getFilename());
 
-                Files.createDirectories(Paths.get(outputDir));
+            video.setStatus("PROCESSING");
+            videoRepository.save(video).block();
+            videoLocationCache.invalidate(video.getId());
+            eventHub.publish(ProcessingEventHub.Event.ofStatus(video.getId(), "PROCESSING"));
 
-                // Video süresini al
-                double videoDuration = getVideoDuration(inputPath);
-                logger.info("Video duration: {} seconds", videoDuration);
+            String inputPath = Paths.get(videoStoragePath, video.getFilename()).toString();
+            String outputDir = Paths.get(videoStoragePath, "processed",
+                    video.getFilename().replaceAll("\\.[^.]+$", "")).toString();
 
-                // GERÇEK CMAF - tek ortak segmentler oluştur
-                generateTrueCMAF(inputPath, outputDir);
+            Files.createDirectories(Paths.get(outputDir));
 
-                // Ortak segmentlerden HLS ve DASH manifest'leri oluştur
-                generateHLSManifest(outputDir, videoDuration);
-                generateDASHManifest(outputDir, videoDuration);
+            // Yükleme sürüyorsa probe dosyanın başıyla yapılır, kodlama yükleme ile birlikte ilerler
+            boolean streamable = upload != null && isStreamable(inputPath, upload);
+            if (upload != null && !streamable) {
+                upload.awaitComplete();
+            }
 
-                video.setStatus("READY");
-                video.setCmafPath(outputDir);
-                video.setHlsManifestPath(outputDir + "/playlist.m3u8");
-                video.setDashManifestPath(outputDir + "/manifest.mpd");
+            // Yalnızca konteyner başlıkları okunur: süre, çözünürlük, codec, kare hızı, bitrate.
+            // Kaynak çözünürlüğü / ses - hangi basamakların üretileceğini belirler
+            long stageStart = System.nanoTime();
+            MediaInfo source = mediaProbeService.probe(inputPath);
+            List<Rendition> renditions = selectRenditions(source);
+            stageStart = recordStage("probe", stageStart);
+
+            // Yükleme sürerken kaynağın tamamı yok: per-title analiz yapılamaz, sabit ayarlar
+            EncodingPlan plan = encodingAnalyzer.defaultPlan(renditions);
+            boolean encoded = streamable && encodeWhileUploading(outputDir, source, plan, upload,
+                    new ProcessingProgress(eventHub, video.getId(), source.durationSeconds(), progressInterval));
+            if (encoded) {
+                stageStart = recordStage("encode", stageStart);
+                // Probe dosyanın başıyla yapılmıştı; süre ancak yükleme bitince kesinleşir
+                source = mediaProbeService.probe(inputPath);
+                stageStart = recordStage("probe", stageStart);
+            }
+            applyMediaInfo(video, source);
 
-                videoRepository.save(video).subscribe();
+            if (!encoded) {
+                // Örnek pencerelerin kodlanmasıyla içerik karmaşıklığı -> CRF, basamak tavanları, basamaklar
+                plan = encodingAnalyzer.plan(inputPath, source, renditions, Paths.get(outputDir, "_analysis"));
+                renditions = plan.renditions();
+                stageStart = recordStage("analyze", stageStart);
+            }
+            applyEncodingPlan(video, plan);
+
+            double videoDuration = source.durationSeconds();
+            logger.info("Video duration: {} seconds ({} {}x{} @ {} fps, {} bps)", videoDuration,
+                    source.videoCodec(), source.width(), source.height(), source.frameRate(), source.bitrate());
+
+            // GERÇEK CMAF - tek decode, her basamak için ortak fMP4 segmentleri.
+            // Uzun videolar keyframe'lerden bölünüp paralel kodlanır ve tek zaman çizelgesinde birleştirilir
+            List<ThumbnailSprites.Frame> thumbnailFrames;
+            Path framesDir = Paths.get(outputDir, ThumbnailSprites.FRAMES_DIR);
+            if (encoded) {
+                logger.info("Pipelined encode finished with the upload for: {}", video.getFilename());
+                thumbnailFrames = ThumbnailSprites.listFrames(framesDir, 0, thumbnailInterval);
+            } else if (chunkingEnabled && chunkParallelism > 1 && videoDuration >= chunkingMinDuration) {
+                try {
+                    thumbnailFrames = generateChunkedCMAF(inputPath, outputDir, source, plan, videoDuration,
+                            new ProcessingProgress(eventHub, video.getId(), videoDuration, progressInterval));
+                } catch (AvDurationMismatchException e) {
+                    // Tek geçişli kodlama referans: kaynağın kendi A/V farkı varsa o da korunur
+                    logger.warn("Chunked encode of {} rejected ({}), encoding in a single pass",
+                            video.getFilename(), e.getMessage());
+                    deleteRecursively(Paths.get(outputDir));
+                    Files.createDirectories(Paths.get(outputDir));
+                    generateTrueCMAF(inputPath, outputDir, source, plan,
+                            new ProcessingProgress(eventHub, video.getId(), videoDuration, progressInterval));
+                    thumbnailFrames = ThumbnailSprites.listFrames(framesDir, 0, thumbnailInterval);
+                }
+            } else {
+                generateTrueCMAF(inputPath, outputDir, source, plan,
+                        new ProcessingProgress(eventHub, video.getId(), videoDuration, progressInterval));
+                thumbnailFrames = ThumbnailSprites.listFrames(framesDir, 0, thumbnailInterval);
+            }
+            if (!encoded) {
+                // Başarısız pipelined denemesi de dahil
+                stageStart = recordStage("encode", stageStart);
+            }
 
-                logger.info("TRUE CMAF processing completed for: {}", video.getFilename());
+            // Segment boyut/zaman index'i - manifest'ler istek anında bundan üretilir (ManifestRenderer)
+            List<FragmentIndex.Track> tracks = new ArrayList<>();
+            for (Rendition rendition : renditions) {
+                int[] size = outputSize(source, rendition);
+                tracks.add(FragmentIndex.indexTrack(Paths.get(outputDir, rendition.getName()), rendition.getName(),
+                        false, rendition.getCodecs(size[0], size[1], source.frameRate()), size[0], size[1]));
+            }
+            if (source.hasAudio()) {
+                tracks.add(FragmentIndex.indexTrack(Paths.get(outputDir, AUDIO_RENDITION), AUDIO_RENDITION,
+                        true, AUDIO_CODECS, 0, 0));
+            }
+            if ("single-file".equals(storageLayout)) {
+                // Basamak başına tek fMP4 (init + sidx + segmentler); segment dosyaları silinir
+                for (int i = 0; i < tracks.size(); i++) {
+                    FragmentIndex.Track track = tracks.get(i);
+                    tracks.set(i, FragmentIndex.packSingleFile(Paths.get(outputDir, track.name()), track, MEDIA_FILE));
+                }
+            }
+            FragmentIndex.Thumbnails thumbnails = writeThumbnails(Paths.get(outputDir), thumbnailFrames, source);
+            deleteRecursively(framesDir);
+            new FragmentIndex(source.durationMs(), source.frameRate(), source.frameRateRatio(),
+                    source.audioSampleRate(), tracks, thumbnails).write(Paths.get(outputDir));
+            bytesIn.increment(Files.size(Paths.get(inputPath)));
+            for (FragmentIndex.Track track : tracks) {
+                long trackBytes = (long) track.initSize() + track.indexSize();
+                for (int size : track.sizes()) {
+                    trackBytes += size;
+                }
+                bytesOut.increment(trackBytes);
+                logger.info("Indexed {}: {} segments, average {} bps, peak {} bps", track.name(),
+                        track.segmentCount(), track.averageBitrate(), track.peakBitrate());
+                // FFmpeg'in playlist'i artık gerekmiyor
+                Files.deleteIfExists(Paths.get(outputDir, track.name(), "ffmpeg_playlist.m3u8"));
+            }
 
-            } catch (Exception e) {
-                logger.error("Error processing video: {}", video.getFilename(), e);
-                video.setStatus("ERROR");
-                videoRepository.save(video).subscribe();
+            // Nesne deposu kullanılıyorsa burada yüklenir; READY ancak tüm dosyalar yerindeyken
+            stageStart = recordStage("index", stageStart);
+            segmentStore.publish(Paths.get(outputDir));
+            stageStart = recordStage("publish", stageStart);
+
+            video.setStatus("READY");
+            video.setProcessedAt(LocalDateTime.now());
+            video.setCmafPath(outputDir);
+            video.setHlsManifestPath(outputDir + "/playlist.m3u8");
+            video.setDashManifestPath(outputDir + "/manifest.mpd");
+            if (upload != null) {
+                // Yükleme sonucu (boyut, özet) satıra işleme sürerken yazıldı - eski değerlerle ezilmesin
+                videoRepository.findById(video.getId()).blockOptional().ifPresent(stored -> {
+                    video.setFileSize(stored.getFileSize());
+                    video.setContentSha256(stored.getContentSha256());
+                });
             }
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+
+            // Worker thread'indeyiz: iş tamamlandı sayılmadan önce durum kalıcı olsun
+            videoRepository.save(video).block();
+            // Aynı içerikli sonraki yüklemeler bu çıktıyı kullanır
+            processedOutputIndex.register(video).block();
+            recordStage("persist", stageStart);
+            videoLocationCache.invalidate(video.getId());
+            manifestRenderer.invalidate(video.getId());
+            eventHub.publish(ProcessingEventHub.Event.ofStatus(video.getId(), "READY"));
+
+            logger.info("TRUE CMAF processing completed for: {}", video.getFilename());
+
+        } catch (Exception e) {
+            logger.error("Error processing video: {}", video.getFilename(), e);
+            video.setStatus("ERROR");
+            videoRepository.save(video).block();
+            videoLocationCache.invalidate(video.getId());
+            eventHub.publish(ProcessingEventHub.Event.ofStatus(video.getId(), "ERROR"));
+        }
     }
 
-    private double getVideoDuration(String inputPath) throws IOException, InterruptedException {
-        String[] durationCommand = {
-                ffmpegPath,
-                "-i", inputPath,
-                "-f", "null",
-                "-"
-        };
+    // Aşama süresi (probe, encode, index, publish, persist); bir sonraki aşamanın başlangıcını döner
+    private long recordStage(String stage, long startNanos) {
+        long now = System.nanoTime();
+        Timer.builder("video.processing.stage")
+                .description("Time spent in each processing stage")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(now - startNanos));
+        return now;
+    }
 
-        ProcessBuilder processBuilder = new ProcessBuilder(durationCommand);
-        processBuilder.redirectErrorStream(true);
-        Process process = processBuilder.start();
-
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                // Duration satırını ara: Duration: 00:01:23.45, start: 0.000000, bitrate: 1234 kb/s
-                if (line.contains("Duration:")) {
-                    String durationStr = line.split("Duration: ")[1].split(",")[0].trim();
-                    return parseDuration(durationStr);
-                }
-            }
+    private void applyMediaInfo(Video video, MediaInfo source) {
+        video.setDurationMs(source.durationMs());
+        video.setDuration((int) Math.round(source.durationSeconds()));
+        video.setResolution(source.width() + "x" + source.height());
+        video.setVideoCodec(source.videoCodec());
+        video.setAudioCodec(source.audioCodec());
+        video.setFrameRate(source.frameRate());
+        video.setBitrate(source.bitrate() > 0 ? source.bitrate() : null);
+    }
+
+    // Küçük resimler isteğe bağlı: üretilemezse video yine de yayınlanır
+    private FragmentIndex.Thumbnails writeThumbnails(Path outputDir, List<ThumbnailSprites.Frame> frames,
+                                                     MediaInfo source) {
+        if (!thumbnailsEnabled || frames.isEmpty()) {
+            return null;
+        }
+        try {
+            int[] size = thumbnailSize(source);
+            FragmentIndex.Thumbnails thumbnails = ThumbnailSprites.write(outputDir, frames, source.durationMs(),
+                    thumbnailInterval, thumbnailColumns, thumbnailRows, size[0], size[1]);
+            logger.info("Wrote {} thumbnails in {} sprite sheets", thumbnails.count(), thumbnails.sheetCount());
+            return thumbnails;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not build thumbnail sprites in {}: {}", outputDir, e.getMessage());
+            return null;
         }
+    }
 
-        process.waitFor(10, TimeUnit.SECONDS);
-        return 0.0; // Varsayılan değer
+    private int[] thumbnailSize(MediaInfo source) {
+        int height = (int) Math.round((double) thumbnailWidth * source.height() / Math.max(1, source.width()));
+        return new int[]{thumbnailWidth, Math.max(2, height + height % 2)};
     }
 
-    private double parseDuration(String duration) {
-        // Format: HH:MM:SS.ms
-        String[] parts = duration.split(":");
-        if (parts.length == 3) {
-            double hours = Double.parseDouble(parts[0]);
-            double minutes = Double.parseDouble(parts[1]);
-            double seconds = Double.parseDouble(parts[2]);
-            return hours * 3600 + minutes * 60 + seconds;
+    private void applyEncodingPlan(Video video, EncodingPlan plan) {
+        video.setEncodingComplexity(plan.complexity());
+        video.setEncodingCrf(plan.crf());
+        video.setEncodingLadder(plan.ladderSpec());
+    }
+
+    private List<Rendition> selectRenditions(MediaInfo source) {
+        // Kaynaktan büyük basamaklar atlanır (upscale yok)
+        int shortSide = Math.min(source.width(), source.height());
+        List<Rendition> selected = new ArrayList<>();
+        for (Rendition rendition : ladder) {
+            if (rendition.getHeight() <= shortSide) {
+                selected.add(rendition);
+            }
+        }
+        if (selected.isEmpty()) {
+            Rendition smallest = ladder.get(ladder.size() - 1);
+            selected.add(new Rendition(shortSide - shortSide % 2, smallest.getMaxBitrateKbps()));
         }
-        return 0.0;
+        return selected;
     }
 
-    private void generateTrueCMAF(String inputPath, String outputDir) throws IOException, InterruptedException {
-        // HLS ile fragmented MP4 segmentleri oluştur (CMAF uyumlu)
-        String[] cmafCommand = {
-                ffmpegPath,
-                "-i", inputPath,
-                "-c:v", "libx264",
-                "-c:a", "aac",
-                "-preset", "fast",
-                "-crf", "23",
-                "-f", "hls",
-                "-hls_time", "4",
-                "-hls_playlist_type", "vod",
-                "-hls_segment_type", "fmp4",
-                "-hls_fmp4_init_filename", "init.mp4",
-                "-hls_segment_filename", outputDir + "/segment_%03d.m4s",
-                "-movflags", "+frag_keyframe+empty_moov+default_base_moof",
-                outputDir + "/ffmpeg_playlist.m3u8" // FFmpeg'in orijinal playlist'i
-        };
+    private int[] outputSize(MediaInfo source, Rendition rendition) {
+        int shortSide = rendition.getHeight();
+        double aspect = (double) Math.max(source.width(), source.height())
+                / Math.max(1, Math.min(source.width(), source.height()));
+        int longSide = (int) Math.round(shortSide * aspect);
+        longSide += longSide % 2;
+        return source.height() > source.width()
+                ? new int[]{shortSide, longSide}
+                : new int[]{longSide, shortSide};
+    }
 
-        logger.info("Generating TRUE CMAF segments (fragmented MP4)");
+    private void generateTrueCMAF(String inputPath, String outputDir, MediaInfo source,
+                                  EncodingPlan plan, ProcessingProgress progress)
+            throws IOException, InterruptedException {
+        List<String> cmafCommand = buildLadderCommand(inputPath, outputDir, source, plan, true);
+
+        logger.info("Generating TRUE CMAF segments for {} renditions{}",
+                plan.renditions().size(), source.hasAudio() ? " + audio" : "");
         logger.info("FFmpeg command: {}", String.join(" ", cmafCommand));
-        executeFFmpegCommand(cmafCommand);
+        ffmpegExecutor.execute(cmafCommand.toArray(new String[0]), null, progress.encode(0));
 
-        // FFmpeg playlist'ini sakla - gerçek süreler burada
-        logger.info("FFmpeg generated playlist saved as ffmpeg_playlist.m3u8");
     }
 
-    private void generateHLSManifest(String outputDir, double videoDuration) throws IOException, InterruptedException {
-        // FFmpeg'in orijinal playlist'inden gerçek sürelerini oku
-        double[] segmentDurations = parseFFmpegPlaylist(outputDir);
-
-        if (segmentDurations.length == 0) {
-            logger.warn("Could not parse FFmpeg playlist, using calculated durations");
-            segmentDurations = getCalculatedSegmentDurations(outputDir, videoDuration);
+    // MKV/WebM/TS her zaman sırayla okunabilir; MP4 yalnızca fragmented ise (moov başta, mvex var)
+    private boolean isStreamable(String inputPath, GrowingFile upload) throws IOException, InterruptedException {
+        String name = inputPath.toLowerCase();
+        if (STREAMABLE_EXTENSIONS.stream().anyMatch(name::endsWith)) {
+            upload.awaitLength(pipelineProbeBytes);
+            return true;
         }
+        return Fmp4Boxes.isFragmented(upload.readPrefix(pipelineProbeBytes));
+    }
 
-        StringBuilder playlist = new StringBuilder();
-        playlist.append("#EXTM3U\n");
-        playlist.append("#EXT-X-VERSION:7\n");
-        playlist.append("#EXT-X-TARGETDURATION:5\n");
-        playlist.append("#EXT-X-PLAYLIST-TYPE:VOD\n");
-        playlist.append("#EXT-X-MAP:URI=\"init.mp4\"\n");
-
-        double totalDuration = 0.0;
-        for (int i = 0; i < segmentDurations.length; i++) {
-            String segmentName = String.format("segment_%03d.m4s", i);
-            double duration = segmentDurations[i];
-
-            playlist.append(String.format("#EXTINF:%.6f,\n", duration));
-            playlist.append(segmentName).append("\n");
-            totalDuration += duration;
+    // Büyüyen dosyadan ffmpeg stdin'ine; başarısız olursa (ve yükleme tamamlandıysa) dosyadan yeniden kodlanır
+    private boolean encodeWhileUploading(String outputDir, MediaInfo source, EncodingPlan plan,
+                                         GrowingFile upload, ProcessingProgress progress)
+            throws IOException, InterruptedException {
+        List<String> cmafCommand = buildLadderCommand("pipe:0", outputDir, source, plan, true);
+        logger.info("Encoding {} renditions while the upload is in progress", plan.renditions().size());
+
+        try (InputStream stdin = upload.openStream()) {
+            ffmpegExecutor.execute(cmafCommand.toArray(new String[0]), stdin, progress.encode(0));
+        } catch (IOException | RuntimeException e) {
+            upload.awaitComplete(); // yükleme başarısızsa burada fırlatır
+            logger.warn("Pipelined encode failed, re-encoding from the stored file: {}", e.getMessage());
+            deleteRecursively(Paths.get(outputDir));
+            Files.createDirectories(Paths.get(outputDir));
+            return false;
         }
+        upload.awaitComplete();
+        return true;
+    }
 
-        playlist.append("#EXT-X-ENDLIST\n");
-
-        // HLS playlist dosyasını yaz
-        Path playlistPath = Paths.get(outputDir, "playlist.m3u8");
-        Files.writeString(playlistPath, playlist.toString());
+    private int gopSize(MediaInfo source) {
+        return Math.max(1, (int) Math.round(source.frameRate() * SEGMENT_SECONDS));
+    }
 
-        logger.info("Created HLS manifest with {} segments, total duration: {:.3f}s (original: {:.3f}s)",
-                segmentDurations.length, totalDuration, videoDuration);
+    // Kaynaktan yüksek bitrate'e izin vermek yalnızca dosyayı şişirir
+    private int maxrateKbps(Rendition rendition, MediaInfo source) {
+        long sourceBitrate = source.videoBitrate() > 0 ? source.videoBitrate() : source.bitrate();
+        if (sourceBitrate <= 0) {
+            return rendition.getMaxBitrateKbps();
+        }
+        return (int) Math.max(200, Math.min(rendition.getMaxBitrateKbps(), sourceBitrate / 1000));
+    }
 
-        // FFmpeg playlist'ini temizle
-        try {
-            Files.deleteIfExists(Paths.get(outputDir, "ffmpeg_playlist.m3u8"));
-        } catch (Exception e) {
-            logger.warn("Could not delete FFmpeg playlist: {}", e.getMessage());
+    private int audioBitrateKbps(MediaInfo source) {
+        if (source.audioBitrate() <= 0) {
+            return audioBitrateKbps;
         }
+        return (int) Math.max(64, Math.min(audioBitrateKbps, source.audioBitrate() / 1000));
     }
 
-    private double[] parseFFmpegPlaylist(String outputDir) throws IOException {
-        Path playlistPath = Paths.get(outputDir, "ffmpeg_playlist.m3u8");
-        if (!Files.exists(playlistPath)) {
-            logger.warn("FFmpeg playlist not found: {}", playlistPath);
-            return new double[0];
+    // withAudio=false: parçalı kodlamada ses tüm kaynaktan ayrıca kodlanır (buildAudioCommand)
+    private List<String> buildLadderCommand(String inputPath, String outputDir, MediaInfo source,
+                                            EncodingPlan plan, boolean withAudio) throws IOException {
+        List<Rendition> renditions = plan.renditions();
+        List<String> cmafCommand = new ArrayList<>(List.of(ffmpegPath, "-i", inputPath));
+
+        // Tek decode: video bir kez çözülür, split ile her basamağın scale'ine
+        // (ve küçük resim dalına) dağıtılır
+        StringBuilder filterGraph = new StringBuilder("[0:v]split=")
+                .append(renditions.size() + (thumbnailsEnabled ? 1 : 0));
+        for (int i = 0; i < renditions.size(); i++) {
+            filterGraph.append("[v").append(i).append("]");
+        }
+        if (thumbnailsEnabled) {
+            int[] size = thumbnailSize(source);
+            filterGraph.append("[vt];[vt]fps=1/").append(thumbnailInterval)
+                    .append(",scale=").append(size[0]).append(":").append(size[1]).append("[thumbs]");
+        }
+        for (int i = 0; i < renditions.size(); i++) {
+            int[] size = outputSize(source, renditions.get(i));
+            filterGraph.append(";[v").append(i).append("]scale=")
+                    .append(size[0]).append(":").append(size[1])
+                    .append("[v").append(i).append("out]");
+        }
+        cmafCommand.add("-filter_complex");
+        cmafCommand.add(filterGraph.toString());
+
+        // Her basamak ayrı bir HLS/fMP4 çıktısı (video-only), ses tek sefer kodlanır
+        for (int i = 0; i < renditions.size(); i++) {
+            Rendition rendition = renditions.get(i);
+            int[] size = outputSize(source, rendition);
+            cmafCommand.addAll(List.of(
+                    "-map", "[v" + i + "out]",
+                    "-an",
+                    "-c:v", "libx264",
+                    "-preset", plan.preset(),
+                    // Capped CRF: kalite CRF ile sabit, tavan (per-title) tepe bitrate'i ve segment boyutunu sınırlar
+                    "-crf", String.valueOf(plan.crf()),
+                    "-maxrate", maxrateKbps(rendition, source) + "k",
+                    "-bufsize", (maxrateKbps(rendition, source) * 2) + "k",
+                    "-profile:v", rendition.getProfile(),
+                    "-level:v", rendition.getLevel(size[0], size[1], source.frameRate()),
+                    "-pix_fmt", "yuv420p",
+                    // Segment sınırlarında hizalı keyframe - basamaklar arası geçiş için şart.
+                    // GOP kaynağın kare hızından: segment başına tek GOP
+                    "-force_key_frames", "expr:gte(t,n_forced*" + SEGMENT_SECONDS + ")",
+                    "-g", String.valueOf(gopSize(source)),
+                    "-keyint_min", String.valueOf(gopSize(source))));
+            cmafCommand.addAll(hlsOutputArgs(Paths.get(outputDir, rendition.getName())));
         }
 
-        List<Double> durations = new ArrayList<>();
-        List<String> lines = Files.readAllLines(playlistPath);
+        if (thumbnailsEnabled) {
+            Path framesDir = Paths.get(outputDir, ThumbnailSprites.FRAMES_DIR);
+            Files.createDirectories(framesDir);
+            cmafCommand.addAll(List.of(
+                    "-map", "[thumbs]",
+                    "-an",
+                    "-c:v", "mjpeg",
+                    "-q:v", "3",
+                    "-f", "image2",
+                    "-start_number", "0",
+                    framesDir.resolve(ThumbnailSprites.FRAME_PATTERN).toString()));
+        }
 
-        for (String line : lines) {
-            if (line.startsWith("#EXTINF:")) {
-                try {
-                    // #EXTINF:4.000000, formatından süreyi çıkar
-                    String durationStr = line.substring(8, line.indexOf(','));
-                    double duration = Double.parseDouble(durationStr);
-                    durations.add(duration);
-                } catch (Exception e) {
-                    logger.warn("Could not parse duration from line: {}", line);
-                }
-            }
+        if (withAudio && source.hasAudio()) {
+            cmafCommand.addAll(audioOutputArgs(outputDir, source));
         }
+        return cmafCommand;
+    }
 
-        logger.info("Parsed {} segment durations from FFmpeg playlist", durations.size());
-        return durations.stream().mapToDouble(Double::doubleValue).toArray();
+    private List<String> buildAudioCommand(String inputPath, String outputDir, MediaInfo source)
+            throws IOException {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-i", inputPath));
+        command.addAll(audioOutputArgs(outputDir, source));
+        return command;
     }
 
-    private double[] getCalculatedSegmentDurations(String outputDir, double videoDuration) throws IOException {
-        // Fallback: Manuel hesaplama
-        Path outputPath = Paths.get(outputDir);
-        int segmentCount = 0;
+    private List<String> audioOutputArgs(String outputDir, MediaInfo source) throws IOException {
+        List<String> args = new ArrayList<>(List.of(
+                "-map", "0:a:0",
+                "-vn",
+                "-c:a", "aac",
+                "-b:a", audioBitrateKbps(source) + "k",
+                "-ac", "2"));
+        args.addAll(hlsOutputArgs(Paths.get(outputDir, AUDIO_RENDITION)));
+        return args;
+    }
 
-        for (int i = 0; i < 1000; i++) {
-            String segmentName = String.format("segment_%03d.m4s", i);
-            if (Files.exists(outputPath.resolve(segmentName))) {
-                segmentCount++;
-            } else {
-                break;
-            }
-        }
+    // Parça dosyası ve kaynaktaki başlangıç anı (split CSV'sinden)
+    private record Chunk(Path file, double startSeconds) {
+    }
 
-        double[] durations = new double[segmentCount];
+    // Birleştirilmiş video ile ses süreleri tutmuyor; parçalı çıktı kullanılmaz
+    private static class AvDurationMismatchException extends IOException {
 
-        for (int i = 0; i < segmentCount; i++) {
-            if (i == segmentCount - 1) {
-                // Son segment
-                double usedDuration = i * 4.0;
-                double remainingDuration = videoDuration - usedDuration;
-                durations[i] = Math.max(0.033333, Math.min(4.0, remainingDuration));
-            } else {
-                durations[i] = 4.0;
-            }
+        AvDurationMismatchException(String message) {
+            super(message);
         }
-
-        return durations;
     }
 
+    // Parçaların küçük resim karelerini, kaynak zamanlarıyla birlikte döner
+    private List<ThumbnailSprites.Frame> generateChunkedCMAF(String inputPath, String outputDir, MediaInfo source,
+                                                             EncodingPlan plan, double videoDuration,
+                                                             ProcessingProgress progress)
+            throws IOException, InterruptedException {
+        List<Rendition> renditions = plan.renditions();
+        Path workDir = Paths.get(outputDir, "_chunks");
+        Files.createDirectories(workDir);
+        try {
+            List<Chunk> chunks = splitAtKeyframes(inputPath, workDir, videoDuration);
+            logger.info("Encoding {} chunks of {} in parallel (parallelism {})",
+                    chunks.size(), inputPath, chunkParallelism);
+
+            List<Future<Void>> encodes = new ArrayList<>();
+            // Ses parçalanmaz: her AAC kodlaması kendi priming örneklerini ekler ve parçalar
+            // video keyframe'lerinde değil paket sınırlarında kesilir - her birleşimde kayma olurdu.
+            // Ses tüm kaynaktan tek seferde, video parçalarıyla aynı anda kodlanır
+            if (source.hasAudio()) {
+                List<String> audioCommand = buildAudioCommand(inputPath, outputDir, source);
+                encodes.add(chunkEncoders.submit(() -> {
+                    ffmpegExecutor.execute(audioCommand.toArray(new String[0]));
+                    return null;
+                }));
+            }
 
+            // Her parça aynı basamak komutuyla (yalnızca video) kendi dizinine kodlanır
+            for (int i = 0; i < chunks.size(); i++) {
+                Path chunk = chunks.get(i).file();
+                String chunkOutputDir = workDir.resolve(String.format("out_%03d", i)).toString();
+                List<String> command = buildLadderCommand(chunk.toString(), chunkOutputDir, source, plan, false);
+                // Parçaların çıktı süreleri toplanarak tüm videonun ilerlemesi bulunur
+                Consumer<FFmpegExecutor.Progress> chunkProgress = progress.encode(i);
+                encodes.add(chunkEncoders.submit(() -> {
+                    ffmpegExecutor.execute(command.toArray(new String[0]), null, chunkProgress);
+                    return null;
+                }));
+            }
+            for (Future<Void> encode : encodes) {
+                try {
+                    encode.get();
+                } catch (ExecutionException e) {
+                    encodes.forEach(pending -> pending.cancel(true));
+                    throw new RuntimeException("Chunk encode failed", e.getCause());
+                }
+            }
 
-    private void generateDASHManifest(String outputDir, double videoDuration) throws IOException {
-        // FFmpeg playlist'inden gerçek sürelerini oku (eğer varsa)
-        double[] segmentDurations;
-        try {
-            segmentDurations = parseFFmpegPlaylist(outputDir);
-            if (segmentDurations.length == 0) {
-                segmentDurations = getCalculatedSegmentDurations(outputDir, videoDuration);
+            for (Rendition rendition : renditions) {
+                stitchChunks(workDir, chunks.size(), rendition.getName(), Paths.get(outputDir, rendition.getName()));
+            }
+            logger.info("Stitched {} chunks into one CMAF timeline", chunks.size());
+            if (source.hasAudio()) {
+                checkAvDurations(Paths.get(outputDir, renditions.get(0).getName()),
+                        Paths.get(outputDir, AUDIO_RENDITION));
             }
-        } catch (Exception e) {
-            logger.warn("Could not parse segment durations, using calculated values");
-            segmentDurations = getCalculatedSegmentDurations(outputDir, videoDuration);
-        }
 
-        // Video süresini ISO 8601 formatına çevir
-        String isoDuration = formatDurationToISO(videoDuration);
-
-        // DASH manifest - SegmentTimeline ile gerçek süreler
-        StringBuilder manifest = new StringBuilder();
-        manifest.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        manifest.append("<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" ");
-        manifest.append("type=\"static\" ");
-        manifest.append("mediaPresentationDuration=\"").append(isoDuration).append("\" ");
-        manifest.append("profiles=\"urn:mpeg:dash:profile:isoff-main:2011\">\n");
-        manifest.append("  <Period>\n");
-
-        manifest.append("    <AdaptationSet mimeType=\"video/mp4\" ");
-        manifest.append("codecs=\"avc1.4d401f,mp4a.40.2\" ");
-        manifest.append("width=\"720\" height=\"1280\" ");
-        manifest.append("frameRate=\"25\" ");
-        manifest.append("segmentAlignment=\"true\" ");
-        manifest.append("startWithSAP=\"1\">\n");
-
-        manifest.append("      <Representation id=\"muxed\" ");
-        manifest.append("bandwidth=\"1833000\" ");
-        manifest.append("width=\"720\" height=\"1280\">\n");
-
-        // SegmentTimeline ile her segmentin gerçek süresi
-        manifest.append("        <SegmentTemplate ");
-        manifest.append("timescale=\"1000\" ");
-        manifest.append("initialization=\"init.mp4\" ");
-        manifest.append("media=\"segment_$Number%03d$.m4s\" ");
-        manifest.append("startNumber=\"0\">\n");
-
-        manifest.append("          <SegmentTimeline>\n");
-
-        long currentTime = 0;
-        for (int i = 0; i < segmentDurations.length; i++) {
-            long durationMs = Math.round(segmentDurations[i] * 1000);
-            manifest.append("            <S t=\"").append(currentTime).append("\" d=\"").append(durationMs).append("\"/>\n");
-            currentTime += durationMs;
+            // Kareler çalışma dizini silinmeden çıktı dizinine taşınır
+            List<ThumbnailSprites.Frame> frames = new ArrayList<>();
+            if (thumbnailsEnabled) {
+                Path framesDir = Paths.get(outputDir, ThumbnailSprites.FRAMES_DIR);
+                for (int i = 0; i < chunks.size(); i++) {
+                    Path chunkFrames = workDir.resolve(String.format("out_%03d", i)).resolve(ThumbnailSprites.FRAMES_DIR);
+                    if (!Files.isDirectory(chunkFrames)) {
+                        continue;
+                    }
+                    Path target = framesDir.resolve(String.format("%03d", i));
+                    Files.createDirectories(framesDir);
+                    Files.move(chunkFrames, target);
+                    frames.addAll(ThumbnailSprites.listFrames(target, chunks.get(i).startSeconds(), thumbnailInterval));
+                }
+            }
+            return frames;
+        } finally {
+            deleteRecursively(workDir);
         }
+    }
 
-        manifest.append("          </SegmentTimeline>\n");
-        manifest.append("        </SegmentTemplate>\n");
-
-        manifest.append("      </Representation>\n");
-        manifest.append("    </AdaptationSet>\n");
+    private List<Chunk> splitAtKeyframes(String inputPath, Path workDir, double videoDuration)
+            throws IOException, InterruptedException {
+        // Parça uzunluğu segment süresinin katı; -c copy yalnızca keyframe'lerde keser
+        int chunkCount = Math.max(1, Math.min(chunkParallelism * 2, (int) (videoDuration / minChunkSeconds)));
+        int chunkSeconds = (int) Math.ceil(videoDuration / chunkCount / SEGMENT_SECONDS) * SEGMENT_SECONDS;
 
-        manifest.append("  </Period>\n");
-        manifest.append("</MPD>\n");
+        Path chunkList = workDir.resolve("chunks.csv");
+        String[] splitCommand = {
+                ffmpegPath,
+                "-i", inputPath,
+                // Yalnızca video: ses parçalanmadan ayrıca kodlanır
+                "-map", "0:v:0",
+                "-an",
+                "-c", "copy",
+                "-f", "segment",
+                "-segment_time", String.valueOf(chunkSeconds),
+                "-reset_timestamps", "1",
+                "-segment_list", chunkList.toString(),
+                "-segment_list_type", "csv",
+                workDir + "/chunk_%03d.mkv"
+        };
 
-        // DASH manifest dosyasını yaz
-        Path manifestPath = Paths.get(outputDir, "manifest.mpd");
-        Files.writeString(manifestPath, manifest.toString());
+        logger.info("Splitting source into ~{}s chunks at keyframes", chunkSeconds);
+        ffmpegExecutor.execute(splitCommand);
 
-        double totalDuration = Arrays.stream(segmentDurations).sum();
-        logger.info("Created DASH manifest with {} segments, total duration: {:.3f}s",
-                segmentDurations.length, totalDuration);
+        // CSV satırı: chunk_000.mkv,0.000000,61.040000
+        List<Chunk> chunks = new ArrayList<>();
+        for (String line : Files.readAllLines(chunkList)) {
+            if (!line.isBlank()) {
+                String[] fields = line.split(",");
+                chunks.add(new Chunk(workDir.resolve(fields[0].trim()), Double.parseDouble(fields[1].trim())));
+            }
+        }
+        return chunks;
     }
 
-    private String formatDurationToISO(double seconds) {
-        int hours = (int) (seconds / 3600);
-        int minutes = (int) ((seconds % 3600) / 60);
-        double remainingSeconds = seconds % 60;
+    private void stitchChunks(Path workDir, int chunkCount, String name, Path targetDir) throws IOException {
+        Files.createDirectories(targetDir);
 
-        StringBuilder iso = new StringBuilder("PT");
-        if (hours > 0) {
-            iso.append(hours).append("H");
-        }
-        if (minutes > 0) {
-            iso.append(minutes).append("M");
-        }
-        if (remainingSeconds > 0) {
-            iso.append(String.format("%.2f", remainingSeconds)).append("S");
-        }
+        int segmentNumber = 0;
+        long nextDecodeTime = 0;
 
-        return iso.toString();
-    }
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            Path chunkDir = workDir.resolve(String.format("out_%03d", chunk)).resolve(name);
+            byte[] init = Files.readAllBytes(chunkDir.resolve("init.mp4"));
+            long defaultSampleDuration = Fmp4Boxes.readDefaultSampleDuration(init);
+            if (chunk == 0) {
+                // Ayarlar aynı olduğu için tüm parçaların init'i eşdeğer - ilkini paylaşılan init yap
+                Files.write(targetDir.resolve("init.mp4"), init);
+            }
 
-    private void executeFFmpegCommand(String[] command) throws IOException, InterruptedException {
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.redirectErrorStream(true);
+            long delta = 0;
+            for (int i = 0; Files.exists(chunkDir.resolve(String.format("segment_%03d.m4s", i))); i++) {
+                byte[] segment = Files.readAllBytes(chunkDir.resolve(String.format("segment_%03d.m4s", i)));
 
-        Process process = processBuilder.start();
+                // Her parça kendi zamanını 0'dan başlatır - tfdt'leri önceki parçanın bitişine kaydır
+                if (i == 0 && chunk > 0) {
+                    delta = nextDecodeTime - Fmp4Boxes.firstDecodeTime(segment);
+                }
+                if (delta != 0) {
+                    Fmp4Boxes.shiftDecodeTimes(segment, delta);
+                }
+                nextDecodeTime = Fmp4Boxes.endDecodeTime(segment, defaultSampleDuration);
 
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                logger.debug("FFmpeg: {}", line);
-                output.append(line).append("\n");
+                // Süreler index oluşturulurken tfdt'lerden okunur
+                Files.write(targetDir.resolve(String.format("segment_%03d.m4s", segmentNumber++)), segment);
             }
         }
+    }
+
+    // Birleştirme hatası (eksik/üst üste binen parça) video süresini sesten ayırır
+    private void checkAvDurations(Path videoDir, Path audioDir) throws IOException {
+        double videoSeconds = trackDurationSeconds(videoDir);
+        double audioSeconds = trackDurationSeconds(audioDir);
+        double driftMs = Math.abs(videoSeconds - audioSeconds) * 1000;
+        if (driftMs > maxAvDriftMs) {
+            throw new AvDurationMismatchException(String.format(Locale.ROOT,
+                    "video %.3fs, audio %.3fs", videoSeconds, audioSeconds));
+        }
+        logger.info("Stitched video {}s, audio {}s", String.format(Locale.ROOT, "%.3f", videoSeconds),
+                String.format(Locale.ROOT, "%.3f", audioSeconds));
+    }
 
-        boolean finished = process.waitFor(30, TimeUnit.MINUTES);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new RuntimeException("FFmpeg process timed out");
+    // İlk segmentin tfdt'sinden son segmentin son örneğine, track'in timescale'inde
+    static double trackDurationSeconds(Path trackDir) throws IOException {
+        byte[] init = Files.readAllBytes(trackDir.resolve("init.mp4"));
+        long timescale = Fmp4Boxes.readTimescale(init);
+        long defaultSampleDuration = Fmp4Boxes.readDefaultSampleDuration(init);
+        int last = 0;
+        while (Files.exists(trackDir.resolve(String.format("segment_%03d.m4s", last + 1)))) {
+            last++;
         }
+        long start = Fmp4Boxes.firstDecodeTime(Files.readAllBytes(trackDir.resolve("segment_000.m4s")));
+        long end = Fmp4Boxes.endDecodeTime(Files.readAllBytes(
+                trackDir.resolve(String.format("segment_%03d.m4s", last))), defaultSampleDuration);
+        return (end - start) / (double) timescale;
+    }
 
-        if (process.exitValue() != 0) {
-            logger.error("FFmpeg output: {}", output.toString());
-            throw new RuntimeException("FFmpeg process failed with exit code: " + process.exitValue());
+    private void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Could not delete {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not clean up {}: {}", dir, e.getMessage());
         }
+    }
 
-        logger.info("FFmpeg completed successfully");
+    private List<String> hlsOutputArgs(Path renditionDir) throws IOException {
+        Files.createDirectories(renditionDir);
+        return List.of(
+                "-f", "hls",
+                "-hls_time", String.valueOf(SEGMENT_SECONDS),
+                "-hls_playlist_type", "vod",
+                "-hls_segment_type", "fmp4",
+                "-hls_fmp4_init_filename", "init.mp4",
+                "-hls_segment_filename", renditionDir + "/segment_%03d.m4s",
+                "-movflags", "+frag_keyframe+empty_moov+default_base_moof",
+                renditionDir + "/ffmpeg_playlist.m3u8" // FFmpeg'in orijinal playlist'i
+        );
     }
-}
\ No newline at end of file
+}
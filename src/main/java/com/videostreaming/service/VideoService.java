@@ -1,42 +1,101 @@
 package com.videostreaming.service;
 
 
+import com.videostreaming.model.UploadSession;
 import com.videostreaming.model.Video;
+import com.videostreaming.model.VideoPage;
+import com.videostreaming.repository.UploadSessionRepository;
 import com.videostreaming.repository.VideoRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class VideoService {
 
     private static final Logger logger = LoggerFactory.getLogger(VideoService.class);
 
+    // Yükleme sürerken kodlanmaya aday formatlar (MP4/MOV yalnızca fragmented ise, işlemede kontrol edilir)
+    private static final Set<String> PIPELINE_CANDIDATES =
+            Set.of(".mkv", ".webm", ".ts", ".m2ts", ".mts", ".mp4", ".m4v", ".mov");
+
     @Value("${video.storage.path}")
     private String videoStoragePath;
 
+    @Value("${video.processing.pipelined-ingest.enabled:true}")
+    private boolean pipelinedIngestEnabled;
+
+    @Value("${video.processing.pipelined-ingest.idle-timeout:60s}")
+    private Duration pipelinedIngestIdleTimeout;
+
+    @Value("${video.upload.chunk-size:8MB}")
+    private DataSize uploadChunkSize;
+
+    @Value("${video.upload.resumable-max-size:50GB}")
+    private DataSize resumableMaxSize;
+
     private final VideoRepository videoRepository;
-    private final VideoProcessingService videoProcessingService;
+    private final ProcessingJobService processingJobService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final SegmentFileCache segmentFileCache;
+    private final HotSegmentCache hotSegmentCache;
+    private final VideoLocationCache videoLocationCache;
+    private final ManifestRenderer manifestRenderer;
+    private final SegmentStore segmentStore;
+    private final VideoCatalog videoCatalog;
+    private final ProcessingEventHub eventHub;
+    private final ProcessedOutputIndex processedOutputIndex;
 
-    public VideoService(VideoRepository videoRepository, VideoProcessingService videoProcessingService) {
+    public VideoService(VideoRepository videoRepository, ProcessingJobService processingJobService,
+                        UploadSessionRepository uploadSessionRepository,
+                        SegmentFileCache segmentFileCache, HotSegmentCache hotSegmentCache,
+                        VideoLocationCache videoLocationCache, ManifestRenderer manifestRenderer,
+                        SegmentStore segmentStore, VideoCatalog videoCatalog,
+                        ProcessingEventHub eventHub, ProcessedOutputIndex processedOutputIndex) {
         this.videoRepository = videoRepository;
-        this.videoProcessingService = videoProcessingService;
+        this.processingJobService = processingJobService;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.segmentFileCache = segmentFileCache;
+        this.hotSegmentCache = hotSegmentCache;
+        this.videoLocationCache = videoLocationCache;
+        this.manifestRenderer = manifestRenderer;
+        this.segmentStore = segmentStore;
+        this.videoCatalog = videoCatalog;
+        this.eventHub = eventHub;
+        this.processedOutputIndex = processedOutputIndex;
     }
 
     public Mono<Video> uploadVideo(String title, Mono<FilePart> filePartMono) {
-        return filePartMono.flatMap(filePart -> {
+        // Kuyruk doluysa dosyayı hiç kaydetmeden reddet
+        return processingJobService.checkBacklog().then(filePartMono).flatMap(filePart -> {
 
             // Generate unique filename
             String originalFilename = filePart.filename();
@@ -52,59 +111,295 @@ public class VideoService {
 
             // Save to database first
             return videoRepository.save(video)
+                    .doOnNext(savedVideo -> videoCatalog.invalidate())
                     .flatMap(savedVideo -> {
+                        // Sırayla okunabilen formatlarda boşta worker varsa kodlama yükleme ile birlikte başlar
+                        GrowingFile upload = pipelinedIngestEnabled && PIPELINE_CANDIDATES.contains(extension.toLowerCase())
+                                ? new GrowingFile(Paths.get(videoStoragePath, filename), pipelinedIngestIdleTimeout)
+                                : null;
+                        Mono<Boolean> pipelined = upload != null
+                                ? processingJobService.startWhileUploading(savedVideo, upload)
+                                : Mono.just(false);
+
                         // Then save file
-                        return saveFile(filePart, filename)
-                                .flatMap(savedFile -> {
-                                    // Update file size
-                                    savedVideo.setFileSize(savedFile.length());
-                                    return videoRepository.save(savedVideo);
+                        // İstemci bağlantıyı koparırsa yazma hata vermeden iptal edilir: o da başarısızlık
+                        return pipelined.flatMap(started -> saveFile(filePart, filename, started ? upload : null)
+                                .doOnError(e -> {
+                                    if (started) {
+                                        upload.fail(e);
+                                    }
+                                })
+                                .doOnCancel(() -> {
+                                    if (started) {
+                                        upload.fail(new IOException("Upload cancelled by the client"));
+                                    }
                                 })
-                                .flatMap(updatedVideo -> {
-                                    // Start processing asynchronously
-                                    videoProcessingService.processVideo(updatedVideo).subscribe();
-                                    return Mono.just(updatedVideo);
-                                });
+                                .flatMap(storedFile -> {
+                                    // Update file size and content hash
+                                    savedVideo.setFileSize(storedFile.size());
+                                    savedVideo.setContentSha256(storedFile.sha256());
+                                    if (started) {
+                                        // İşleme zaten sürüyor ve video satırını kendisi kaydediyor
+                                        upload.complete();
+                                        return videoRepository.updateUploadResult(savedVideo.getId(),
+                                                        storedFile.size(), storedFile.sha256())
+                                                .thenReturn(savedVideo);
+                                    }
+                                    return videoRepository.save(savedVideo).flatMap(this::linkOrQueue);
+                                }));
                     });
         });
     }
 
-    private Mono<File> saveFile(FilePart filePart, String filename) {
+    /**
+     * Points the video at the processed output of an earlier upload with the
+     * same content hash, or queues it for processing if there is none.
+     */
+    private Mono<Video> linkOrQueue(Video video) {
+        return processedOutputIndex.link(video)
+                .flatMap(linked -> videoRepository.save(linked)
+                        // Kaynak dosya bir daha kodlanmayacak; aynısı zaten işlendi
+                        .flatMap(readyVideo -> deleteOriginal(readyVideo).thenReturn(readyVideo))
+                        .doOnNext(readyVideo -> {
+                            videoLocationCache.invalidate(readyVideo.getId());
+                            eventHub.publish(ProcessingEventHub.Event.ofStatus(readyVideo.getId(), "READY"));
+                        }))
+                .switchIfEmpty(Mono.defer(() -> {
+                    // Queue for processing; any node with an idle worker picks it up
+                    video.setStatus("QUEUED");
+                    // Olay kuyruğa eklemeden önce: worker PROCESSING'i hemen yayınlayabilir
+                    return videoRepository.save(video)
+                            .doOnNext(queuedVideo -> eventHub.publish(ProcessingEventHub.Event
+                                    .ofStatus(queuedVideo.getId(), "QUEUED")))
+                            .flatMap(queuedVideo -> processingJobService.enqueue(queuedVideo)
+                                    .thenReturn(queuedVideo));
+                }));
+    }
+
+    private Mono<Void> deleteOriginal(Video video) {
+        return Mono.fromCallable(() -> Files.deleteIfExists(Paths.get(videoStoragePath, video.getFilename())))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.warn("Could not delete original of video {}: {}", video.getId(), e.getMessage());
+                    return Mono.just(false);
+                })
+                .then();
+    }
+
+    // Yüklenen dosyanın boyutu ve SHA-256 özeti yazma sırasında hesaplanır
+    record StoredFile(Path path, long size, String sha256) {
+    }
+
+    // upload != null: yazılan byte'lar, dosyayı okuyan ffmpeg beslemesine bildirilir
+    private Mono<StoredFile> saveFile(FilePart filePart, String filename, GrowingFile upload) {
         return Mono.fromCallable(() -> {
-            try {
-                // Create storage directory if it doesn't exist
-                Path storagePath = Paths.get(videoStoragePath);
-                Files.createDirectories(storagePath);
+            // Create storage directory if it doesn't exist
+            Path storagePath = Paths.get(videoStoragePath);
+            Files.createDirectories(storagePath);
+            return storagePath.resolve(filename);
+        }).subscribeOn(Schedulers.boundedElastic()).flatMap(filePath -> writeFile(filePart.content(), filePath, upload));
+    }
 
-                Path filePath = storagePath.resolve(filename);
-                File file = filePath.toFile();
+    /**
+     * Writes {@code content} to a new file at {@code filePath}, hashing it on
+     * the way; the file is deleted if writing fails or is cancelled.
+     * Package-private for the upload write benchmark.
+     */
+    static Mono<StoredFile> writeFile(Flux<DataBuffer> source, Path filePath, GrowingFile upload) {
+        return Mono.defer(() -> {
+            MessageDigest digest = newSha256();
+            AtomicLong size = new AtomicLong();
+            Queue<Integer> pendingWrites = new ConcurrentLinkedQueue<>();
 
-                return file;
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to create file", e);
-            }
-        }).flatMap(file -> {
-            // Write file content
-            return filePart.content()
-                    .reduce(file, (f, dataBuffer) -> {
-                        try {
-                            byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                            dataBuffer.read(bytes);
-                            Files.write(f.toPath(), bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-                            return f;
-                        } catch (IOException e) {
-                            throw new RuntimeException("Failed to write file", e);
+            // Buffer'lar kopyalanmadan özetlenir ve yazıldıktan sonra release edilir
+            Flux<DataBuffer> content = source.doOnNext(dataBuffer -> {
+                int length = dataBuffer.readableByteCount();
+                size.addAndGet(length);
+                pendingWrites.add(length);
+                try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+                    while (iterator.hasNext()) {
+                        digest.update(iterator.next());
+                    }
+                }
+            });
+
+            return Mono.using(
+                            () -> AsynchronousFileChannel.open(filePath,
+                                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                            channel -> DataBufferUtils.write(content, channel)
+                                    .doOnNext(written -> {
+                                        DataBufferUtils.release(written);
+                                        Integer length = pendingWrites.poll();
+                                        if (upload != null && length != null) {
+                                            upload.advance(length);
+                                        }
+                                    })
+                                    .then(),
+                            channel -> closeQuietly(channel, filePath))
+                    .then(Mono.fromSupplier(() ->
+                            new StoredFile(filePath, size.get(), HexFormat.of().formatHex(digest.digest()))))
+                    // Hata ya da istemci iptali: yarım dosya diskte kalmasın (kanal bu noktada kapalı)
+                    .doFinally(signal -> {
+                        if (signal != SignalType.ON_COMPLETE) {
+                            Schedulers.boundedElastic().schedule(() -> deletePartial(filePath));
                         }
                     });
         });
     }
 
+    private static void deletePartial(Path filePath) {
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            logger.warn("Could not delete partial upload {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(AsynchronousFileChannel channel, Path filePath) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Could not close {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Resumable upload: oturum aç, parçaları PATCH ile (paralel, sırasız) yaz,
+    // dosya tamamlanınca işleme kuyruğuna al
+    public Mono<UploadSession> createUploadSession(String title, String originalFilename, long totalSize) {
+        if (totalSize <= 0 || totalSize > resumableMaxSize.toBytes()) {
+            return Mono.error(new IllegalArgumentException(
+                    "Upload size must be between 1 and " + resumableMaxSize.toBytes() + " bytes"));
+        }
+
+        return processingJobService.checkBacklog().then(Mono.defer(() -> {
+            String extension = getFileExtension(originalFilename);
+            String filename = UUID.randomUUID().toString() + extension;
+
+            Video video = new Video();
+            video.setTitle(title);
+            video.setFilename(filename);
+            video.setOriginalFilename(originalFilename);
+            video.setMimeType(getContentType(extension));
+            video.setFileSize(totalSize);
+
+            return videoRepository.save(video)
+                    .doOnNext(savedVideo -> videoCatalog.invalidate())
+                    .flatMap(savedVideo -> preallocateFile(filename, totalSize)
+                            .then(uploadSessionRepository.save(new UploadSession(
+                                    savedVideo.getId(), totalSize, (int) uploadChunkSize.toBytes()))))
+                    .doOnNext(session -> logger.info("Opened upload session {} for video {} ({} chunks)",
+                            session.getId(), session.getVideoId(), session.getChunkCount()));
+        }));
+    }
+
+    public Mono<UploadSession> getUploadSession(Long sessionId) {
+        return uploadSessionRepository.findById(sessionId);
+    }
+
+    /**
+     * Writes one chunk at its offset in the preallocated file. The offset must be
+     * a chunk boundary and the body exactly one chunk long; chunks may be sent
+     * in any order and in parallel, and re-sending a chunk is harmless.
+     */
+    public Mono<UploadSession> writeUploadChunk(Long sessionId, long offset, Flux<DataBuffer> content) {
+        return uploadSessionRepository.findById(sessionId).flatMap(session -> {
+            if (!"OPEN".equals(session.getStatus())) {
+                return Mono.error(new IllegalStateException("Upload session " + sessionId + " is already complete"));
+            }
+            if (offset < 0 || offset >= session.getTotalSize() || offset % session.getChunkSize() != 0) {
+                return Mono.error(new IllegalArgumentException(
+                        "Upload-Offset must be a multiple of " + session.getChunkSize() + " below the file size"));
+            }
+            int chunk = (int) (offset / session.getChunkSize());
+
+            return videoRepository.findById(session.getVideoId())
+                    .flatMap(video -> writeChunk(Paths.get(videoStoragePath, video.getFilename()),
+                            offset, session.chunkLength(chunk), content)
+                            .then(uploadSessionRepository.markChunkReceived(sessionId, chunk))
+                            .flatMap(updated -> updated.getReceivedCount() == updated.getChunkCount()
+                                    ? completeUpload(updated, video)
+                                    : Mono.just(updated)));
+        });
+    }
+
+    private Mono<UploadSession> completeUpload(UploadSession session, Video video) {
+        // Son iki parça aynı anda gelirse yalnızca biri oturumu kapatır
+        return uploadSessionRepository.complete(session.getId())
+                .flatMap(completed -> hashFile(Paths.get(videoStoragePath, video.getFilename()))
+                        .flatMap(sha256 -> {
+                            video.setContentSha256(sha256);
+                            return linkOrQueue(video);
+                        })
+                        .doOnNext(updated -> logger.info("Upload session {} complete, video {} {}",
+                                completed.getId(), video.getId(), updated.getStatus()))
+                        .thenReturn(completed))
+                .switchIfEmpty(uploadSessionRepository.findById(session.getId()));
+    }
+
+    private Mono<Void> preallocateFile(String filename, long size) {
+        return Mono.fromCallable(() -> {
+            Path storagePath = Paths.get(videoStoragePath);
+            Files.createDirectories(storagePath);
+            try (RandomAccessFile file = new RandomAccessFile(storagePath.resolve(filename).toFile(), "rw")) {
+                file.setLength(size);
+            }
+            return size;
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private Mono<Void> writeChunk(Path filePath, long position, long length, Flux<DataBuffer> content) {
+        AtomicLong received = new AtomicLong();
+        // Fazla veri bir sonraki parçanın üzerine yazılmadan reddedilir
+        Flux<DataBuffer> bounded = content.handle((dataBuffer, sink) -> {
+            if (received.addAndGet(dataBuffer.readableByteCount()) > length) {
+                DataBufferUtils.release(dataBuffer);
+                sink.error(new IllegalArgumentException("Chunk is larger than " + length + " bytes"));
+            } else {
+                sink.next(dataBuffer);
+            }
+        });
+
+        return Mono.using(
+                        () -> AsynchronousFileChannel.open(filePath, StandardOpenOption.WRITE),
+                        channel -> DataBufferUtils.write(bounded, channel, position)
+                                .map(DataBufferUtils::release)
+                                .then(),
+                        channel -> closeQuietly(channel, filePath))
+                .then(Mono.defer(() -> received.get() == length
+                        ? Mono.<Void>empty()
+                        : Mono.error(new IllegalArgumentException(
+                        "Chunk must be " + length + " bytes, got " + received.get()))));
+    }
+
+    private Mono<String> hashFile(Path filePath) {
+        return Mono.fromCallable(() -> {
+            MessageDigest digest = newSha256();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
     public Mono<Video> getVideoById(Long id) {
         return videoRepository.findById(id);
     }
 
-    public Flux<Video> getAllVideos() {
-        return videoRepository.findAllByOrderByCreatedAtDesc();
+    public Mono<VideoPage> listVideos(String status, String cursor, Integer limit) {
+        return videoCatalog.list(status, cursor, limit);
     }
 
     public Mono<Video> getVideoByFilename(String filename) {
@@ -113,32 +408,41 @@ public class VideoService {
 
     public Mono<Void> deleteVideo(Long id) {
         return videoRepository.findById(id)
-                .flatMap(video -> {
-                    // Delete files
-                    deleteVideoFiles(video);
-                    // Delete from database
-                    return videoRepository.delete(video);
-                });
+                // Delete files; işlenmiş çıktı başka bir videoyla paylaşılıyorsa kalır
+                .flatMap(video -> processedOutputIndex.release(video)
+                        .flatMap(outputUnused -> deleteVideoFiles(video, outputUnused))
+                        .then(Mono.defer(() -> {
+                            segmentFileCache.invalidate(video.getId());
+                            hotSegmentCache.invalidate(video.getId());
+                            manifestRenderer.invalidate(video.getId());
+                            // Delete from database
+                            return videoRepository.delete(video)
+                                    .doOnSuccess(ignored -> {
+                                        videoLocationCache.invalidate(video.getId());
+                                        videoCatalog.invalidate();
+                                    });
+                        })));
     }
 
-    private void deleteVideoFiles(Video video) {
-        try {
-            // Delete original file
-            Path originalFile = Paths.get(videoStoragePath, video.getFilename());
-            Files.deleteIfExists(originalFile);
-
-            // Delete processed files
-            if (video.getCmafPath() != null) {
-                Path processedDir = Paths.get(video.getCmafPath());
-                if (Files.exists(processedDir)) {
-                    Files.walk(processedDir)
-                            .map(Path::toFile)
-                            .forEach(File::delete);
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Error deleting video files for: {}", video.getFilename(), e);
-        }
+    // Bu metot R2DBC thread'inde çağrılır: dosya silme bloklayıcı, boundedElastic üzerinde
+    private Mono<Void> deleteVideoFiles(Video video, boolean deleteProcessed) {
+        Mono<Void> original = Mono.<Void>fromCallable(() -> {
+                    Files.deleteIfExists(Paths.get(videoStoragePath, video.getFilename()));
+                    return null;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+        Mono<Void> processed = deleteProcessed && video.getCmafPath() != null
+                ? segmentStore.delete(video.getCmafPath())
+                : Mono.empty();
+        // Biri başarısız olsa da diğeri denenir
+        return original.onErrorResume(e -> {
+                    logger.error("Error deleting original file of video {}: {}", video.getId(), video.getFilename(), e);
+                    return Mono.empty();
+                })
+                .then(processed.onErrorResume(e -> {
+                    logger.error("Error deleting processed files of video {}: {}", video.getId(), video.getCmafPath(), e);
+                    return Mono.empty();
+                }));
     }
 
     private String getFileExtension(String filename) {
@@ -0,0 +1,106 @@
+package com.videostreaming.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpConditionsTest {
+
+    private static final long PROCESSED_AT = 1_700_000_000_000L;
+    private static final String ETAG = HttpConditions.etag("/videos/processed/a", "720p/segment_000.m4s",
+            1000, PROCESSED_AT);
+
+    @Test
+    void etagDependsOnlyOnStableData() {
+        assertThat(HttpConditions.etag("/videos/processed/a", "720p/segment_000.m4s", 1000, PROCESSED_AT))
+                .isEqualTo(ETAG)
+                .startsWith("\"")
+                .endsWith("\"");
+        assertThat(HttpConditions.etag("/videos/processed/a", "720p/segment_001.m4s", 1000, PROCESSED_AT))
+                .isNotEqualTo(ETAG);
+        assertThat(HttpConditions.etag("/videos/processed/a", "720p/segment_000.m4s", 1001, PROCESSED_AT))
+                .isNotEqualTo(ETAG);
+        assertThat(HttpConditions.etag("/videos/processed/a", "720p/segment_000.m4s", 1000, PROCESSED_AT + 5000))
+                .isNotEqualTo(ETAG);
+    }
+
+    @Test
+    void ifNoneMatchComparesWeakly() {
+        assertThat(HttpConditions.isNotModified(headers(HttpHeaders.IF_NONE_MATCH, ETAG), ETAG, PROCESSED_AT))
+                .isTrue();
+        assertThat(HttpConditions.isNotModified(headers(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG), ETAG, PROCESSED_AT))
+                .isTrue();
+        assertThat(HttpConditions.isNotModified(headers(HttpHeaders.IF_NONE_MATCH, "*"), ETAG, PROCESSED_AT))
+                .isTrue();
+        assertThat(HttpConditions.isNotModified(headers(HttpHeaders.IF_NONE_MATCH, "\"other\""), ETAG, PROCESSED_AT))
+                .isFalse();
+    }
+
+    @Test
+    void ifNoneMatchTakesPrecedenceOverIfModifiedSince() {
+        HttpHeaders headers = headers(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        headers.set(HttpHeaders.IF_MODIFIED_SINCE, httpDate(PROCESSED_AT));
+
+        assertThat(HttpConditions.isNotModified(headers, ETAG, PROCESSED_AT)).isFalse();
+    }
+
+    @Test
+    void ifModifiedSinceComparesWholeSeconds() {
+        assertThat(HttpConditions.isNotModified(headers(HttpHeaders.IF_MODIFIED_SINCE, httpDate(PROCESSED_AT)),
+                ETAG, PROCESSED_AT + 999)).isTrue();
+        assertThat(HttpConditions.isNotModified(headers(HttpHeaders.IF_MODIFIED_SINCE, httpDate(PROCESSED_AT)),
+                ETAG, PROCESSED_AT + 1000)).isFalse();
+        assertThat(HttpConditions.isNotModified(new HttpHeaders(), ETAG, PROCESSED_AT)).isFalse();
+    }
+
+    @Test
+    void ifRangeNeedsAStrongMatch() {
+        assertThat(HttpConditions.ifRangeMatches(new HttpHeaders(), ETAG, PROCESSED_AT)).isTrue();
+        assertThat(HttpConditions.ifRangeMatches(headers(HttpHeaders.IF_RANGE, ETAG), ETAG, PROCESSED_AT)).isTrue();
+        assertThat(HttpConditions.ifRangeMatches(headers(HttpHeaders.IF_RANGE, "W/" + ETAG), ETAG, PROCESSED_AT))
+                .isFalse();
+        assertThat(HttpConditions.ifRangeMatches(headers(HttpHeaders.IF_RANGE, httpDate(PROCESSED_AT)),
+                ETAG, PROCESSED_AT)).isTrue();
+        assertThat(HttpConditions.ifRangeMatches(headers(HttpHeaders.IF_RANGE, httpDate(PROCESSED_AT - 1000)),
+                ETAG, PROCESSED_AT)).isFalse();
+        assertThat(HttpConditions.ifRangeMatches(headers(HttpHeaders.IF_RANGE, "not a date"), ETAG, PROCESSED_AT))
+                .isFalse();
+    }
+
+    @Test
+    void singleRangesAreParsed() {
+        HttpRange range = HttpConditions.singleRange(headers(HttpHeaders.RANGE, "bytes=100-199"));
+        assertThat(range.getRangeStart(1000)).isEqualTo(100);
+        assertThat(range.getRangeEnd(1000)).isEqualTo(199);
+
+        HttpRange suffix = HttpConditions.singleRange(headers(HttpHeaders.RANGE, "bytes=-100"));
+        assertThat(suffix.getRangeStart(1000)).isEqualTo(900);
+        assertThat(suffix.getRangeEnd(1000)).isEqualTo(999);
+
+        HttpRange open = HttpConditions.singleRange(headers(HttpHeaders.RANGE, "bytes=500-"));
+        assertThat(open.getRangeEnd(1000)).isEqualTo(999);
+    }
+
+    @Test
+    void multipleOrMalformedRangesAreIgnored() {
+        assertThat(HttpConditions.singleRange(headers(HttpHeaders.RANGE, "bytes=0-1,5-6"))).isNull();
+        assertThat(HttpConditions.singleRange(headers(HttpHeaders.RANGE, "items=0-1"))).isNull();
+        assertThat(HttpConditions.singleRange(new HttpHeaders())).isNull();
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(name, value);
+        return headers;
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,73 @@
+package com.videostreaming.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HlsPlaylistTest {
+
+    private static final URI BASE = URI.create("http://localhost:8080/api/videos/1/hls/playlist.m3u8");
+
+    @Test
+    void masterListsVariantsAndTheAudioRendition() {
+        HlsPlaylist.Master master = HlsPlaylist.parseMaster(BASE, """
+                #EXTM3U
+                #EXT-X-VERSION:7
+                #EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID="audio",NAME="Default",DEFAULT=YES,AUTOSELECT=YES,URI="audio/playlist.m3u8"
+                #EXT-X-STREAM-INF:BANDWIDTH=2630000,AVERAGE-BANDWIDTH=2128000,CODECS="avc1.64001f,mp4a.40.2",RESOLUTION=1280x720,AUDIO="audio"
+                720p/playlist.m3u8
+                #EXT-X-STREAM-INF:BANDWIDTH=130000,AVERAGE-BANDWIDTH=128000,CODECS="mp4a.40.2",AUDIO="audio"
+                audio/playlist.m3u8
+                #EXT-X-IMAGE-STREAM-INF:BANDWIDTH=9000,RESOLUTION=800x450,CODECS="jpeg",URI="../thumbnails/playlist.m3u8"
+                """);
+
+        assertThat(master.audio()).hasToString("http://localhost:8080/api/videos/1/hls/audio/playlist.m3u8");
+        assertThat(master.variants()).containsExactly(
+                new HlsPlaylist.Variant(URI.create("http://localhost:8080/api/videos/1/hls/720p/playlist.m3u8"),
+                        2_630_000, false),
+                new HlsPlaylist.Variant(URI.create("http://localhost:8080/api/videos/1/hls/audio/playlist.m3u8"),
+                        130_000, true));
+    }
+
+    @Test
+    void mediaPlaylistSegments() {
+        HlsPlaylist.Media media = HlsPlaylist.parseMedia(BASE, """
+                #EXTM3U
+                #EXT-X-MAP:URI="init.mp4"
+                #EXTINF:4.000000,
+                segment_000.m4s
+                #EXTINF:2.500000,
+                segment_001.m4s
+                #EXT-X-ENDLIST
+                """);
+
+        assertThat(media.init().offset()).isNull();
+        assertThat(media.init().rangeHeader()).isNull();
+        assertThat(media.segments()).hasSize(2);
+        assertThat(media.segments().get(1).durationSeconds()).isEqualTo(2.5);
+        assertThat(media.segments().get(1).resource().uri())
+                .hasToString("http://localhost:8080/api/videos/1/hls/segment_001.m4s");
+    }
+
+    @Test
+    void singleFileByteRanges() {
+        HlsPlaylist.Media media = HlsPlaylist.parseMedia(BASE, """
+                #EXTM3U
+                #EXT-X-MAP:URI="media.mp4",BYTERANGE="800@0"
+                #EXTINF:4.000000,
+                #EXT-X-BYTERANGE:1000@876
+                media.mp4
+                #EXTINF:2.000000,
+                #EXT-X-BYTERANGE:500
+                media.mp4
+                #EXT-X-ENDLIST
+                """);
+
+        assertThat(media.init().rangeHeader()).isEqualTo("bytes=0-799");
+        assertThat(media.segments().get(0).resource().rangeHeader()).isEqualTo("bytes=876-1875");
+        // Offset'siz aralık öncekinin bittiği yerden başlar
+        assertThat(media.segments().get(1).resource().rangeHeader()).isEqualTo("bytes=1876-2375");
+    }
+}
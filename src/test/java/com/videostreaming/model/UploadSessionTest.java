@@ -0,0 +1,41 @@
+package com.videostreaming.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadSessionTest {
+
+    @Test
+    void sizeIsSplitIntoChunksWithAShortLastOne() {
+        UploadSession session = new UploadSession(1L, 2500, 1000);
+
+        assertThat(session.getChunkCount()).isEqualTo(3);
+        assertThat(session.chunkLength(0)).isEqualTo(1000);
+        assertThat(session.chunkLength(2)).isEqualTo(500);
+        assertThat(session.getUploadOffset()).isZero();
+        assertThat(session.getMissingChunks()).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void offsetStopsAtTheFirstMissingChunk() {
+        UploadSession session = new UploadSession(1L, 10_000, 1000);
+        // PostgreSQL set_bit(receivedChunks, n): n. byte'ın (n % 8). biti
+        session.setReceivedChunks(new byte[]{0b0000_1011, 0b0000_0010});
+
+        assertThat(session.isChunkReceived(0)).isTrue();
+        assertThat(session.isChunkReceived(2)).isFalse();
+        assertThat(session.isChunkReceived(9)).isTrue();
+        assertThat(session.getUploadOffset()).isEqualTo(2000);
+        assertThat(session.getMissingChunks()).containsExactly(2, 4, 5, 6, 7, 8);
+    }
+
+    @Test
+    void completeSessionReportsTheFullSize() {
+        UploadSession session = new UploadSession(1L, 2500, 1000);
+        session.setReceivedChunks(new byte[]{0b0000_0111});
+
+        assertThat(session.getUploadOffset()).isEqualTo(2500);
+        assertThat(session.getMissingChunks()).isEmpty();
+    }
+}
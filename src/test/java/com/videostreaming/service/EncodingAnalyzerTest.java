@@ -0,0 +1,130 @@
+package com.videostreaming.service;
+
+import com.videostreaming.service.MediaProbeService.MediaInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class EncodingAnalyzerTest {
+
+    @TempDir
+    Path dir;
+
+    // 1080p30, 60 s: üç örnek penceresi, 640x360 örnek
+    private static final MediaInfo SOURCE = new MediaInfo(60_000, 6_000_000, 1920, 1080, 30.0, "30/1",
+            "h264", 5_800_000, true, "aac", 48000, 128_000);
+    private static final List<Rendition> LADDER = List.of(
+            new Rendition(1080, 5000), new Rendition(720, 4000), new Rendition(480, 1400), new Rendition(360, 800));
+
+    private final FFmpegExecutor ffmpegExecutor = mock(FFmpegExecutor.class);
+    private final List<String[]> commands = new ArrayList<>();
+
+    private EncodingAnalyzer analyzer(boolean enabled) {
+        return new EncodingAnalyzer(ffmpegExecutor, "ffmpeg", enabled, 23, "fast", 3, 4, 360, 1.5, 1.4);
+    }
+
+    // Her örnek kodlama sıradaki boyutta bir dosya yazar; 4 s'lik pencerede 500 bayt = 1 kbps
+    private void sampleSizes(int... sizes) throws Exception {
+        Deque<Integer> remaining = new ArrayDeque<>();
+        for (int size : sizes) {
+            remaining.add(size);
+        }
+        doAnswer(invocation -> {
+            String[] command = invocation.getArgument(0);
+            commands.add(command);
+            Files.write(Path.of(command[command.length - 1]), new byte[remaining.remove()]);
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class));
+    }
+
+    @Test
+    void simpleContentGetsLowerCapsAndCrf() throws Exception {
+        sampleSizes(100_000, 100_000, 100_000);
+        Path workDir = dir.resolve("analysis");
+
+        EncodingAnalyzer.EncodingPlan plan = analyzer(true).plan("in.mp4", SOURCE, LADDER, workDir);
+
+        // 200 kbps / (640 * 360 * 30) ≈ 0.029 bit/piksel: sade içerik
+        assertThat(plan.complexity()).isEqualTo(0.0289);
+        assertThat(plan.crf()).isEqualTo(22);
+        assertThat(plan.preset()).isEqualTo("fast");
+        assertThat(plan.ladderSpec()).isEqualTo("1080:1559,720:849,480:462,360:300");
+        assertThat(commands).hasSize(3);
+        assertThat(commands).extracting(command -> command[3]).containsExactly("13.000", "28.000", "43.000");
+        assertThat(commands.get(0)).contains("scale=640:360");
+        assertThat(workDir).doesNotExist();
+    }
+
+    @Test
+    void capsFollowThePeakWindow() throws Exception {
+        sampleSizes(100_000, 160_000, 100_000);
+
+        EncodingAnalyzer.EncodingPlan plan = analyzer(true).plan("in.mp4", SOURCE, LADDER, dir.resolve("a"));
+
+        // Ortalama 240 kbps CRF'i değiştirmez; tavanlar 320 kbps'lik tepeye göre
+        assertThat(plan.crf()).isEqualTo(23);
+        assertThat(plan.ladderSpec()).isEqualTo("1080:2494,720:1358,480:739,360:480");
+    }
+
+    @Test
+    void complexContentKeepsConfiguredCapsAndDropsCloseRungs() throws Exception {
+        sampleSizes(600_000, 600_000, 600_000);
+
+        EncodingAnalyzer.EncodingPlan plan = analyzer(true).plan("in.mp4", SOURCE, LADDER, dir.resolve("a"));
+
+        assertThat(plan.complexity()).isEqualTo(0.1736);
+        assertThat(plan.crf()).isEqualTo(24);
+        // 720p (4000) 1080p'nin (5000) 1.4 katı altında değil
+        assertThat(plan.ladderSpec()).isEqualTo("1080:5000,480:1400,360:800");
+    }
+
+    @Test
+    void shortSourcesAreSampledOnceFromTheStart() throws Exception {
+        sampleSizes(50_000);
+        MediaInfo clip = new MediaInfo(10_000, 1_000_000, 1280, 720, 25.0, "25/1",
+                "h264", 900_000, false, null, 0, 0);
+
+        analyzer(true).plan("in.mp4", clip, LADDER, dir.resolve("a"));
+
+        assertThat(commands).hasSize(1);
+        assertThat(commands.get(0)[3]).isEqualTo("0.000");
+    }
+
+    @Test
+    void failedAnalysisFallsBackToTheDefaultPlan() throws Exception {
+        doThrow(new IOException("ffmpeg exited with 1")).when(ffmpegExecutor).execute(any(String[].class));
+        Path workDir = dir.resolve("analysis");
+
+        EncodingAnalyzer.EncodingPlan plan = analyzer(true).plan("in.mp4", SOURCE, LADDER, workDir);
+
+        assertThat(plan).isEqualTo(analyzer(true).defaultPlan(LADDER));
+        assertThat(plan.complexity()).isNull();
+        assertThat(workDir).doesNotExist();
+        verify(ffmpegExecutor, times(1)).execute(any(String[].class));
+    }
+
+    @Test
+    void disabledAnalysisRunsNoEncodes() throws Exception {
+        EncodingAnalyzer.EncodingPlan plan = analyzer(false).plan("in.mp4", SOURCE, LADDER, dir.resolve("a"));
+
+        assertThat(plan.ladderSpec()).isEqualTo("1080:5000,720:4000,480:1400,360:800");
+        assertThat(plan.crf()).isEqualTo(23);
+        verifyNoInteractions(ffmpegExecutor);
+    }
+}
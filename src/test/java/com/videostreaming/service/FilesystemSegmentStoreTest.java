@@ -0,0 +1,52 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilesystemSegmentStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final FilesystemSegmentStore store = new FilesystemSegmentStore();
+
+    @Test
+    void localFileResolvesExistingFilesOnly() throws Exception {
+        Path output = Files.createDirectories(dir.resolve("processed/video/720p"));
+        Files.write(output.resolve("init.mp4"), new byte[]{1});
+        String outputDir = dir.resolve("processed/video").toString();
+
+        StepVerifier.create(store.localFile(outputDir, "720p/init.mp4"))
+                .expectNext(output.resolve("init.mp4"))
+                .verifyComplete();
+        StepVerifier.create(store.localFile(outputDir, "720p/segment_000.m4s"))
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteRemovesTheOutputTreeFromANonBlockingThread() throws Exception {
+        Path output = Files.createDirectories(dir.resolve("processed/video/720p"));
+        Files.write(output.resolve("init.mp4"), new byte[]{1});
+        Files.write(output.resolve("segment_000.m4s"), new byte[]{2});
+        Path outputDir = dir.resolve("processed/video");
+
+        // Silme R2DBC/Netty thread'lerinden çağrılır; bloklayan bir uygulama burada hata verirdi
+        StepVerifier.create(store.delete(outputDir.toString()).subscribeOn(Schedulers.parallel()))
+                .verifyComplete();
+
+        assertThat(outputDir).doesNotExist();
+    }
+
+    @Test
+    void deletingAMissingDirectoryCompletes() {
+        StepVerifier.create(store.delete(dir.resolve("missing").toString()))
+                .verifyComplete();
+    }
+}
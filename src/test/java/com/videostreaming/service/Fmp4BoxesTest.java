@@ -0,0 +1,151 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.videostreaming.service.Fmp4TestData.box;
+import static com.videostreaming.service.Fmp4TestData.concat;
+import static com.videostreaming.service.Fmp4TestData.fragment;
+import static com.videostreaming.service.Fmp4TestData.init;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class Fmp4BoxesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsTimescaleAndDefaultSampleDurationFromInit() throws IOException {
+        byte[] init = init(1, 15360, 512);
+
+        assertThat(Fmp4Boxes.readTimescale(init)).isEqualTo(15360);
+        assertThat(Fmp4Boxes.readDefaultSampleDuration(init)).isEqualTo(512);
+    }
+
+    @Test
+    void endDecodeTimeSumsSampleDurations() throws IOException {
+        byte[] segment = fragment(1, 1000, 3, new int[]{10, 20, 30}, null, true);
+
+        assertThat(Fmp4Boxes.firstDecodeTime(segment)).isEqualTo(1000);
+        assertThat(Fmp4Boxes.endDecodeTime(segment, 0)).isEqualTo(1060);
+    }
+
+    @Test
+    void endDecodeTimeFallsBackToTrexDefault() {
+        byte[] segment = fragment(1, 0, 4, null, null, true);
+
+        assertThat(Fmp4Boxes.endDecodeTime(segment, 512)).isEqualTo(2048);
+    }
+
+    @Test
+    void shiftDecodeTimesMovesEveryFragment() throws IOException {
+        byte[] segment = Fmp4TestData.concat(
+                fragment(1, 0, 2, new int[]{10, 10}, null, true),
+                fragment(1, 20, 2, new int[]{10, 10}, null, false));
+
+        Fmp4Boxes.shiftDecodeTimes(segment, 500);
+
+        assertThat(Fmp4Boxes.firstDecodeTime(segment)).isEqualTo(500);
+        assertThat(Fmp4Boxes.endDecodeTime(segment, 0)).isEqualTo(540);
+    }
+
+    @Test
+    void shiftDecodeTimesRejectsNegativeResult() {
+        byte[] segment = fragment(1, 100, 1, new int[]{10}, null, true);
+
+        assertThatThrownBy(() -> Fmp4Boxes.shiftDecodeTimes(segment, -200))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void trackDurationSpansFirstToLastSegment() throws IOException {
+        Files.write(dir.resolve("init.mp4"), init(2, 48000, 1024));
+        Files.write(dir.resolve("segment_000.m4s"), fragment(2, 0, 47, null, null, true));
+        Files.write(dir.resolve("segment_001.m4s"), fragment(2, 47 * 1024, 47, null, null, true));
+
+        // 94 AAC frames of 1024 samples at 48 kHz
+        assertThat(VideoProcessingService.trackDurationSeconds(dir))
+                .isCloseTo(94 * 1024 / 48000.0, within(1e-9));
+    }
+
+    @Test
+    void readsTrackIdFromInit() throws IOException {
+        assertThat(Fmp4Boxes.readTrackId(init(2, 48000, 1024))).isEqualTo(2);
+    }
+
+    @Test
+    void earliestPresentationTimeAddsCompositionOffsets() throws IOException {
+        // I P B B in decode order: the I frame is shown after the reordering delay
+        byte[] segment = fragment(1, 1000, 4, new int[]{512, 512, 512, 512},
+                new int[]{1024, 2048, 512, 512}, true);
+
+        assertThat(Fmp4Boxes.earliestPresentationTime(segment, 0)).isEqualTo(2024);
+    }
+
+    @Test
+    void earliestPresentationTimeHandlesSignedOffsets() throws IOException {
+        byte[] segment = fragment(1, 1024, 3, new int[]{512, 512, 512}, new int[]{512, 512, -1024}, true);
+
+        assertThat(Fmp4Boxes.earliestPresentationTime(segment, 0)).isEqualTo(1024);
+    }
+
+    @Test
+    void earliestPresentationTimeWithoutOffsetsIsDecodeTime() throws IOException {
+        assertThat(Fmp4Boxes.earliestPresentationTime(fragment(2, 4096, 3, null, null, true), 1024))
+                .isEqualTo(4096);
+    }
+
+    @Test
+    void sidxCarriesTrackIdTimingAndReferences() {
+        byte[] sidx = Fmp4Boxes.buildSidx(2, 48000, 1024, new int[]{300, 200}, new int[]{96000, 48000});
+        ByteBuffer buffer = ByteBuffer.wrap(sidx);
+
+        assertThat(buffer.getInt(0)).isEqualTo(sidx.length).isEqualTo(40 + 2 * 12);
+        assertThat(Fmp4Boxes.boxType(buffer, 0)).isEqualTo("sidx");
+        assertThat(buffer.get(8)).isEqualTo((byte) 1); // version
+        assertThat(buffer.getInt(12)).isEqualTo(2); // reference_ID
+        assertThat(buffer.getInt(16)).isEqualTo(48000); // timescale
+        assertThat(buffer.getLong(20)).isEqualTo(1024); // earliest_presentation_time
+        assertThat(buffer.getLong(28)).isZero(); // first_offset
+        assertThat(buffer.getShort(38)).isEqualTo((short) 2); // reference_count
+        assertThat(buffer.getInt(40)).isEqualTo(300);
+        assertThat(buffer.getInt(44)).isEqualTo(96000);
+        assertThat(buffer.getInt(48)).isEqualTo(0x90000000);
+        assertThat(buffer.getInt(52)).isEqualTo(200);
+    }
+
+    @Test
+    void fragmentedFileWithMoovFirstCanBeReadSequentially() {
+        assertThat(Fmp4Boxes.isFragmented(concat(init(1, 1000, 0), fragment(1, 0, 1, null, null, true))))
+                .isTrue();
+    }
+
+    @Test
+    void mdatBeforeMoovIsNotSequential() {
+        byte[] file = concat(box("ftyp", new byte[8]), box("mdat", new byte[32]), init(1, 1000, 0));
+
+        assertThat(Fmp4Boxes.isFragmented(file)).isFalse();
+    }
+
+    @Test
+    void moovWithoutMvexIsNotFragmented() {
+        byte[] file = concat(box("ftyp", new byte[8]), box("moov", box("trak")), box("mdat", new byte[32]));
+
+        assertThat(Fmp4Boxes.isFragmented(file)).isFalse();
+    }
+
+    @Test
+    void moovLargerThanThePrefixIsUndecided() {
+        byte[] init = init(1, 1000, 0);
+
+        assertThat(Fmp4Boxes.isFragmented(Arrays.copyOf(init, init.length - 4))).isFalse();
+    }
+}
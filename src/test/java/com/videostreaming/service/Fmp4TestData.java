@@ -0,0 +1,91 @@
+package com.videostreaming.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds minimal fragmented MP4 boxes (init segments and moof/mdat
+ * fragments) shaped like ffmpeg's output, for tests of the box parsing.
+ */
+final class Fmp4TestData {
+
+    static final int SYNC_SAMPLE = 0x02000000; // sample_depends_on = 2
+    static final int NON_SYNC_SAMPLE = 0x01010000; // sample_depends_on = 1, is_non_sync
+
+    private Fmp4TestData() {
+    }
+
+    static byte[] box(String type, byte[]... children) {
+        byte[] content = concat(children);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + content.length);
+        buffer.putInt(8 + content.length);
+        buffer.put(type.getBytes(StandardCharsets.US_ASCII));
+        buffer.put(content);
+        return buffer.array();
+    }
+
+    static byte[] fullBox(String type, int version, int flags, byte[]... children) {
+        return box(type, ints((version << 24) | flags), concat(children));
+    }
+
+    static byte[] ints(long... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length);
+        for (long value : values) {
+            buffer.putInt((int) value);
+        }
+        return buffer.array();
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    /** ftyp + moov with one track and a trex default sample duration. */
+    static byte[] init(long trackId, long timescale, long defaultSampleDuration) {
+        return concat(
+                box("ftyp", "iso6".getBytes(StandardCharsets.US_ASCII), ints(0)),
+                box("moov",
+                        fullBox("mvhd", 0, 0, ints(0, 0, 1000, 0)),
+                        box("trak",
+                                fullBox("tkhd", 0, 3, ints(0, 0, trackId, 0, 0)),
+                                box("mdia", fullBox("mdhd", 0, 0, ints(0, 0, timescale, 0, 0)))),
+                        box("mvex", fullBox("trex", 0, 0, ints(trackId, 1, defaultSampleDuration, 0, 0)))));
+    }
+
+    /**
+     * One moof/mdat fragment of {@code sampleCount} samples starting at
+     * {@code decodeTime}. {@code durations} and {@code ctos} may be null to
+     * leave them out of the trun (durations then come from the trex
+     * default); the first sample is a keyframe if {@code firstSync}. A
+     * negative composition offset makes it a version 1 (signed) trun.
+     */
+    static byte[] fragment(long trackId, long decodeTime, int sampleCount, int[] durations, int[] ctos,
+                           boolean firstSync) {
+        int flags = 0x01 | 0x200 | 0x400 | (durations != null ? 0x100 : 0) | (ctos != null ? 0x800 : 0);
+        ByteArrayOutputStream samples = new ByteArrayOutputStream();
+        for (int i = 0; i < sampleCount; i++) {
+            if (durations != null) {
+                samples.writeBytes(ints(durations[i]));
+            }
+            samples.writeBytes(ints(100)); // size
+            samples.writeBytes(ints(i == 0 && firstSync ? SYNC_SAMPLE : NON_SYNC_SAMPLE));
+            if (ctos != null) {
+                samples.writeBytes(ints(ctos[i]));
+            }
+        }
+        int trunVersion = ctos != null && Arrays.stream(ctos).anyMatch(cto -> cto < 0) ? 1 : 0;
+        byte[] moof = box("moof",
+                fullBox("mfhd", 0, 0, ints(1)),
+                box("traf",
+                        fullBox("tfhd", 0, 0x020000, ints(trackId)),
+                        fullBox("tfdt", 1, 0, ByteBuffer.allocate(8).putLong(decodeTime).array()),
+                        fullBox("trun", trunVersion, flags, ints(sampleCount, 0), samples.toByteArray())));
+        return concat(moof, box("mdat", new byte[100 * sampleCount]));
+    }
+}
@@ -0,0 +1,90 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.videostreaming.service.Fmp4TestData.fragment;
+import static com.videostreaming.service.Fmp4TestData.init;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FragmentIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void indexSurvivesAWriteReadRoundTrip() throws IOException {
+        FragmentIndex written = new FragmentIndex(10_000, 29.97, "30000/1001", 48000,
+                List.of(ManifestRendererTest.VIDEO, ManifestRendererTest.AUDIO));
+        written.write(dir);
+
+        FragmentIndex read = FragmentIndex.read(dir);
+
+        assertThat(read.getDurationMs()).isEqualTo(10_000);
+        assertThat(read.getFrameRateRatio()).isEqualTo("30000/1001");
+        assertThat(read.getAudioSampleRate()).isEqualTo(48000);
+        assertThat(read.getThumbnails()).isNull();
+        assertThat(read.getVideoTracks()).hasSize(1);
+        FragmentIndex.Track video = read.getTrack("720p");
+        assertThat(video.isSingleFile()).isFalse();
+        assertThat(video.codecs()).isEqualTo("avc1.64001f");
+        assertThat(video.offsets()).containsExactly(800, 1800, 2800);
+        assertThat(video.keyframeTimes()).containsExactly(0, 61440, 122880);
+        assertThat(video.durations()).containsExactly(61440, 61440, 30720);
+        assertThat(read.getAudioTrack().timescale()).isEqualTo(48000);
+        assertThat(Files.exists(dir.resolve(FragmentIndex.FILE_NAME + ".tmp"))).isFalse();
+    }
+
+    @Test
+    void thumbnailGridSurvivesARoundTrip() throws IOException {
+        new FragmentIndex(750_000, 30.0, "30", 48000, List.of(ManifestRendererTest.VIDEO),
+                ManifestRendererTest.THUMBNAILS).write(dir);
+
+        assertThat(FragmentIndex.read(dir).getThumbnails()).isEqualTo(ManifestRendererTest.THUMBNAILS);
+    }
+
+    @Test
+    void indexTrackReadsTimesFromTheFragments() throws IOException {
+        Files.write(dir.resolve("init.mp4"), init(1, 1000, 0));
+        Files.write(dir.resolve("segment_000.m4s"), fragment(1, 0, 2, new int[]{1000, 1000}, null, true));
+        Files.write(dir.resolve("segment_001.m4s"), fragment(1, 2000, 1, new int[]{500}, null, true));
+
+        FragmentIndex.Track track = FragmentIndex.indexTrack(dir, "720p", false, "avc1.64001f", 1280, 720);
+
+        assertThat(track.timescale()).isEqualTo(1000);
+        assertThat(track.keyframeTimes()).containsExactly(0, 2000);
+        assertThat(track.durations()).containsExactly(2000, 500);
+        assertThat(track.offsets()[0]).isEqualTo(track.initSize());
+        assertThat(track.offsets()[1]).isEqualTo(track.initSize() + track.sizes()[0]);
+        assertThat(track.maxDurationSeconds()).isEqualTo(2.0);
+    }
+
+    @Test
+    void packSingleFileWritesSidxForTheTrack() throws IOException {
+        byte[] init = init(2, 1000, 0);
+        Files.write(dir.resolve("init.mp4"), init);
+        Files.write(dir.resolve("segment_000.m4s"),
+                fragment(2, 0, 2, new int[]{1000, 1000}, new int[]{200, 200}, true));
+        Files.write(dir.resolve("segment_001.m4s"),
+                fragment(2, 2000, 2, new int[]{1000, 1000}, new int[]{200, 200}, true));
+        FragmentIndex.Track track = FragmentIndex.indexTrack(dir, "720p", false, "avc1.64001f", 1280, 720);
+
+        FragmentIndex.Track packed = FragmentIndex.packSingleFile(dir, track, "media.mp4");
+
+        byte[] media = Files.readAllBytes(dir.resolve("media.mp4"));
+        ByteBuffer sidx = ByteBuffer.wrap(media, init.length, packed.indexSize()).slice();
+        assertThat(Fmp4Boxes.boxType(sidx, 0)).isEqualTo("sidx");
+        assertThat(sidx.getInt(12)).isEqualTo(2); // reference_ID = tkhd track_ID
+        assertThat(sidx.getLong(20)).isEqualTo(200); // first sample's decode time + composition offset
+        assertThat(packed.offsets()[0]).isEqualTo(init.length + packed.indexSize());
+        assertThat(packed.offsets()[1]).isEqualTo(packed.offsets()[0] + packed.sizes()[0]);
+        assertThat(Files.exists(dir.resolve("segment_000.m4s"))).isFalse();
+        assertThat(Files.exists(dir.resolve("init.mp4"))).isFalse();
+    }
+}
@@ -0,0 +1,93 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GrowingFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void awaitLengthReturnsOnceEnoughIsWritten() throws Exception {
+        GrowingFile upload = new GrowingFile(dir.resolve("upload.mkv"), Duration.ofSeconds(5));
+        CompletableFuture<Long> length = CompletableFuture.supplyAsync(() -> {
+            try {
+                return upload.awaitLength(100);
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        upload.advance(60);
+        assertThat(length).isNotDone();
+        upload.advance(60);
+        assertThat(length.get(2, TimeUnit.SECONDS)).isEqualTo(120);
+    }
+
+    @Test
+    void awaitLengthReturnsShortLengthWhenUploadCompletes() throws Exception {
+        GrowingFile upload = new GrowingFile(dir.resolve("upload.mkv"), Duration.ofSeconds(5));
+        upload.advance(10);
+        upload.complete();
+
+        assertThat(upload.awaitLength(100)).isEqualTo(10);
+        assertThat(upload.awaitComplete()).isEqualTo(10);
+    }
+
+    @Test
+    void failureIsRethrownToWaiters() {
+        GrowingFile upload = new GrowingFile(dir.resolve("upload.mkv"), Duration.ofSeconds(5));
+        upload.fail(new IOException("Upload cancelled by the client"));
+
+        assertThatThrownBy(upload::awaitComplete)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Upload cancelled by the client");
+    }
+
+    @Test
+    void failureAfterCompletionIsIgnored() throws Exception {
+        GrowingFile upload = new GrowingFile(dir.resolve("upload.mkv"), Duration.ofSeconds(5));
+        upload.advance(10);
+        upload.complete();
+        upload.fail(new IOException("cancelled"));
+
+        assertThat(upload.awaitComplete()).isEqualTo(10);
+    }
+
+    @Test
+    void stalledUploadTimesOut() {
+        GrowingFile upload = new GrowingFile(dir.resolve("upload.mkv"), Duration.ofMillis(200));
+        upload.advance(10);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> upload.awaitLength(100))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("stalled");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void streamReadsWrittenBytesUntilCompletion() throws Exception {
+        Path file = dir.resolve("upload.mkv");
+        Files.write(file, new byte[]{1, 2, 3, 4});
+        GrowingFile upload = new GrowingFile(file, Duration.ofSeconds(5));
+        upload.advance(4);
+        upload.complete();
+
+        try (InputStream stream = upload.openStream()) {
+            assertThat(stream.readAllBytes()).containsExactly(1, 2, 3, 4);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.videostreaming.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotSegmentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    // İlk 2 segment, en fazla 1 KB'lık dosyalar
+    private final HotSegmentCache cache = new HotSegmentCache(new SimpleMeterRegistry(), 1 << 20, 2, 1024);
+
+    @Test
+    void onlyManifestsInitsAndFirstSegmentsAreCandidates() {
+        assertThat(cache.isCandidate("720p/init.mp4", 800)).isTrue();
+        assertThat(cache.isCandidate("720p/playlist.m3u8", 200)).isTrue();
+        assertThat(cache.isCandidate("manifest.mpd", 200)).isTrue();
+        assertThat(cache.isCandidate("720p/segment_001.m4s", 500)).isTrue();
+        assertThat(cache.isCandidate("720p/segment_002.m4s", 500)).isFalse();
+        assertThat(cache.isCandidate("720p/segment_000.m4s", 2048)).isFalse();
+        assertThat(cache.isCandidate("thumbnails/sprite_000.jpg", 500)).isFalse();
+    }
+
+    @Test
+    void loadsOnceAndHandsOutIndependentReadOnlyViews() throws Exception {
+        Path file = Files.write(dir.resolve("init.mp4"), new byte[]{1, 2, 3, 4});
+        SegmentFileCache.SegmentFile segment = new SegmentFileCache.SegmentFile(file, 4, 0);
+
+        StepVerifier.create(cache.get(1L, "720p/init.mp4", segment))
+                .assertNext(buffer -> {
+                    assertThat(buffer.isReadOnly()).isTrue();
+                    assertThat(buffer.remaining()).isEqualTo(4);
+                    buffer.get(new byte[4]);
+                })
+                .verifyComplete();
+        assertThat(cache.contains(1L, "720p/init.mp4")).isTrue();
+
+        // Önceki okuyucunun konumu paylaşılmaz; dosya artık diskten okunmaz
+        Files.delete(file);
+        StepVerifier.create(cache.get(1L, "720p/init.mp4", segment))
+                .assertNext(buffer -> {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    assertThat(bytes).containsExactly(1, 2, 3, 4);
+                })
+                .verifyComplete();
+
+        cache.invalidate(1L);
+        assertThat(cache.contains(1L, "720p/init.mp4")).isFalse();
+    }
+
+    @Test
+    void missingFileFailsTheLoad() {
+        SegmentFileCache.SegmentFile segment = new SegmentFileCache.SegmentFile(dir.resolve("gone.m4s"), 4, 0);
+
+        StepVerifier.create(cache.get(1L, "720p/segment_000.m4s", segment).map(ByteBuffer::remaining))
+                .expectError()
+                .verify();
+    }
+}
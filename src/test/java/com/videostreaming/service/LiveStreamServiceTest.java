@@ -0,0 +1,91 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// ffmpeg yerine argümanları yok sayan bir kabuk betiği çalışır
+@DisabledOnOs(OS.WINDOWS)
+class LiveStreamServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final LiveStreamService service = new LiveStreamService();
+
+    private void configure(String script) throws IOException {
+        Path ffmpeg = dir.resolve("ffmpeg.sh");
+        Files.writeString(ffmpeg, "#!/bin/sh\n" + script + "\n");
+        assertThat(ffmpeg.toFile().setExecutable(true)).isTrue();
+        Files.write(dir.resolve("clip.mp4"), new byte[0]);
+
+        ReflectionTestUtils.setField(service, "storagePath", dir.toString());
+        ReflectionTestUtils.setField(service, "ffmpegPath", ffmpeg.toString());
+        ReflectionTestUtils.setField(service, "audioBitrateKbps", 128);
+        // Bitmiş yayın pencere boyunca, 1 x 1 s tutulur
+        ReflectionTestUtils.setField(service, "segmentSeconds", 1);
+        ReflectionTestUtils.setField(service, "partMillis", 500);
+        ReflectionTestUtils.setField(service, "windowSegments", 1);
+        ReflectionTestUtils.setField(service, "height", 720);
+        ReflectionTestUtils.setField(service, "bitrateKbps", 2800);
+        ReflectionTestUtils.setField(service, "frameRate", 30);
+        ReflectionTestUtils.setField(service, "maxStreams", 1);
+    }
+
+    @AfterEach
+    void stopAll() {
+        service.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void runningStreamsHoldTheirNameAndASlot() throws Exception {
+        configure("exec sleep 30");
+
+        service.start("a", "clip.mp4", false);
+
+        assertThatThrownBy(() -> service.start("a", "clip.mp4", false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already exists");
+        assertThatThrownBy(() -> service.start("b", "clip.mp4", false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Too many");
+    }
+
+    @Test
+    void endedStreamsFreeTheirSlotAndAreRemovedAfterTheWindow() throws Exception {
+        configure("exit 0");
+
+        LiveStream first = service.start("a", "clip.mp4", false);
+        await(first::isEnded);
+        // Oynatıcılar ENDLIST'i hâlâ görebilir
+        assertThat(service.get("a").block()).isSameAs(first);
+
+        // Bitmiş yayın sınıra sayılmaz, adı yeniden kullanılabilir
+        LiveStream restarted = service.start("a", "clip.mp4", false);
+        assertThat(restarted).isNotSameAs(first);
+        await(restarted::isEnded);
+
+        await(() -> service.get("a").block() == null);
+        assertThat(service.list()).isEmpty();
+    }
+}
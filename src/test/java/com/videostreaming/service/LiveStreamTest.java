@@ -0,0 +1,122 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static com.videostreaming.service.Fmp4TestData.concat;
+import static com.videostreaming.service.Fmp4TestData.fragment;
+import static com.videostreaming.service.Fmp4TestData.init;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveStreamTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    // 2 s segmentler, 0.5 s partlar, 2 segmentlik pencere; timescale 1000
+    private final LiveStream stream =
+            new LiveStream("cam", "rtmp://in/cam", 2, 0.5, 2, new Rendition(720, 2800), 25);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stream.setInit(init(1, 1000, 0));
+    }
+
+    private static byte[] part(long start, boolean keyframe) {
+        return fragment(1, start, 1, new int[]{500}, null, keyframe);
+    }
+
+    // start'tan itibaren 0.5 s'lik partlar; her segmentin ilk partı keyframe
+    private void addParts(long start, int count) {
+        for (int i = 0; i < count; i++) {
+            long time = start + i * 500L;
+            stream.addFragment(part(time, time % 2000 == 0));
+        }
+    }
+
+    @Test
+    void keyframesStartNewSegments() {
+        addParts(0, 6);
+
+        String playlist = stream.renderHlsPlaylist();
+        assertThat(playlist).contains("#EXT-X-MEDIA-SEQUENCE:0\n");
+        assertThat(playlist).contains("#EXTINF:2.000,\nsegment_0.m4s\n");
+        assertThat(playlist).contains("#EXT-X-PART:DURATION=0.500,URI=\"part_1.0.m4s\",INDEPENDENT=YES\n");
+        assertThat(playlist).contains("#EXT-X-PART:DURATION=0.500,URI=\"part_1.1.m4s\"\n");
+        assertThat(playlist).doesNotContain("segment_1.m4s");
+        assertThat(playlist).endsWith("#EXT-X-PRELOAD-HINT:TYPE=PART,URI=\"part_1.2.m4s\"\n");
+    }
+
+    @Test
+    void windowDropsOldSegments() {
+        addParts(0, 9);
+
+        assertThat(stream.status().mediaSequence()).isEqualTo(1);
+        assertThat(stream.status().segmentCount()).isEqualTo(2);
+        assertThat(stream.renderHlsPlaylist()).contains("#EXT-X-MEDIA-SEQUENCE:1\n")
+                .doesNotContain("segment_0.m4s");
+    }
+
+    @Test
+    void fragmentsWithoutTheVideoTrackAreIgnored() {
+        stream.addFragment(fragment(2, 0, 1, new int[]{1024}, null, true));
+
+        assertThat(stream.status().segmentCount()).isZero();
+    }
+
+    @Test
+    void blockingReloadWaitsForThePart() {
+        addParts(0, 2);
+
+        StepVerifier.create(stream.getPart(0, 2, TIMEOUT))
+                .then(() -> stream.addFragment(part(1000, false)))
+                .assertNext(bytes -> assertThat(bytes).isEqualTo(part(1000, false)))
+                .verifyComplete();
+    }
+
+    @Test
+    void partFarBeyondTheLiveEdgeIsRejected() {
+        addParts(0, 2);
+
+        StepVerifier.create(stream.awaitPart(5, 0, TIMEOUT))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void completedSegmentIsItsPartsConcatenated() {
+        addParts(0, 5);
+
+        StepVerifier.create(stream.streamSegment(0))
+                .assertNext(bytes -> assertThat(bytes).isEqualTo(
+                        concat(part(0, true), part(500, false), part(1000, false), part(1500, false))))
+                .verifyComplete();
+    }
+
+    @Test
+    void openSegmentStreamsPartsUntilItCompletes() {
+        addParts(0, 1);
+
+        StepVerifier.create(stream.streamSegment(0))
+                .assertNext(bytes -> assertThat(bytes).isEqualTo(part(0, true)))
+                .then(() -> stream.addFragment(part(500, false)))
+                .assertNext(bytes -> assertThat(bytes).isEqualTo(part(500, false)))
+                .then(stream::end)
+                .verifyComplete();
+    }
+
+    @Test
+    void endedStreamClosesThePlaylist() {
+        addParts(0, 3);
+        stream.end();
+
+        assertThat(stream.isEnded()).isTrue();
+        assertThat(stream.renderHlsPlaylist()).contains("#EXTINF:1.500,\nsegment_0.m4s\n")
+                .endsWith("#EXT-X-ENDLIST\n");
+        assertThat(stream.renderDashManifest()).contains("type=\"dynamic\"")
+                .contains("mediaPresentationDuration=\"PT2.000S\"");
+    }
+}
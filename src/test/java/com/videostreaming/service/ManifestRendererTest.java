@@ -0,0 +1,206 @@
+package com.videostreaming.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ManifestRendererTest {
+
+    @TempDir
+    Path dir;
+
+    private final ManifestRenderer renderer =
+            new ManifestRenderer(new SimpleMeterRegistry(), new FilesystemSegmentStore(), 10);
+
+    // 4 s + 4 s + 2 s; video 15360, ses 48000 timescale
+    static final FragmentIndex.Track VIDEO = new FragmentIndex.Track("720p", false, "avc1.64001f", 1280, 720,
+            2_000_000, 2_500_000, 15360, null, 800, 0,
+            new long[]{800, 1800, 2800}, new int[]{1000, 1000, 500},
+            new long[]{0, 61440, 122880}, new int[]{61440, 61440, 30720});
+    static final FragmentIndex.Track AUDIO = new FragmentIndex.Track("audio", true, "mp4a.40.2", 0, 0,
+            128_000, 130_000, 48000, null, 600, 0,
+            new long[]{600, 1600, 2600}, new int[]{1000, 1000, 500},
+            new long[]{0, 192000, 384000}, new int[]{192000, 192000, 96000});
+    static final FragmentIndex.Track SINGLE_FILE_VIDEO = new FragmentIndex.Track("720p", false, "avc1.64001f",
+            1280, 720, 2_000_000, 2_500_000, 15360, "media.mp4", 800, 76,
+            new long[]{876, 1876, 2876}, new int[]{1000, 1000, 500},
+            new long[]{0, 61440, 122880}, new int[]{61440, 61440, 30720});
+    // 5 s aralık, 10x10 sayfa: 150 karo, iki sayfa
+    static final FragmentIndex.Thumbnails THUMBNAILS = new FragmentIndex.Thumbnails(5000, 10, 10, 160, 90, 150,
+            24_000);
+
+    private static FragmentIndex index(FragmentIndex.Track... tracks) {
+        return new FragmentIndex(10_000, 30.0, "30", 48000, List.of(tracks));
+    }
+
+    @Test
+    void mediaPlaylistListsSegmentsWithExactDurations() {
+        String playlist = renderer.renderHlsMedia(VIDEO);
+
+        assertThat(playlist).startsWith("#EXTM3U\n#EXT-X-VERSION:7\n#EXT-X-TARGETDURATION:4\n");
+        assertThat(playlist).contains("#EXT-X-MAP:URI=\"init.mp4\"\n"
+                + "#EXTINF:4.000000,\nsegment_000.m4s\n"
+                + "#EXTINF:4.000000,\nsegment_001.m4s\n"
+                + "#EXTINF:2.000000,\nsegment_002.m4s\n"
+                + "#EXT-X-ENDLIST\n");
+    }
+
+    @Test
+    void singleFileMediaPlaylistUsesByteRanges() {
+        String playlist = renderer.renderHlsMedia(SINGLE_FILE_VIDEO);
+
+        assertThat(playlist).contains("#EXT-X-MAP:URI=\"media.mp4\",BYTERANGE=\"800@0\"\n");
+        assertThat(playlist).contains("#EXTINF:4.000000,\n#EXT-X-BYTERANGE:1000@876\nmedia.mp4\n");
+        assertThat(playlist).contains("#EXTINF:2.000000,\n#EXT-X-BYTERANGE:500@2876\nmedia.mp4\n");
+    }
+
+    @Test
+    void masterPlaylistAddsAudioToEveryVariant() {
+        String master = renderer.renderHlsMaster(index(VIDEO, AUDIO));
+
+        assertThat(master).contains("#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"audio\",NAME=\"Default\",DEFAULT=YES,"
+                + "AUTOSELECT=YES,URI=\"audio/playlist.m3u8\"\n");
+        assertThat(master).contains("#EXT-X-STREAM-INF:BANDWIDTH=2630000,AVERAGE-BANDWIDTH=2128000,"
+                + "CODECS=\"avc1.64001f,mp4a.40.2\",RESOLUTION=1280x720,FRAME-RATE=30.000,AUDIO=\"audio\"\n"
+                + "720p/playlist.m3u8\n");
+        // Yalnızca-ses varyantı
+        assertThat(master).contains("#EXT-X-STREAM-INF:BANDWIDTH=130000,AVERAGE-BANDWIDTH=128000,"
+                + "CODECS=\"mp4a.40.2\",AUDIO=\"audio\"\naudio/playlist.m3u8\n");
+    }
+
+    @Test
+    void masterPlaylistWithoutAudio() {
+        String master = renderer.renderHlsMaster(index(VIDEO));
+
+        assertThat(master).doesNotContain("TYPE=AUDIO").doesNotContain("AUDIO=\"audio\"");
+        assertThat(master).contains("CODECS=\"avc1.64001f\",RESOLUTION=1280x720");
+    }
+
+    @Test
+    void dashTimelineCollapsesRepeatedDurations() {
+        String mpd = renderer.renderDash(index(VIDEO, AUDIO));
+
+        assertThat(mpd).contains("mediaPresentationDuration=\"PT10.000S\"");
+        assertThat(mpd).contains("profiles=\"urn:mpeg:dash:profile:isoff-live:2011\"");
+        assertThat(mpd).contains("<SegmentTemplate timescale=\"15360\" presentationTimeOffset=\"0\" ");
+        assertThat(mpd).contains("<S t=\"0\" d=\"61440\" r=\"1\"/>\n"
+                + "            <S t=\"122880\" d=\"30720\"/>\n");
+        assertThat(mpd).contains("<S t=\"0\" d=\"192000\" r=\"1\"/>");
+        assertThat(mpd).contains("audioSamplingRate=\"48000\"");
+    }
+
+    @Test
+    void singleFileDashUsesSegmentBase() {
+        String mpd = renderer.renderDash(index(SINGLE_FILE_VIDEO));
+
+        assertThat(mpd).contains("profiles=\"urn:mpeg:dash:profile:isoff-on-demand:2011\"");
+        assertThat(mpd).contains("<BaseURL>720p/media.mp4</BaseURL>");
+        assertThat(mpd).contains("indexRange=\"800-875\" indexRangeExact=\"true\">\n"
+                + "          <Initialization range=\"0-799\"/>");
+        assertThat(mpd).doesNotContain("SegmentTimeline");
+    }
+
+    @Test
+    void thumbnailsAreReferencedFromBothManifests() {
+        FragmentIndex index = new FragmentIndex(750_000, 30.0, "30", 48000, List.of(VIDEO, AUDIO), THUMBNAILS);
+
+        assertThat(renderer.renderHlsMaster(index)).endsWith("#EXT-X-IMAGE-STREAM-INF:BANDWIDTH=24000,"
+                + "RESOLUTION=1600x900,CODECS=\"jpeg\",URI=\"../thumbnails/playlist.m3u8\"\n");
+        String mpd = renderer.renderDash(index);
+        assertThat(mpd).contains("<AdaptationSet id=\"thumbnails\" contentType=\"image\" mimeType=\"image/jpeg\">");
+        assertThat(mpd).contains("media=\"../thumbnails/sprite_$Number%03d$.jpg\" timescale=\"1000\" "
+                + "duration=\"500000\" startNumber=\"0\"/>");
+        assertThat(mpd).contains("value=\"10x10\"/>");
+        assertThat(renderer.renderHlsMaster(index(VIDEO))).doesNotContain("IMAGE-STREAM-INF");
+        assertThat(renderer.renderDash(index(VIDEO))).doesNotContain("thumbnail");
+    }
+
+    @Test
+    void imagePlaylistListsOneSegmentPerSheet() {
+        String playlist = renderer.renderHlsThumbnails(THUMBNAILS);
+
+        assertThat(playlist).contains("#EXT-X-TARGETDURATION:500\n").contains("#EXT-X-IMAGES-ONLY\n");
+        assertThat(playlist).endsWith("#EXTINF:500.000,\n"
+                + "#EXT-X-TILES:RESOLUTION=160x90,LAYOUT=10x10,DURATION=5.000\nsprite_000.jpg\n"
+                + "#EXTINF:250.000,\n"
+                + "#EXT-X-TILES:RESOLUTION=160x90,LAYOUT=10x10,DURATION=5.000\nsprite_001.jpg\n"
+                + "#EXT-X-ENDLIST\n");
+    }
+
+    @Test
+    void isoDurations() {
+        assertThat(ManifestRenderer.formatDurationToISO(3_723_500)).isEqualTo("PT1H2M3.500S");
+        assertThat(ManifestRenderer.formatDurationToISO(120_000)).isEqualTo("PT2M");
+        assertThat(ManifestRenderer.formatDurationToISO(0)).isEqualTo("PT0.000S");
+    }
+
+    @Test
+    void renderServesManifestsFromTheStoredIndex() throws Exception {
+        index(VIDEO, AUDIO).write(dir);
+
+        StepVerifier.create(renderer.render(1L, dir.toString(), "720p/playlist.m3u8"))
+                .assertNext(manifest -> {
+                    assertThat(new String(manifest.body(), StandardCharsets.UTF_8))
+                            .isEqualTo(renderer.renderHlsMedia(VIDEO));
+                    assertThat(manifest.etag()).matches("\"[0-9a-f]{32}\"");
+                })
+                .verifyComplete();
+        StepVerifier.create(renderer.render(1L, dir.toString(), "1080p/playlist.m3u8"))
+                .verifyComplete();
+        StepVerifier.create(renderer.render(1L, dir.toString(), "thumbnails/playlist.m3u8"))
+                .verifyComplete();
+    }
+
+    @Test
+    void unknownPathsAreNotRemembered() throws Exception {
+        index(VIDEO, AUDIO).write(dir);
+        StepVerifier.create(renderer.render(1L, dir.toString(), "720p/playlist.m3u8"))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(renderer.renderedPaths(1L)).containsExactly("720p/playlist.m3u8");
+
+        for (int i = 0; i < 100; i++) {
+            StepVerifier.create(renderer.render(1L, dir.toString(), "x" + i + "/playlist.m3u8"))
+                    .verifyComplete();
+        }
+        StepVerifier.create(renderer.render(1L, dir.toString(), "x/manifest.mpd")).verifyComplete();
+        assertThat(renderer.renderedPaths(1L)).containsExactly("720p/playlist.m3u8");
+    }
+
+    @Test
+    void videoWithoutIndexHasNoRenderedManifests() {
+        StepVerifier.create(renderer.render(2L, dir.resolve("missing").toString(), "playlist.m3u8"))
+                .verifyComplete();
+    }
+
+    @Test
+    void longVideosRenderEverySegment() {
+        // ManifestRendererBenchmark'ın en büyük boyutu: 10.000 segment
+        int segments = 10_000;
+        long[] offsets = new long[segments];
+        int[] sizes = new int[segments];
+        long[] keyframeTimes = new long[segments];
+        int[] durations = new int[segments];
+        for (int i = 0; i < segments; i++) {
+            offsets[i] = 800 + 1000L * i;
+            sizes[i] = 1000;
+            keyframeTimes[i] = 30720L * i;
+            durations[i] = 30720;
+        }
+        FragmentIndex.Track track = new FragmentIndex.Track("720p", false, "avc1.64001f", 1280, 720,
+                2_000_000, 2_500_000, 15360, null, 800, 0, offsets, sizes, keyframeTimes, durations);
+
+        String playlist = renderer.renderHlsMedia(track);
+        assertThat(playlist.lines().filter(line -> line.startsWith("#EXTINF:"))).hasSize(segments);
+        assertThat(playlist).contains("segment_9999.m4s\n#EXT-X-ENDLIST\n");
+        // Eşit süreler tek satırda
+        assertThat(renderer.renderDash(index(track))).contains("<S t=\"0\" d=\"30720\" r=\"9999\"/>");
+    }
+}
@@ -0,0 +1,68 @@
+package com.videostreaming.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MediaProbeServiceTest {
+
+    private final MediaProbeService probeService = new MediaProbeService("ffprobe");
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MediaProbeService.MediaInfo parse(String json) throws Exception {
+        return probeService.parse(objectMapper.readTree(json), "input.mp4");
+    }
+
+    @Test
+    void readsFormatVideoAndAudioStreams() throws Exception {
+        MediaProbeService.MediaInfo info = parse("""
+                {"streams": [
+                  {"codec_type": "video", "codec_name": "h264", "width": 1920, "height": 1080,
+                   "r_frame_rate": "60000/1001", "avg_frame_rate": "30000/1001", "bit_rate": "4500000"},
+                  {"codec_type": "audio", "codec_name": "aac", "sample_rate": "48000", "bit_rate": "128000"}
+                 ],
+                 "format": {"duration": "12.345", "bit_rate": "4700000"}}
+                """);
+
+        assertThat(info.durationMs()).isEqualTo(12345);
+        assertThat(info.bitrate()).isEqualTo(4_700_000);
+        assertThat(info.width()).isEqualTo(1920);
+        assertThat(info.height()).isEqualTo(1080);
+        assertThat(info.frameRate()).isCloseTo(29.97, within(0.01));
+        assertThat(info.frameRateRatio()).isEqualTo("30000/1001");
+        assertThat(info.videoCodec()).isEqualTo("h264");
+        assertThat(info.hasAudio()).isTrue();
+        assertThat(info.audioSampleRate()).isEqualTo(48000);
+        assertThat(info.audioBitrate()).isEqualTo(128_000);
+    }
+
+    @Test
+    void fallsBackToStreamDurationAndRealFrameRate() throws Exception {
+        // TS / büyüyen dosya: format süresi ve ortalama kare hızı bilinmiyor
+        MediaProbeService.MediaInfo info = parse("""
+                {"streams": [
+                  {"codec_type": "video", "codec_name": "h264", "width": 1280, "height": 720,
+                   "r_frame_rate": "25/1", "avg_frame_rate": "0/0", "duration": "8.000", "bit_rate": "N/A"}
+                 ],
+                 "format": {"duration": "N/A", "bit_rate": "N/A"}}
+                """);
+
+        assertThat(info.durationMs()).isEqualTo(8000);
+        assertThat(info.frameRate()).isEqualTo(25.0);
+        assertThat(info.frameRateRatio()).isEqualTo("25");
+        assertThat(info.bitrate()).isZero();
+        assertThat(info.hasAudio()).isFalse();
+        assertThat(info.audioCodec()).isNull();
+    }
+
+    @Test
+    void sourceWithoutVideoIsRejected() {
+        assertThatThrownBy(() -> parse("""
+                {"streams": [{"codec_type": "audio", "codec_name": "aac"}], "format": {"duration": "3.0"}}
+                """))
+                .hasMessageContaining("No video stream");
+    }
+}
@@ -0,0 +1,117 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.ProcessedOutput;
+import com.videostreaming.model.Video;
+import com.videostreaming.repository.ProcessedOutputRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessedOutputIndexTest {
+
+    private final ProcessedOutputRepository repository = mock(ProcessedOutputRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessedOutputIndex index = new ProcessedOutputIndex(repository, meterRegistry);
+
+    private static Video video(String sha256, String cmafPath) {
+        Video video = new Video();
+        video.setId(2L);
+        video.setFileSize(1000);
+        video.setContentSha256(sha256);
+        video.setCmafPath(cmafPath);
+        return video;
+    }
+
+    private static ProcessedOutput output(int refCount) {
+        ProcessedOutput output = new ProcessedOutput();
+        output.setId(5L);
+        output.setCmafPath("/videos/processed/first");
+        output.setRefCount(refCount);
+        output.setResolution("1920x1080");
+        output.setDurationMs(12_000L);
+        output.setCreatedAt(LocalDateTime.of(2026, 1, 1, 0, 0));
+        return output;
+    }
+
+    @Test
+    void sameContentIsLinkedToTheExistingOutput() {
+        when(repository.acquire("abc")).thenReturn(Mono.just(output(2)));
+
+        StepVerifier.create(index.link(video("abc", null)))
+                .assertNext(video -> {
+                    assertThat(video.getStatus()).isEqualTo("READY");
+                    assertThat(video.getCmafPath()).isEqualTo("/videos/processed/first");
+                    assertThat(video.getResolution()).isEqualTo("1920x1080");
+                    assertThat(video.getProcessedAt()).isEqualTo(LocalDateTime.of(2026, 1, 1, 0, 0));
+                })
+                .verifyComplete();
+        assertThat(meterRegistry.counter("video.uploads.deduplicated").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("video.uploads.deduplicated.bytes").count()).isEqualTo(1000);
+    }
+
+    @Test
+    void newContentIsNotLinked() {
+        when(repository.acquire("abc")).thenReturn(Mono.empty());
+
+        StepVerifier.create(index.link(video("abc", null))).verifyComplete();
+        StepVerifier.create(index.link(video(null, null))).verifyComplete();
+        verify(repository, never()).acquire(null);
+    }
+
+    @Test
+    void filesAreKeptWhileOtherVideosReferenceThem() {
+        when(repository.release("/videos/processed/first")).thenReturn(Mono.just(output(1)));
+
+        StepVerifier.create(index.release(video("abc", "/videos/processed/first")))
+                .expectNext(false)
+                .verifyComplete();
+        verify(repository, never()).deleteIfUnused(any());
+    }
+
+    @Test
+    void lastReferenceDeletesTheOutput() {
+        when(repository.release("/videos/processed/first")).thenReturn(Mono.just(output(0)));
+        when(repository.deleteIfUnused(5L)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(index.release(video("abc", "/videos/processed/first")))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void concurrentAcquireKeepsTheOutput() {
+        // Sayaç sıfıra indi ama silmeden önce başka bir yükleme referans aldı
+        when(repository.release("/videos/processed/first")).thenReturn(Mono.just(output(0)));
+        when(repository.deleteIfUnused(5L)).thenReturn(Mono.just(0));
+
+        StepVerifier.create(index.release(video("abc", "/videos/processed/first")))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void unregisteredOrUnprocessedOutputsMayBeDeleted() {
+        when(repository.release("/videos/processed/old")).thenReturn(Mono.empty());
+
+        StepVerifier.create(index.release(video("abc", "/videos/processed/old"))).expectNext(true).verifyComplete();
+        StepVerifier.create(index.release(video("abc", null))).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    void registrationFailureIsNotFatal() {
+        when(repository.registerVideo(2L)).thenReturn(Mono.error(new IllegalStateException("db down")));
+
+        // Yalnızca tekilleştirme kaybedilir; video yine READY olur
+        StepVerifier.create(index.register(video("abc", "/videos/processed/first"))).verifyComplete();
+    }
+}
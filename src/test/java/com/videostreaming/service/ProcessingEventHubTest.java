@@ -0,0 +1,46 @@
+package com.videostreaming.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ProcessingEventHubTest {
+
+    private final DatabaseClient databaseClient = mock(DatabaseClient.class);
+    // NOTIFY kapalı: yalnızca bu node'un aboneleri
+    private final ProcessingEventHub hub = new ProcessingEventHub(mock(ConnectionFactory.class), databaseClient,
+            new ObjectMapper(), mock(VideoLocationCache.class), false);
+
+    @Test
+    void subscribersSeeOnlyTheirVideosEvents() {
+        StepVerifier.create(hub.events(1L).takeUntil(ProcessingEventHub.Event::isTerminal))
+                .then(() -> {
+                    hub.publish(ProcessingEventHub.Event.ofStatus(1L, "PROCESSING"));
+                    hub.publish(ProcessingEventHub.Event.ofStatus(2L, "READY"));
+                    hub.publish(new ProcessingEventHub.Event(1L, "PROCESSING", 50.0, 120.0, 4.0, 0));
+                    hub.publish(ProcessingEventHub.Event.ofStatus(1L, "READY"));
+                })
+                .expectNextMatches(event -> "PROCESSING".equals(event.status()) && event.progress() == null)
+                .expectNextMatches(event -> event.progress() == 50.0)
+                .expectNextMatches(event -> "READY".equals(event.status()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+
+        verifyNoInteractions(databaseClient);
+    }
+
+    @Test
+    void onlyReadyAndErrorAreTerminal() {
+        assertThat(ProcessingEventHub.Event.ofStatus(1L, "READY").isTerminal()).isTrue();
+        assertThat(ProcessingEventHub.Event.ofStatus(1L, "ERROR").isTerminal()).isTrue();
+        assertThat(ProcessingEventHub.Event.ofStatus(1L, "QUEUED").isTerminal()).isFalse();
+    }
+}
@@ -0,0 +1,87 @@
+package com.videostreaming.service;
+
+import com.videostreaming.repository.ProcessingJobRepository;
+import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessingJobServiceTest {
+
+    private final ProcessingJobRepository jobRepository = mock(ProcessingJobRepository.class);
+    private final TranscodingJobScheduler scheduler = mock(TranscodingJobScheduler.class);
+    private final VideoLocationCache videoLocationCache = mock(VideoLocationCache.class);
+    private final ProcessingEventHub eventHub = mock(ProcessingEventHub.class);
+    private ProcessingJobService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProcessingJobService(jobRepository, mock(VideoRepository.class), scheduler,
+                videoLocationCache, eventHub, new SimpleMeterRegistry(),
+                "node-a", 60, 3, 2, Duration.ofMinutes(10));
+        when(jobRepository.requeueOrphans(anyString())).thenReturn(Mono.just(0));
+        when(jobRepository.enqueueStrandedVideos()).thenReturn(Mono.just(0));
+        when(jobRepository.renewLeases(anyString(), anyInt())).thenReturn(Mono.just(0));
+        when(jobRepository.claimNext(anyString(), anyInt(), anyInt())).thenReturn(Mono.empty());
+        when(scheduler.hasIdleWorker()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void exhaustedJobsFailTheirVideos() {
+        when(jobRepository.failExhausted(3)).thenReturn(Flux.just(7L));
+
+        service.start();
+
+        verify(videoLocationCache, timeout(2000)).invalidate(7L);
+        verify(eventHub, timeout(2000)).publish(argThat(event ->
+                event.videoId().equals(7L) && "ERROR".equals(event.status())));
+    }
+
+    @Test
+    void backlogAtCapacityIsRejected() {
+        when(jobRepository.countByStatus("PENDING")).thenReturn(Mono.just(2L));
+        when(scheduler.estimateRetryAfterSeconds(2)).thenReturn(30L);
+
+        StepVerifier.create(service.checkBacklog())
+                .expectError(TranscodingQueueFullException.class)
+                .verify();
+    }
+
+    @Test
+    void backlogBelowCapacityIsAccepted() {
+        when(jobRepository.countByStatus("PENDING")).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.checkBacklog()).verifyComplete();
+    }
+
+    @Test
+    void noExhaustedJobsPublishNothing() {
+        when(jobRepository.failExhausted(3)).thenReturn(Flux.empty());
+
+        service.start();
+
+        verify(jobRepository, timeout(2000)).failExhausted(3);
+        verify(eventHub, never()).publish(any());
+    }
+}
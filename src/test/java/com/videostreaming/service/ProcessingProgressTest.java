@@ -0,0 +1,80 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProcessingProgressTest {
+
+    private final ProcessingEventHub eventHub = mock(ProcessingEventHub.class);
+
+    @Test
+    void parallelEncodesAreSummed() {
+        ProcessingProgress progress = new ProcessingProgress(eventHub, 7L, 10.0, Duration.ZERO);
+
+        progress.encode(0).accept(new FFmpegExecutor.Progress(5_000_000, 30, 1.5, false));
+        progress.encode(1).accept(new FFmpegExecutor.Progress(2_500_000, 20, 1.0, false));
+        // Biten encode hız toplamına katılmaz
+        progress.encode(0).accept(new FFmpegExecutor.Progress(5_000_000, 30, 1.5, true));
+
+        ArgumentCaptor<ProcessingEventHub.Event> events = ArgumentCaptor.forClass(ProcessingEventHub.Event.class);
+        verify(eventHub, times(3)).publish(events.capture());
+        ProcessingEventHub.Event summed = events.getAllValues().get(1);
+        assertThat(summed.videoId()).isEqualTo(7L);
+        assertThat(summed.status()).isEqualTo("PROCESSING");
+        assertThat(summed.progress()).isEqualTo(75.0);
+        assertThat(summed.fps()).isEqualTo(50.0);
+        assertThat(summed.speed()).isEqualTo(2.5);
+        ProcessingEventHub.Event afterFinish = events.getAllValues().get(2);
+        assertThat(afterFinish.fps()).isEqualTo(20.0);
+        assertThat(afterFinish.speed()).isEqualTo(1.0);
+    }
+
+    @Test
+    void reportsAreThrottledToTheInterval() {
+        ProcessingProgress progress = new ProcessingProgress(eventHub, 7L, 10.0, Duration.ofHours(1));
+
+        for (int i = 1; i <= 5; i++) {
+            progress.encode(0).accept(new FFmpegExecutor.Progress(i * 1_000_000L, 30, 1.0, false));
+        }
+
+        verify(eventHub, times(1)).publish(any());
+    }
+
+    @Test
+    void unknownDurationHasNoPercentage() {
+        ProcessingProgress progress = new ProcessingProgress(eventHub, 7L, 0, Duration.ZERO);
+
+        progress.encode(0).accept(new FFmpegExecutor.Progress(5_000_000, 30, 1.0, false));
+
+        ArgumentCaptor<ProcessingEventHub.Event> event = ArgumentCaptor.forClass(ProcessingEventHub.Event.class);
+        verify(eventHub).publish(event.capture());
+        assertThat(event.getValue().progress()).isNull();
+    }
+
+    @Test
+    void ffmpegProgressBlocksAreParsed() {
+        List<FFmpegExecutor.Progress> reports = new ArrayList<>();
+        FFmpegExecutor.ProgressParser parser = new FFmpegExecutor.ProgressParser(reports::add);
+
+        for (String line : List.of("frame=120", "fps=59.9", "stream_0_0_q=23.0", "out_time_us=4000000",
+                "speed=1.98x", "progress=continue", "out_time_us=N/A", "speed=N/A", "progress=end")) {
+            assertThat(parser.accept(line)).as(line).isTrue();
+        }
+        assertThat(parser.accept("[libx264 @ 0x5] frame I:2 Avg QP:20.1")).isFalse();
+        assertThat(parser.accept("Press [q] to stop")).isFalse();
+
+        assertThat(reports).containsExactly(
+                new FFmpegExecutor.Progress(4_000_000, 59.9, 1.98, false),
+                new FFmpegExecutor.Progress(4_000_000, 59.9, 1.98, true));
+    }
+}
@@ -0,0 +1,54 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RenditionTest {
+
+    @Test
+    void ladderIsSortedHighestFirst() {
+        List<Rendition> ladder = Rendition.parseLadder("480:1400, 1080:5000,720:2800");
+
+        assertThat(ladder).extracting(Rendition::getName).containsExactly("1080p", "720p", "480p");
+        assertThat(ladder).extracting(Rendition::getMaxBitrateKbps).containsExactly(5000, 2800, 1400);
+    }
+
+    @Test
+    void malformedRungIsRejected() {
+        assertThatThrownBy(() -> Rendition.parseLadder("1080:5000,720"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'720'");
+    }
+
+    @Test
+    void codecStringMatchesForcedProfileAndLevel() {
+        assertThat(new Rendition(1080, 5000).getCodecs(30)).isEqualTo("avc1.640028");
+        assertThat(new Rendition(1080, 5000).getCodecs(60)).isEqualTo("avc1.64002a");
+        assertThat(new Rendition(720, 2800).getCodecs(25)).isEqualTo("avc1.64001f");
+        // 854x480 = 1620 makroblok: 30 fps'te 48.600 MB/s, level 3.0'ın 40.500 sınırını aşar
+        assertThat(new Rendition(480, 1400).getCodecs(30)).isEqualTo("avc1.4d401f");
+        assertThat(new Rendition(480, 1400).getCodecs(25)).isEqualTo("avc1.4d401e");
+        assertThat(new Rendition(360, 800).getCodecs(60)).isEqualTo("avc1.4d401f");
+    }
+
+    @Test
+    void levelFollowsTheActualFrameSize() {
+        // Dikey 1080p: aynı makroblok sayısı
+        assertThat(new Rendition(1080, 5000).getLevel(1080, 1920, 30)).isEqualTo("4.0");
+        // 4:3 480p (640x480) 30 fps'te 3.0'a sığar
+        assertThat(new Rendition(480, 1400).getLevel(640, 480, 30)).isEqualTo("3.0");
+        assertThat(new Rendition(2160, 16000).getLevel(3840, 2160, 30)).isEqualTo("5.1");
+        assertThat(new Rendition(2160, 16000).getLevel(3840, 2160, 60)).isEqualTo("5.2");
+        assertThat(new Rendition(240, 400).getLevel(426, 240, 30)).isEqualTo("2.1");
+    }
+
+    @Test
+    void bitrateCanRaiseTheLevel() {
+        // 480p'de 12 Mbps Main profil için 3.0'ın 10 Mbps sınırını aşar
+        assertThat(new Rendition(480, 12_000).getLevel(854, 480, 25)).isEqualTo("3.1");
+    }
+}
@@ -0,0 +1,53 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class SegmentFileCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final SegmentFileCache cache = new SegmentFileCache(new FilesystemSegmentStore(), 100);
+
+    @Test
+    void resolvedFilesAreServedFromTheCache() throws Exception {
+        Path segment = Files.write(Files.createDirectories(dir.resolve("720p")).resolve("segment_000.m4s"),
+                new byte[]{1, 2, 3});
+
+        StepVerifier.create(cache.resolve(1L, dir.toString(), "720p/segment_000.m4s"))
+                .expectNextMatches(file -> file.path().equals(segment) && file.length() == 3)
+                .verifyComplete();
+
+        // Segmentler değişmez: ikinci istek dosya sistemine bakmaz
+        Files.delete(segment);
+        StepVerifier.create(cache.resolve(1L, dir.toString(), "720p/segment_000.m4s"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        cache.invalidate(1L);
+        StepVerifier.create(cache.resolve(1L, dir.toString(), "720p/segment_000.m4s"))
+                .verifyComplete();
+    }
+
+    @Test
+    void pathsOutsideTheVideoDirectoryAreRejected() throws Exception {
+        Files.write(dir.resolve("secret.txt"), new byte[]{1});
+        Path videoDir = Files.createDirectories(dir.resolve("video"));
+
+        StepVerifier.create(cache.resolve(1L, videoDir.toString(), "../secret.txt"))
+                .verifyComplete();
+    }
+
+    @Test
+    void directoriesAreNotServed() throws Exception {
+        Files.createDirectories(dir.resolve("720p"));
+
+        StepVerifier.create(cache.resolve(1L, dir.toString(), "720p"))
+                .verifyComplete();
+    }
+}
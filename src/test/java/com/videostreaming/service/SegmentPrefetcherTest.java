@@ -0,0 +1,170 @@
+package com.videostreaming.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SegmentPrefetcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FilesystemSegmentStore segmentStore = new FilesystemSegmentStore();
+    private final HotSegmentCache hotSegmentCache = new HotSegmentCache(new SimpleMeterRegistry(), 1 << 20, 6, 1024);
+
+    // Her track'in ilk iki segmenti
+    private SegmentPrefetcher prefetcher(long maxBytesPerSecond) {
+        return new SegmentPrefetcher(new ManifestRenderer(new SimpleMeterRegistry(), segmentStore, 10),
+                segmentStore, new SegmentFileCache(segmentStore, 100), hotSegmentCache, meterRegistry,
+                true, 2, 4, maxBytesPerSecond, Duration.ofMinutes(1));
+    }
+
+    private void writeSegments(String track, int count) throws IOException {
+        Path trackDir = Files.createDirectories(dir.resolve(track));
+        Files.write(trackDir.resolve("init.mp4"), new byte[100]);
+        for (int i = 0; i < count; i++) {
+            Files.write(trackDir.resolve(String.format("segment_%03d.m4s", i)), new byte[200]);
+        }
+    }
+
+    private double counter(String name) {
+        return meterRegistry.counter(name).count();
+    }
+
+    // Isıtma arka planda; yanıt beklemez
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void masterPlaylistWarmsInitAndFirstSegmentsOfEveryTrack() throws Exception {
+        new FragmentIndex(10_000, 30.0, "30", 48000, List.of(ManifestRendererTest.VIDEO, ManifestRendererTest.AUDIO))
+                .write(dir);
+        writeSegments("720p", 3);
+        writeSegments("audio", 3);
+
+        prefetcher(1 << 20).prefetch(1L, dir.toString(), "playlist.m3u8");
+
+        await(() -> counter("segments.prefetch.files") == 6);
+        for (String track : List.of("720p", "audio")) {
+            assertThat(hotSegmentCache.contains(1L, track + "/init.mp4")).isTrue();
+            assertThat(hotSegmentCache.contains(1L, track + "/segment_001.m4s")).isTrue();
+            assertThat(hotSegmentCache.contains(1L, track + "/segment_002.m4s")).isFalse();
+        }
+        assertThat(counter("segments.prefetch.bytes")).isEqualTo(2 * (100 + 2 * 200));
+    }
+
+    @Test
+    void mediaPlaylistWarmsOnlyItsTrackOncePerWindow() throws Exception {
+        new FragmentIndex(10_000, 30.0, "30", 48000, List.of(ManifestRendererTest.VIDEO, ManifestRendererTest.AUDIO))
+                .write(dir);
+        writeSegments("720p", 3);
+        writeSegments("audio", 3);
+        SegmentPrefetcher prefetcher = prefetcher(1 << 20);
+
+        prefetcher.prefetch(1L, dir.toString(), "720p/playlist.m3u8");
+        await(() -> counter("segments.prefetch.files") == 3);
+        prefetcher.prefetch(1L, dir.toString(), "720p/playlist.m3u8");
+        prefetcher.prefetch(1L, dir.toString(), "playlist.m3u8");
+
+        // Master yalnızca henüz ısıtılmamış ses track'ini ekler
+        await(() -> counter("segments.prefetch.files") == 6);
+        Thread.sleep(100);
+        assertThat(counter("segments.prefetch.files")).isEqualTo(6);
+    }
+
+    @Test
+    void singleFileLayoutReadsAheadInitAndFirstSegments() throws Exception {
+        new FragmentIndex(10_000, 30.0, "30", 48000, List.of(ManifestRendererTest.SINGLE_FILE_VIDEO)).write(dir);
+        Files.write(Files.createDirectories(dir.resolve("720p")).resolve("media.mp4"), new byte[3376]);
+
+        prefetcher(1 << 20).prefetch(1L, dir.toString(), "manifest.mpd");
+
+        // init + sidx + ilk iki segment: 0..2875
+        await(() -> counter("segments.prefetch.files") == 1);
+        assertThat(counter("segments.prefetch.bytes")).isEqualTo(2876);
+        assertThat(hotSegmentCache.contains(1L, "720p/media.mp4")).isFalse();
+    }
+
+    @Test
+    void workOverTheByteBudgetIsDropped() throws Exception {
+        new FragmentIndex(10_000, 30.0, "30", 48000, List.of(ManifestRendererTest.VIDEO)).write(dir);
+        writeSegments("720p", 3);
+
+        // Bütçe index'teki boyutlara göre: 800 byte'lık init sığar, 1000 byte'lık segmentler atlanır
+        prefetcher(900).prefetch(1L, dir.toString(), "playlist.m3u8");
+
+        await(() -> counter("segments.prefetch.skipped") == 2);
+        assertThat(counter("segments.prefetch.files")).isEqualTo(1);
+        assertThat(hotSegmentCache.contains(1L, "720p/segment_000.m4s")).isFalse();
+    }
+
+    @Test
+    void trackSkippedOverBudgetIsWarmedByALaterRequest() throws Exception {
+        new FragmentIndex(10_000, 30.0, "30", 48000, List.of(ManifestRendererTest.VIDEO)).write(dir);
+        writeSegments("720p", 3);
+        // Bir saniyelik bütçe tam bir track'e yeter: init 800 + iki segment 1000
+        SegmentPrefetcher prefetcher = prefetcher(2800);
+
+        prefetcher.prefetch(1L, dir.toString(), "playlist.m3u8");
+        await(() -> counter("segments.prefetch.files") == 3);
+        prefetcher.prefetch(2L, dir.toString(), "playlist.m3u8");
+        await(() -> counter("segments.prefetch.skipped") == 3);
+        assertThat(hotSegmentCache.contains(2L, "720p/init.mp4")).isFalse();
+
+        // Aynı dedup penceresi içinde, bütçe yenilendikten sonra
+        Thread.sleep(1100);
+        prefetcher.prefetch(2L, dir.toString(), "playlist.m3u8");
+        await(() -> counter("segments.prefetch.files") == 6);
+        assertThat(hotSegmentCache.contains(2L, "720p/segment_001.m4s")).isTrue();
+    }
+
+    @Test
+    void singleFileIsNotDownloadedFromRemoteStores() throws Exception {
+        new FragmentIndex(10_000, 30.0, "30", 48000, List.of(ManifestRendererTest.SINGLE_FILE_VIDEO)).write(dir);
+        SegmentStore remoteStore = mock(SegmentStore.class);
+        when(remoteStore.hasStableLocalPaths()).thenReturn(false);
+        SegmentFileCache segmentFileCache = mock(SegmentFileCache.class);
+
+        new SegmentPrefetcher(new ManifestRenderer(new SimpleMeterRegistry(), segmentStore, 10), remoteStore,
+                segmentFileCache, hotSegmentCache, meterRegistry, true, 2, 4, 1 << 20, Duration.ofMinutes(1))
+                .prefetch(1L, dir.toString(), "playlist.m3u8");
+
+        verify(remoteStore, timeout(2000)).hasStableLocalPaths();
+        verifyNoInteractions(segmentFileCache);
+    }
+
+    @Test
+    void thumbnailAndDisabledRequestsWarmNothing() {
+        ManifestRenderer manifestRenderer = mock(ManifestRenderer.class);
+        SegmentFileCache segmentFileCache = mock(SegmentFileCache.class);
+
+        new SegmentPrefetcher(manifestRenderer, segmentStore, segmentFileCache, hotSegmentCache, meterRegistry,
+                true, 2, 4, 1 << 20, Duration.ofMinutes(1))
+                .prefetch(1L, dir.toString(), "thumbnails/playlist.m3u8");
+        new SegmentPrefetcher(manifestRenderer, segmentStore, segmentFileCache, hotSegmentCache, meterRegistry,
+                false, 2, 4, 1 << 20, Duration.ofMinutes(1))
+                .prefetch(1L, dir.toString(), "playlist.m3u8");
+
+        verifyNoInteractions(manifestRenderer, segmentFileCache);
+    }
+}
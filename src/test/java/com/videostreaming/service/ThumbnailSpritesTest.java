@@ -0,0 +1,93 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThumbnailSpritesTest {
+
+    @TempDir
+    Path dir;
+
+    private Path frames(int count) throws IOException {
+        Path framesDir = Files.createDirectories(dir.resolve(ThumbnailSprites.FRAMES_DIR));
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(32, 18, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(new Color(40 * i, 0, 0));
+            graphics.fillRect(0, 0, 32, 18);
+            graphics.dispose();
+            ImageIO.write(image, "jpg", framesDir.resolve(String.format(ThumbnailSprites.FRAME_PATTERN, i)).toFile());
+        }
+        return framesDir;
+    }
+
+    @Test
+    void framesArePlacedAfterTheChunkStart() throws IOException {
+        Path framesDir = frames(3);
+
+        List<ThumbnailSprites.Frame> frames = ThumbnailSprites.listFrames(framesDir, 60.0, 5);
+
+        assertThat(frames).extracting(ThumbnailSprites.Frame::timeSeconds).containsExactly(60.0, 65.0, 70.0);
+        assertThat(frames.get(2).file().getFileName().toString()).isEqualTo("thumb_00002.jpg");
+    }
+
+    @Test
+    void tilesFollowAFixedTimeGrid() throws IOException {
+        // 23 s, 5 s aralık: 5 karo, 2x2 sayfada iki sayfa; son iki karo son kareyi tekrarlar
+        List<ThumbnailSprites.Frame> frames = ThumbnailSprites.listFrames(frames(3), 0, 5);
+
+        FragmentIndex.Thumbnails thumbnails = ThumbnailSprites.write(dir, frames, 23_000, 5, 2, 2, 16, 9);
+
+        assertThat(thumbnails.intervalMs()).isEqualTo(5000);
+        assertThat(thumbnails.count()).isEqualTo(5);
+        assertThat(thumbnails.sheetCount()).isEqualTo(2);
+        assertThat(thumbnails.bandwidth()).isPositive();
+        Path sheets = dir.resolve(ThumbnailSprites.DIR);
+        for (String sheet : List.of("sprite_000.jpg", "sprite_001.jpg")) {
+            BufferedImage image = ImageIO.read(sheets.resolve(sheet).toFile());
+            assertThat(image.getWidth()).isEqualTo(32);
+            assertThat(image.getHeight()).isEqualTo(18);
+        }
+        assertThat(Files.readString(sheets.resolve(ThumbnailSprites.VTT_FILE))).isEqualTo("WEBVTT\n"
+                + "\n00:00:00.000 --> 00:00:05.000\nsprite_000.jpg#xywh=0,0,16,9\n"
+                + "\n00:00:05.000 --> 00:00:10.000\nsprite_000.jpg#xywh=16,0,16,9\n"
+                + "\n00:00:10.000 --> 00:00:15.000\nsprite_000.jpg#xywh=0,9,16,9\n"
+                + "\n00:00:15.000 --> 00:00:20.000\nsprite_000.jpg#xywh=16,9,16,9\n"
+                + "\n00:00:20.000 --> 00:00:23.000\nsprite_001.jpg#xywh=0,0,16,9\n");
+    }
+
+    @Test
+    void encodeWithoutFramesIsAnError() {
+        assertThatThrownBy(() -> ThumbnailSprites.write(dir, List.of(), 10_000, 5, 2, 2, 16, 9))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rawFramesAreDeleted() throws IOException {
+        Path framesDir = frames(2);
+
+        ThumbnailSprites.deleteFrames(framesDir);
+        ThumbnailSprites.deleteFrames(framesDir);
+
+        assertThat(framesDir).doesNotExist();
+    }
+
+    @Test
+    void webVttTimestamps() {
+        assertThat(ThumbnailSprites.formatTimestamp(0)).isEqualTo("00:00:00.000");
+        assertThat(ThumbnailSprites.formatTimestamp(3_723_456)).isEqualTo("01:02:03.456");
+        assertThat(ThumbnailSprites.sheetName(12)).isEqualTo("sprite_012.jpg");
+    }
+}
@@ -0,0 +1,104 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.Video;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+class TranscodingJobSchedulerTest {
+
+    private final VideoProcessingService processingService = mock(VideoProcessingService.class);
+    // 1 worker, kuyrukta en fazla 2 iş, 100 byte'a kadar kısa klip
+    private final TranscodingJobScheduler scheduler =
+            new TranscodingJobScheduler(processingService, new SimpleMeterRegistry(), 1, 2, 100);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    private static Video video(long fileSize) {
+        Video video = new Video();
+        video.setFilename(fileSize + ".mp4");
+        video.setFileSize(fileSize);
+        return video;
+    }
+
+    @Test
+    void smallFilesGoToTheShortLane() {
+        assertThat(scheduler.laneFor(video(100))).isEqualTo(TranscodingJobScheduler.Lane.SHORT);
+        assertThat(scheduler.laneFor(video(101))).isEqualTo(TranscodingJobScheduler.Lane.STANDARD);
+    }
+
+    @Test
+    void shortClipsOvertakeQueuedLongOnes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Video blocker = video(1000);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return null;
+        }).when(processingService).processVideo(eq(blocker), any());
+
+        scheduler.submit(blocker);
+        assertThat(running.await(2, TimeUnit.SECONDS)).isTrue();
+        Video longClip = video(500);
+        Video shortClip = video(10);
+        CompletableFuture<Void> longDone = scheduler.submit(longClip);
+        scheduler.submit(shortClip);
+        release.countDown();
+        longDone.get(2, TimeUnit.SECONDS);
+
+        InOrder order = inOrder(processingService);
+        order.verify(processingService).processVideo(eq(shortClip), any());
+        order.verify(processingService).processVideo(eq(longClip), any());
+    }
+
+    @Test
+    void fullQueueRejectsNewJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return null;
+        }).when(processingService).processVideo(any(), any());
+
+        try {
+            scheduler.submit(video(10));
+            assertThat(running.await(2, TimeUnit.SECONDS)).isTrue();
+            scheduler.submit(video(10));
+            scheduler.submit(video(10));
+
+            assertThat(scheduler.hasIdleWorker()).isFalse();
+            assertThatThrownBy(() -> scheduler.submit(video(10)))
+                    .isInstanceOf(TranscodingQueueFullException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void failedJobCompletesExceptionally() {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("ffmpeg failed");
+        }).when(processingService).processVideo(any(), any());
+
+        assertThat(scheduler.submit(video(10)))
+                .failsWithin(2, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,77 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.VideoSummary;
+import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VideoCatalogTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+
+    private final VideoRepository videoRepository = mock(VideoRepository.class);
+    // Varsayılan sayfa 2, en fazla 3
+    private final VideoCatalog catalog =
+            new VideoCatalog(videoRepository, new SimpleMeterRegistry(), 2, 3, Duration.ofMinutes(1));
+
+    private static VideoSummary summary(long id, int minutesAgo) {
+        VideoSummary summary = new VideoSummary();
+        summary.setId(id);
+        summary.setCreatedAt(NOW.minusMinutes(minutesAgo));
+        return summary;
+    }
+
+    @Test
+    void cursorOfAFullPageLeadsToTheNextOne() {
+        when(videoRepository.findFirstPage(3)).thenReturn(Flux.just(summary(9, 0), summary(8, 1), summary(7, 2)));
+        when(videoRepository.findPageBefore(NOW.minusMinutes(1), 8L, 3)).thenReturn(Flux.just(summary(7, 2)));
+
+        String[] cursor = new String[1];
+        StepVerifier.create(catalog.list(null, null, null))
+                .assertNext(page -> {
+                    assertThat(page.getItems()).extracting(VideoSummary::getId).containsExactly(9L, 8L);
+                    assertThat(page.getNextCursor()).isNotNull().doesNotContain("=");
+                    cursor[0] = page.getNextCursor();
+                })
+                .verifyComplete();
+
+        StepVerifier.create(catalog.list(null, cursor[0], null))
+                .assertNext(page -> {
+                    assertThat(page.getItems()).extracting(VideoSummary::getId).containsExactly(7L);
+                    assertThat(page.getNextCursor()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void firstPagesAreCachedPerStatusAndSize() {
+        when(videoRepository.findFirstPageByStatus("READY", 4)).thenReturn(Flux.just(summary(1, 0)));
+
+        // Sayfa boyutu üst sınıra çekilir, durum büyük harfe
+        StepVerifier.create(catalog.list("ready", null, 50)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(catalog.list("READY", "", 3)).expectNextCount(1).verifyComplete();
+        verify(videoRepository, times(1)).findFirstPageByStatus("READY", 4);
+
+        catalog.invalidate();
+        StepVerifier.create(catalog.list("READY", null, 3)).expectNextCount(1).verifyComplete();
+        verify(videoRepository, times(2)).findFirstPageByStatus("READY", 4);
+    }
+
+    @Test
+    void foreignCursorIsRejected() {
+        StepVerifier.create(catalog.list(null, "not-a-cursor", null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,79 @@
+package com.videostreaming.service;
+
+import com.videostreaming.model.Video;
+import com.videostreaming.repository.VideoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VideoLocationCacheTest {
+
+    private final VideoRepository videoRepository = mock(VideoRepository.class);
+    private final VideoLocationCache cache = new VideoLocationCache(videoRepository, new SimpleMeterRegistry(),
+            100, Duration.ofMinutes(5), Duration.ofMillis(100));
+
+    @Test
+    void readyLocationsAreCachedForTheFullTtl() throws Exception {
+        when(videoRepository.findById(1L)).thenReturn(Mono.just(video(1L, "READY", "/videos/processed/a")));
+
+        StepVerifier.create(cache.get(1L))
+                .expectNextMatches(location -> "/videos/processed/a".equals(location.cmafPath()))
+                .verifyComplete();
+        Thread.sleep(300);
+        StepVerifier.create(cache.get(1L)).expectNextCount(1).verifyComplete();
+
+        verify(videoRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void locationsInProgressExpireWithTheNegativeTtl() throws Exception {
+        when(videoRepository.findById(2L))
+                .thenReturn(Mono.just(video(2L, "QUEUED", null)))
+                .thenReturn(Mono.just(video(2L, "READY", "/videos/processed/b")));
+
+        StepVerifier.create(cache.get(2L))
+                .expectNextMatches(location -> location.cmafPath() == null)
+                .verifyComplete();
+        // Video başka bir node'da hazır oldu; kısa süre sonra bu node da görmeli
+        Thread.sleep(300);
+        StepVerifier.create(cache.get(2L))
+                .expectNextMatches(location -> "READY".equals(location.status()))
+                .verifyComplete();
+    }
+
+    @Test
+    void unknownIdsAreEmpty() {
+        when(videoRepository.findById(3L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(cache.get(3L)).verifyComplete();
+    }
+
+    @Test
+    void invalidateForcesAReload() {
+        when(videoRepository.findById(4L))
+                .thenReturn(Mono.just(video(4L, "PROCESSING", null)))
+                .thenReturn(Mono.just(video(4L, "READY", "/videos/processed/d")));
+
+        StepVerifier.create(cache.get(4L)).expectNextCount(1).verifyComplete();
+        cache.invalidate(4L);
+        StepVerifier.create(cache.get(4L))
+                .expectNextMatches(location -> "READY".equals(location.status()))
+                .verifyComplete();
+    }
+
+    private static Video video(Long id, String status, String cmafPath) {
+        Video video = new Video();
+        video.setId(id);
+        video.setStatus(status);
+        video.setCmafPath(cmafPath);
+        return video;
+    }
+}
@@ -0,0 +1,99 @@
+package com.videostreaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VideoServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void writeFileStoresContentWithSizeAndHash() throws IOException {
+        Path file = dir.resolve("upload.mp4");
+
+        StepVerifier.create(VideoService.writeFile(Flux.just(buffer("ab"), buffer("c")), file, null))
+                .assertNext(stored -> {
+                    assertThat(stored.size()).isEqualTo(3);
+                    // SHA-256("abc")
+                    assertThat(stored.sha256())
+                            .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+                })
+                .verifyComplete();
+        assertThat(Files.readString(file)).isEqualTo("abc");
+    }
+
+    @Test
+    void failedWriteDeletesPartialFile() throws InterruptedException {
+        Path file = dir.resolve("upload.mp4");
+        Flux<DataBuffer> source = Flux.concat(Flux.just(buffer("abc")),
+                Flux.error(new IOException("connection reset")));
+
+        StepVerifier.create(VideoService.writeFile(source, file, null))
+                .expectErrorMessage("connection reset")
+                .verify();
+        awaitDeleted(file);
+    }
+
+    @Test
+    void cancelledWriteDeletesPartialFile() throws InterruptedException {
+        Path file = dir.resolve("upload.mp4");
+        Flux<DataBuffer> source = Flux.concat(Flux.just(buffer("abc")), Flux.never());
+
+        StepVerifier.create(VideoService.writeFile(source, file, null))
+                .expectSubscription()
+                .then(() -> assertThat(file).exists())
+                .thenCancel()
+                .verify();
+        awaitDeleted(file);
+    }
+
+    // Silme boundedElastic üzerinde, iptalden sonra yapılır
+    private static void awaitDeleted(Path file) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (Files.exists(file) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void manySmallBuffersAreWrittenInOrder() throws Exception {
+        // UploadWriteBenchmark'taki gibi Netty boyutunda parçalar
+        byte[] content = new byte[4 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        Flux<DataBuffer> source = Flux.range(0, content.length / 8192)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(
+                        Arrays.copyOfRange(content, i * 8192, (i + 1) * 8192)));
+        Path file = dir.resolve("upload.bin");
+        String expectedSha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        StepVerifier.create(VideoService.writeFile(source, file, null))
+                .assertNext(stored -> {
+                    assertThat(stored.size()).isEqualTo(content.length);
+                    assertThat(stored.sha256()).isEqualTo(expectedSha256);
+                })
+                .verifyComplete();
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+    }
+}